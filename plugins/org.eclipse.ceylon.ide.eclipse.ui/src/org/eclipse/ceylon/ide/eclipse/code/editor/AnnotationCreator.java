@@ -19,11 +19,15 @@ import static org.eclipse.core.resources.IMarker.SEVERITY_ERROR;
 import static org.eclipse.core.resources.IMarker.SEVERITY_INFO;
 import static org.eclipse.core.resources.IMarker.SEVERITY_WARNING;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.text.Position;
@@ -34,8 +38,11 @@ import org.eclipse.ui.texteditor.IDocumentProvider;
 
 import org.eclipse.ceylon.compiler.typechecker.parser.RecognitionError;
 import org.eclipse.ceylon.compiler.typechecker.tree.Message;
+import org.eclipse.ceylon.compiler.typechecker.tree.Node;
+import org.eclipse.ceylon.compiler.typechecker.tree.Tree;
 import org.eclipse.ceylon.ide.eclipse.code.parse.CeylonParseController;
-import org.eclipse.ceylon.ide.eclipse.code.parse.TreeLifecycleListener;
+import org.eclipse.ceylon.ide.eclipse.code.parse.FusedTreeVisitor;
+import org.eclipse.ceylon.ide.eclipse.code.parse.TreeNodeListener;
 import org.eclipse.ceylon.ide.eclipse.util.ErrorVisitor;
 
 /**
@@ -46,7 +53,7 @@ import org.eclipse.ceylon.ide.eclipse.util.ErrorVisitor;
  */
 public class AnnotationCreator 
         extends ErrorVisitor
-        implements TreeLifecycleListener {
+        implements TreeNodeListener {
         
     private static class PositionedMessage {
         public final String message;
@@ -74,9 +81,56 @@ public class AnnotationCreator
         }
     }
     
+    /**
+     * Identifies the annotations which look the same, so
+     * that an annotation of the model can be kept when the
+     * new messages have an identical one.
+     */
+    private static class AnnotationKey {
+        private final int offset;
+        private final int length;
+        private final String type;
+        private final String text;
+        private final int code;
+        private final Class<?> errorClass;
+        
+        private AnnotationKey(Position pos, String type, String text,
+                int code, Message error) {
+            this.offset = pos.offset;
+            this.length = pos.length;
+            this.type = type;
+            this.text = text;
+            this.code = code;
+            this.errorClass = error==null ? null : error.getClass();
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof AnnotationKey)) {
+                return false;
+            }
+            AnnotationKey that = (AnnotationKey) obj;
+            return offset==that.offset && 
+                    length==that.length &&
+                    code==that.code &&
+                    type.equals(that.type) &&
+                    (text==null ? that.text==null : text.equals(that.text)) &&
+                    errorClass==that.errorClass;
+        }
+        
+        @Override
+        public int hashCode() {
+            int hash = offset;
+            hash = hash*31 + length;
+            hash = hash*31 + type.hashCode();
+            hash = hash*31 + code;
+            return hash;
+        }
+    }
+    
     private final CeylonEditor editor;
     private final List<PositionedMessage> messages = new LinkedList<PositionedMessage>();
-    private final List<Annotation> annotations = new LinkedList<Annotation>();
+    private List<Annotation> annotations = new ArrayList<Annotation>();
     
     public AnnotationCreator(CeylonEditor editor) {
         this.editor = editor;
@@ -85,15 +139,37 @@ public class AnnotationCreator
     @Override
     public void update(CeylonParseController parseController, 
             IProgressMonitor monitor) {
+        FusedTreeVisitor.update(this, parseController, monitor);
+    }
+    
+    @Override
+    public List<Class<? extends Node>> getNodeTypes() {
+        //we only need the errors
+        return Collections.emptyList();
+    }
+    
+    @Override
+    public Tree.CompilationUnit beginVisit(
+            CeylonParseController parseController,
+            IProgressMonitor monitor) {
         if (monitor.isCanceled() || 
                 editor.isBackgroundParsingPaused()) {
             clearMessages();
+            return null;
         }
         else {
-            parseController.getParsedRootNode().visit(this);
-            updateAnnotations();
+            return parseController.getParsedRootNode();
         }
     }
+    
+    @Override
+    public void visitNode(Node node) {}
+    
+    @Override
+    public void endVisit(CeylonParseController parseController,
+            IProgressMonitor monitor) {
+        updateAnnotations();
+    }
 
     @Override
     public Stage getStage() {
@@ -116,18 +192,67 @@ public class AnnotationCreator
         IDocumentProvider docProvider = editor.getDocumentProvider();
         if (docProvider!=null) {
             IAnnotationModel model = docProvider.getAnnotationModel(editor.getEditorInput());
+            Set<Integer> syntaxErrorLines = getSyntaxErrorLines();
             if (model instanceof IAnnotationModelExtension) {
                 IAnnotationModelExtension modelExt = (IAnnotationModelExtension) model;
-                Annotation[] oldAnnotations = annotations.toArray(new Annotation[annotations.size()]);
-                Map<Annotation,Position> newAnnotations = new HashMap<Annotation,Position>(messages.size());
+                //index the current annotations by where they are 
+                //now, and how they look
+                Map<AnnotationKey,List<Annotation>> oldAnnotations = 
+                        new HashMap<AnnotationKey,List<Annotation>>();
+                List<Annotation> removedAnnotations = new ArrayList<Annotation>();
+                for (Annotation a: annotations) {
+                    Position pos = model.getPosition(a);
+                    if (pos==null || pos.isDeleted() || 
+                            !(a instanceof CeylonAnnotation)) {
+                        removedAnnotations.add(a);
+                    }
+                    else {
+                        CeylonAnnotation ca = (CeylonAnnotation) a;
+                        AnnotationKey key = 
+                                new AnnotationKey(pos, ca.getType(), 
+                                        ca.getText(), ca.getId(), 
+                                        ca.getError());
+                        List<Annotation> list = oldAnnotations.get(key);
+                        if (list==null) {
+                            list = new ArrayList<Annotation>(1);
+                            oldAnnotations.put(key, list);
+                        }
+                        list.add(a);
+                    }
+                }
+                //keep the annotations which are still reported,
+                //and only create the others
+                List<Annotation> currentAnnotations = 
+                        new ArrayList<Annotation>(messages.size());
+                Map<Annotation,Position> newAnnotations = new HashMap<Annotation,Position>();
                 for (PositionedMessage pm: messages) {
-                    if (!suppressAnnotation(pm)) {
-                        Annotation a = createAnnotation(pm);
-                        newAnnotations.put(a, pm.pos);
-                        annotations.add(a);
+                    if (!suppressAnnotation(pm, syntaxErrorLines)) {
+                        AnnotationKey key = 
+                                new AnnotationKey(pm.pos, getAnnotationType(pm), 
+                                        pm.message, pm.code, pm.error);
+                        List<Annotation> list = oldAnnotations.get(key);
+                        Annotation a;
+                        if (list!=null && !list.isEmpty()) {
+                            a = list.remove(list.size()-1);
+                        }
+                        else {
+                            a = createAnnotation(pm);
+                            newAnnotations.put(a, pm.pos);
+                        }
+                        currentAnnotations.add(a);
                     }
                 }
-                modelExt.replaceAnnotations(oldAnnotations, newAnnotations);
+                for (List<Annotation> list: oldAnnotations.values()) {
+                    removedAnnotations.addAll(list);
+                }
+                if (!removedAnnotations.isEmpty() || 
+                        !newAnnotations.isEmpty()) {
+                    modelExt.replaceAnnotations(
+                            removedAnnotations.toArray(
+                                    new Annotation[removedAnnotations.size()]), 
+                            newAnnotations);
+                }
+                annotations = currentAnnotations;
             } 
             else if (model != null) { // model could be null if, e.g., we're directly browsing a file version in a src repo
                 for (Iterator<Annotation> i = 
@@ -138,8 +263,9 @@ public class AnnotationCreator
                         model.removeAnnotation(a);
                     }
                 }
+                annotations.clear();
                 for (PositionedMessage pm: messages) {
-                    if (!suppressAnnotation(pm)) {
+                    if (!suppressAnnotation(pm, syntaxErrorLines)) {
                         Annotation a= createAnnotation(pm);
                         model.addAnnotation(a, pm.pos);
                         annotations.add(a);
@@ -150,17 +276,20 @@ public class AnnotationCreator
         messages.clear();
     }
 
-    public boolean suppressAnnotation(PositionedMessage pm) {
-        boolean suppress = false;
-        if (!pm.syntaxError && pm.line>=0) {
-            for (PositionedMessage m: messages) {
-                if (m.syntaxError && m.line==pm.line) {
-                    suppress = true;
-                    break;
-                }
+    private Set<Integer> getSyntaxErrorLines() {
+        Set<Integer> lines = new HashSet<Integer>();
+        for (PositionedMessage m: messages) {
+            if (m.syntaxError) {
+                lines.add(m.line);
             }
         }
-        return suppress;
+        return lines;
+    }
+
+    private static boolean suppressAnnotation(PositionedMessage pm, 
+            Set<Integer> syntaxErrorLines) {
+        return !pm.syntaxError && pm.line>=0 && 
+                syntaxErrorLines.contains(pm.line);
     }
 
     private Annotation createAnnotation(PositionedMessage pm) {
@@ -1385,7 +1385,10 @@ public class CeylonEditor extends TextEditor implements ModelListener<IProject,
         }
         public void documentChanged(DocumentEvent event) {
             synchronized (CeylonEditor.this) {
-            	scheduleParsing(true);
+                if (parseController!=null) {
+                    parseController.documentChanged();
+                }
+            	scheduleParsing(false);
             }
         }
     };
@@ -40,6 +40,17 @@ public class CeylonTaskUtil {
     }
 
     public static void addTaskMarkers(CommonToken token, IFile file) {
+        for (Map<String, Object> attributes: getTaskMarkerAttributes(token)) {
+            try {
+                file.createMarker(CeylonBuilder.TASK_MARKER_ID).setAttributes(attributes);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public static List<Map<String, Object>> getTaskMarkerAttributes(CommonToken token) {
+        List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
         List<Task> tasks = getTasks(token);
         if (tasks != null) {
             for (Task task : tasks) {
@@ -52,14 +63,10 @@ public class CeylonTaskUtil {
                 attributes.put(IMarker.CHAR_END, task.startIndex + task.text.length());
                 attributes.put(IMarker.SOURCE_ID, CeylonBuilder.SOURCE);
                 attributes.put(IMarker.USER_EDITABLE, false);
-
-                try {
-                    file.createMarker(CeylonBuilder.TASK_MARKER_ID).setAttributes(attributes);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+                result.add(attributes);
             }
         }
+        return result;
     }
 
     public static List<Task> getTasks(CommonToken token) {
@@ -24,12 +24,13 @@ import org.antlr.runtime.Token;
 import org.antlr.runtime.TokenSource;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.jface.action.Action;
+import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.ITextSelection;
 import org.eclipse.jface.text.TextSelection;
 import org.eclipse.jface.viewers.ISelectionProvider;
 import org.eclipse.ltk.core.refactoring.DocumentChange;
-import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.MultiTextEdit;
 
 import org.eclipse.ceylon.compiler.typechecker.tree.Node;
 import org.eclipse.ceylon.compiler.typechecker.tree.Tree.Body;
@@ -113,14 +114,27 @@ final class FormatAction extends Action {
                 /* inherit = */ false,
                 /* baseDir = */ pc.getProject().getLocation().toOSString());
         
+        // format a copy of the document, and then apply only
+        // the whitespace changes to the document itself
+        String original = document.get();
+        IDocument formatted = new Document(original);
         org.eclipse.ceylon.ide.common.platform.TextChange change = editorJ2C().eclipseFormatAction().format(pc.getParsedRootNode(),
-                pc.getTokens(), new correctJ2C().newDocument(document), document.getLength(),
+                pc.getTokens(), new correctJ2C().newDocument(formatted), formatted.getLength(),
                 new DefaultRegion(ts.getOffset(), ts.getLength()),
                 CeylonStyle.getEclipseWsOptions(document),
                 options);
         
         change.apply();
         
+        MultiTextEdit edit = FormattingEdits.createEdits(0, 
+                original, formatted.get());
+        if (edit.hasChildren()) {
+            DocumentChange documentChange = 
+                    new DocumentChange("Format", document);
+            documentChange.setEdit(edit);
+            EditorUtil.performChange(documentChange);
+        }
+        
         selectionProvider.setSelection(new TextSelection(
                 (int) change.getOffset(),
                 (int) change.getLength()));
@@ -273,9 +287,11 @@ final class FormatAction extends Action {
             final int stopIndex = formattingUnits.get(formattingUnits.size() - 1).endToken.getStopIndex();
             final int from = formatAll ? 0 : startIndex;
             final int length = formatAll ? document.getLength() : stopIndex - startIndex + 1;
-            if (!document.get(from, length).equals(text)) {
+            MultiTextEdit edit = FormattingEdits.createEdits(from, 
+                    document.get(from, length), text);
+            if (edit.hasChildren()) {
                 DocumentChange change = new DocumentChange("Format", document);
-                change.setEdit(new ReplaceEdit(from, length, text));
+                change.setEdit(edit);
                 EditorUtil.performChange(change);
                 if (selected) {
                     selectionProvider.setSelection(new TextSelection(startIndex, text.length()));
@@ -0,0 +1,106 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.code.editor;
+
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+
+/**
+ * Computes the edits which turn a text into its formatted
+ * version, so that formatting a file doesn't replace the
+ * whole file, invalidating every position, annotation and
+ * marker of the document, and leaving a huge undo entry.
+ *
+ * The non-whitespace characters of the two texts are
+ * aligned, and only the runs of whitespace between them
+ * which differ are replaced. If the formatter changed
+ * anything other than whitespace, the rest of the text,
+ * from the first difference on, is replaced at once.
+ */
+public class FormattingEdits {
+
+    /**
+     * Returns the edits which turn the given original text,
+     * starting at the given offset of the document, into
+     * the given formatted text. The returned edit has no
+     * children if the texts are the same.
+     */
+    public static MultiTextEdit createEdits(int offset,
+            String original, String formatted) {
+        MultiTextEdit edit = new MultiTextEdit();
+        int originalEnd = original.length();
+        int formattedEnd = formatted.length();
+        int start = 0;
+        while (start<originalEnd && start<formattedEnd &&
+                original.charAt(start)==formatted.charAt(start)) {
+            start++;
+        }
+        while (originalEnd>start && formattedEnd>start &&
+                original.charAt(originalEnd-1)==
+                    formatted.charAt(formattedEnd-1)) {
+            originalEnd--;
+            formattedEnd--;
+        }
+        int i = start;
+        int j = start;
+        while (i<originalEnd || j<formattedEnd) {
+            int originalWs = skipWhitespace(original, i, originalEnd);
+            int formattedWs = skipWhitespace(formatted, j, formattedEnd);
+            int length = 0;
+            while (originalWs+length<originalEnd &&
+                    formattedWs+length<formattedEnd &&
+                    !Character.isWhitespace(original.charAt(originalWs+length)) &&
+                    original.charAt(originalWs+length)==
+                        formatted.charAt(formattedWs+length)) {
+                length++;
+            }
+            int nextI = originalWs+length;
+            int nextJ = formattedWs+length;
+            boolean different =
+                    (nextI<originalEnd || nextJ<formattedEnd) &&
+                    !isWhitespace(original, nextI, originalEnd) &&
+                    !isWhitespace(formatted, nextJ, formattedEnd);
+            if (different && length==0) {
+                //not just whitespace, so replace everything
+                //from here to the end of the difference
+                edit.addChild(new ReplaceEdit(offset+i, originalEnd-i,
+                        formatted.substring(j, formattedEnd)));
+                break;
+            }
+            if (originalWs-i!=formattedWs-j ||
+                    !original.regionMatches(i, formatted, j, originalWs-i)) {
+                edit.addChild(new ReplaceEdit(offset+i, originalWs-i,
+                        formatted.substring(j, formattedWs)));
+            }
+            if (different) {
+                edit.addChild(new ReplaceEdit(offset+nextI, originalEnd-nextI,
+                        formatted.substring(nextJ, formattedEnd)));
+                break;
+            }
+            i = nextI;
+            j = nextJ;
+        }
+        return edit;
+    }
+
+    private static boolean isWhitespace(String text, int index, int end) {
+        return index<end &&
+                Character.isWhitespace(text.charAt(index));
+    }
+
+    private static int skipWhitespace(String text, int index, int end) {
+        while (index<end &&
+                Character.isWhitespace(text.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+}
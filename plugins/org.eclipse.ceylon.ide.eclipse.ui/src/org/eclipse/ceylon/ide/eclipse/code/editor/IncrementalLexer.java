@@ -0,0 +1,285 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.code.editor;
+
+import static org.eclipse.ceylon.ide.eclipse.util.Nodes.getLexerType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.Token;
+import org.antlr.runtime.TokenSource;
+
+import org.eclipse.ceylon.compiler.typechecker.parser.CeylonInterpolatingLexer;
+import org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer;
+import org.eclipse.ceylon.compiler.typechecker.parser.CeylonParser;
+import org.eclipse.ceylon.compiler.typechecker.util.NewlineFixingStringStream;
+import org.eclipse.ceylon.ide.eclipse.code.parse.TokenRelexer;
+
+/**
+ * Maintains the token list of a document between edits,
+ * relexing only the damaged part of the document.
+ *
+ * After an edit, lexing restarts at the last token before
+ * the edit at which the lexer is in its initial state
+ * (that is, outside any string template), and stops as
+ * soon as the new token stream lines up again with the
+ * old one after the end of the edit. The remaining old
+ * tokens are then copied, with their offsets, lines and
+ * columns shifted.
+ *
+ * It sounds strange, but the tokens must also be parsed,
+ * since the parser retypes the names of annotations and
+ * packages and the annotation strings, which are colored
+ * differently. After an edit, only the toplevel
+ * declarations or imports containing the relexed tokens
+ * are parsed again.
+ */
+public class IncrementalLexer {
+
+    private List<CommonToken> tokens;
+    private String text;
+
+    private boolean pendingEdit;
+    private boolean fullRelex = true;
+    private int editOffset;
+    private int editRemoved;
+    private int editInserted;
+
+    public List<CommonToken> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Record an edit to the document, to be taken into
+     * account by the next call to {@link #update(String)}.
+     */
+    public void documentChanged(int offset, int removed,
+            int inserted) {
+        if (pendingEdit) {
+            //more than one edit since we last lexed,
+            //don't try to be clever
+            fullRelex = true;
+        }
+        else {
+            pendingEdit = true;
+            editOffset = offset;
+            editRemoved = removed;
+            editInserted = inserted;
+        }
+    }
+
+    /**
+     * Forget the current tokens, forcing the whole
+     * document to be lexed by the next call to
+     * {@link #update(String)}.
+     */
+    public void invalidate() {
+        fullRelex = true;
+    }
+
+    /**
+     * Bring the token list up to date with the given
+     * text of the document.
+     */
+    public void update(String text) {
+        if (fullRelex || tokens==null) {
+            lex(text);
+        }
+        else if (pendingEdit) {
+            if (this.text.length()+editInserted-editRemoved
+                    ==text.length()) {
+                relex(text);
+            }
+            else {
+                lex(text);
+            }
+        }
+        else if (!text.equals(this.text)) {
+            //the text changed without telling us, for
+            //example by a set() with text of the same
+            //length, or an edit we didn't see
+            lex(text);
+        }
+        pendingEdit = false;
+        fullRelex = false;
+        editOffset = 0;
+        editRemoved = 0;
+        editInserted = 0;
+        this.text = text;
+    }
+
+    private void lex(String text) {
+        ANTLRStringStream input =
+                new NewlineFixingStringStream(text);
+        TokenSource source =
+                new CeylonInterpolatingLexer(
+                        new CeylonLexer(input));
+        List<CommonToken> result =
+                new ArrayList<CommonToken>();
+        while (true) {
+            CommonToken token =
+                    (CommonToken) source.nextToken();
+            token.setTokenIndex(result.size());
+            result.add(token);
+            if (token.getType()==Token.EOF) {
+                break;
+            }
+        }
+        parse(result, 0, result.size());
+        tokens = result;
+    }
+
+    private void relex(String text) {
+        TokenRelexer relexer =
+                new TokenRelexer(tokens, text,
+                        editOffset, editRemoved, editInserted);
+        int restart = relexer.getRestart();
+        List<CommonToken> relexed = relexer.getRelexed();
+        List<CommonToken> shifted = relexer.getShiftedTokens();
+
+        List<CommonToken> result =
+                new ArrayList<CommonToken>
+                    (restart + relexed.size() + shifted.size());
+        result.addAll(tokens.subList(0, restart));
+        result.addAll(relexed);
+        result.addAll(shifted);
+        for (int i=restart; i<result.size(); i++) {
+            result.get(i).setTokenIndex(i);
+        }
+
+        int[] chunk = getToplevelChunk(result,
+                restart, restart+relexed.size());
+        for (int i=chunk[0]; i<restart; i++) {
+            //don't retype the tokens of the previous
+            //token list, which may still be in use
+            CommonToken copy = new CommonToken(result.get(i));
+            result.set(i, copy);
+        }
+        parse(result, chunk[0], chunk[1]);
+        tokens = result;
+    }
+
+    /**
+     * Returns the range of tokens, made of whole toplevel
+     * declarations, imports, and descriptors, containing
+     * the given range of tokens. The boundaries are found
+     * by brace depth, and a chunk ends after a semicolon or
+     * closing brace at depth zero, unless it's followed by
+     * something which continues the statement. If the code
+     * doesn't parse, the chunks might not line up with the
+     * toplevel declarations, but the parser recovers from
+     * the errors as it would in a full parse.
+     */
+    private static int[] getToplevelChunk(List<CommonToken> tokens,
+            int from, int to) {
+        int start = 0;
+        int end = tokens.size();
+        int depth = 0;
+        int previous = -1;
+        for (int i=0; i<tokens.size(); i++) {
+            CommonToken token = tokens.get(i);
+            int type = token.getType();
+            if (token.getChannel()==Token.HIDDEN_CHANNEL) {
+                continue;
+            }
+            if (depth==0 &&
+                    (previous==CeylonLexer.SEMICOLON ||
+                     previous==CeylonLexer.RBRACE) &&
+                    startsChunk(type)) {
+                if (i<=from) {
+                    start = i;
+                }
+                else if (i>=to) {
+                    end = i;
+                    break;
+                }
+            }
+            switch (type) {
+            case CeylonLexer.LBRACE:
+                depth++;
+                break;
+            case CeylonLexer.RBRACE:
+                if (depth>0) depth--;
+                break;
+            }
+            previous = type;
+        }
+        return new int[] { start, end };
+    }
+
+    private static boolean startsChunk(int type) {
+        switch (type) {
+        case Token.EOF:
+        case CeylonLexer.SEMICOLON:
+        case CeylonLexer.COMMA:
+        case CeylonLexer.RPAREN:
+        case CeylonLexer.RBRACKET:
+        case CeylonLexer.RBRACE:
+        case CeylonLexer.MEMBER_OP:
+        case CeylonLexer.SAFE_MEMBER_OP:
+        case CeylonLexer.SPREAD_OP:
+        case CeylonLexer.ELSE_CLAUSE:
+        case CeylonLexer.THEN_CLAUSE:
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    /**
+     * Parse the given range of tokens, a sequence of whole
+     * toplevel declarations, letting the parser retype the
+     * annotation names, package names, and annotation
+     * strings.
+     */
+    private static void parse(final List<CommonToken> tokens,
+            final int from, final int to) {
+        for (int i=from; i<to; i++) {
+            CommonToken token = tokens.get(i);
+            token.setType(getLexerType(token));
+        }
+        TokenSource source = new TokenSource() {
+            int i = from;
+            @Override
+            public Token nextToken() {
+                if (i<to) {
+                    return tokens.get(i++);
+                }
+                else {
+                    return new CommonToken(Token.EOF, "");
+                }
+            }
+            @Override
+            public String getSourceName() {
+                return null;
+            }
+        };
+        CeylonParser parser =
+                new CeylonParser(new CommonTokenStream(source));
+        try {
+            parser.compilationUnit();
+        }
+        catch (RecognitionException e) {
+            throw new RuntimeException(e);
+        }
+        finally {
+            //the token stream renumbered the tokens
+            for (int i=from; i<to; i++) {
+                tokens.get(i).setTokenIndex(i);
+            }
+        }
+    }
+
+}
@@ -15,7 +15,11 @@ import static org.eclipse.ceylon.ide.eclipse.code.parse.TreeLifecycleListener.St
 import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.PROBLEM_MARKER_ID;
 import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.TASK_MARKER_ID;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.CoreException;
@@ -23,6 +27,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.source.Annotation;
 import org.eclipse.jface.text.source.IAnnotationModel;
+import org.eclipse.jface.text.source.IAnnotationModelExtension;
 import org.eclipse.ui.texteditor.MarkerAnnotation;
 
 import org.eclipse.ceylon.ide.eclipse.code.parse.CeylonParseController;
@@ -58,23 +63,59 @@ class MarkerAnnotationUpdater implements TreeLifecycleListener {
                     editor.getDocumentProvider()
                         .getAnnotationModel(
                                 editor.getEditorInput());
+            if (model==null) {
+                return;
+            }
+            //index the positions of the parse and todo
+            //annotations, and collect the marker annotations
+            Set<Position> problemPositions = 
+                    new HashSet<Position>();
+            Set<Position> taskPositions = 
+                    new HashSet<Position>();
+            List<MarkerAnnotation> markerAnnotations = 
+                    new ArrayList<MarkerAnnotation>();
             for (Iterator<Annotation> iter = 
                         model.getAnnotationIterator(); 
                     iter.hasNext();) {
                 Annotation ann = iter.next();
                 if (ann instanceof MarkerAnnotation) {
-                    MarkerAnnotation ma = 
-                            (MarkerAnnotation) ann;
-                    IMarker marker = ma.getMarker();
-                    try {
-                        String type = marker.getType();
-                        boolean isProblemMarker = 
-                                type.equals(PROBLEM_MARKER_ID);
-//                        boolean isModuleDependencyMarker = 
-//                                type.equals(MODULE_DEPENDENCY_PROBLEM_MARKER_ID);
-                        boolean isTaskMarker = 
-                                type.equals(TASK_MARKER_ID);
-                        
+                    markerAnnotations.add((MarkerAnnotation) ann);
+                }
+                else {
+                    Set<Position> positions;
+                    if (isParseAnnotation(ann)) {
+                        positions = problemPositions;
+                    }
+                    else if (isTodoAnnotation(ann)) {
+                        positions = taskPositions;
+                    }
+                    else {
+                        continue;
+                    }
+                    Position position = model.getPosition(ann);
+                    if (position!=null) {
+                        positions.add(new Position(
+                                position.offset, 
+                                position.length));
+                    }
+                }
+            }
+            
+            List<Annotation> staleAnnotations = 
+                    new ArrayList<Annotation>();
+            for (MarkerAnnotation ma: markerAnnotations) {
+                IMarker marker = ma.getMarker();
+                try {
+                    String type = marker.getType();
+                    boolean isProblemMarker = 
+                            type.equals(PROBLEM_MARKER_ID);
+//                    boolean isModuleDependencyMarker = 
+//                            type.equals(MODULE_DEPENDENCY_PROBLEM_MARKER_ID);
+                    boolean isTaskMarker = 
+                            type.equals(TASK_MARKER_ID);
+                    
+                    if (isProblemMarker //&& !isModuleDependencyMarker 
+                            || isTaskMarker) {
                         Integer markerStart = 
                                 (Integer) 
                                     marker.getAttribute(
@@ -87,38 +128,33 @@ class MarkerAnnotationUpdater implements TreeLifecycleListener {
                             continue;
                         }
                         
-                        if (isProblemMarker //&& !isModuleDependencyMarker 
-                                || isTaskMarker) {
-                            boolean found = false;
-                            for (Iterator<Annotation> iter2 = 
-                                        model.getAnnotationIterator(); 
-                                    iter2.hasNext();) {
-                                Annotation ann2 = iter2.next();
-                                boolean problem = 
-                                        isProblemMarker && 
-                                        isParseAnnotation(ann2);
-                                boolean task = 
-                                        isTaskMarker && 
-                                        isTodoAnnotation(ann2);
-                                if (problem || task) {
-                                    Position position = 
-                                            model.getPosition(ann2);
-                                    if (markerStart.intValue()
-                                            == position.offset &&
-                                        markerEnd.intValue()
-                                            == position.offset
-                                             + position.length) {
-                                        found=true;
-                                        break;
-                                    }
-                                }
-                            }
-                            if (!found) {
-                                model.removeAnnotation(ann);
-                            }
+                        Position position = 
+                                new Position(markerStart, 
+                                        markerEnd-markerStart);
+                        Set<Position> positions = 
+                                isProblemMarker ? 
+                                        problemPositions : 
+                                        taskPositions;
+                        if (!positions.contains(position)) {
+                            staleAnnotations.add(ma);
                         }
                     }
-                    catch (CoreException e) {
+                }
+                catch (CoreException e) {
+                    staleAnnotations.add(ma);
+                }
+            }
+            
+            if (!staleAnnotations.isEmpty()) {
+                if (model instanceof IAnnotationModelExtension) {
+                    ((IAnnotationModelExtension) model)
+                        .replaceAnnotations(
+                            staleAnnotations.toArray(
+                                    new Annotation[staleAnnotations.size()]), 
+                            null);
+                }
+                else {
+                    for (Annotation ann: staleAnnotations) {
                         model.removeAnnotation(ann);
                     }
                 }
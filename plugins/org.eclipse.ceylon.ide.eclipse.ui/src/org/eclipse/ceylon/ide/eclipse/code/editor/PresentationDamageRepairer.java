@@ -17,10 +17,7 @@ import static org.eclipse.ceylon.ide.eclipse.util.Nodes.getTokenIndexAtCharacter
 import java.util.Iterator;
 import java.util.List;
 
-import org.antlr.runtime.ANTLRStringStream;
 import org.antlr.runtime.CommonToken;
-import org.antlr.runtime.CommonTokenStream;
-import org.antlr.runtime.RecognitionException;
 import org.antlr.runtime.Token;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.BadPositionCategoryException;
@@ -40,15 +37,15 @@ import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.graphics.Color;
 
-import org.eclipse.ceylon.compiler.typechecker.parser.CeylonInterpolatingLexer;
 import org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer;
 import org.eclipse.ceylon.compiler.typechecker.parser.CeylonParser;
-import org.eclipse.ceylon.compiler.typechecker.util.NewlineFixingStringStream;
 
 class PresentationDamageRepairer implements IPresentationDamager, 
         IPresentationRepairer {
     
     private volatile List<? extends Token> tokens;
+    private final IncrementalLexer lexer = 
+            new IncrementalLexer();
     private final CeylonEditor editor;
     private IDocument document;
     
@@ -61,6 +58,11 @@ class PresentationDamageRepairer implements IPresentationDamager,
             DocumentEvent event, 
             boolean documentPartitioningChanged) {
 
+        String text = event.getText();
+        lexer.documentChanged(event.getOffset(), 
+                event.getLength(), 
+                text==null ? 0 : text.length());
+        
         if (tokens==null) {
             //parse and color the whole document the first time!
             return partition;
@@ -205,28 +207,12 @@ class PresentationDamageRepairer implements IPresentationDamager,
     
     public void createPresentation(TextPresentation presentation, 
             ITypedRegion damage) {
-        ANTLRStringStream input = 
-                new NewlineFixingStringStream(document.get());
-        CeylonLexer lexer = 
-                new CeylonLexer(input);
-        CommonTokenStream tokenStream = 
-                new CommonTokenStream(
-                        new CeylonInterpolatingLexer(lexer));
-        
-        CeylonParser parser = 
-                new CeylonParser(tokenStream);
-        try {
-            parser.compilationUnit();
-        }
-        catch (RecognitionException e) {
-            throw new RuntimeException(e);
-        }
-        
         //it sounds strange, but it's better to parse
         //and cache here than in getDamageRegion(),
         //because these methods get called in strange
         //orders
-        tokens = tokenStream.getTokens();
+        lexer.update(document.get());
+        tokens = lexer.getTokens();
         
         highlightTokens(presentation, damage);
     }
@@ -370,6 +356,7 @@ class PresentationDamageRepairer implements IPresentationDamager,
     
     public void setDocument(IDocument document) {
         this.document = document;
+        lexer.invalidate();
     }
     
 }
\ No newline at end of file
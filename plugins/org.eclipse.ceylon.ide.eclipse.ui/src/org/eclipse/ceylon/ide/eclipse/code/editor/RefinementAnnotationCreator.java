@@ -14,6 +14,7 @@ import static org.eclipse.ceylon.ide.eclipse.code.parse.TreeLifecycleListener.St
 import static org.eclipse.ceylon.ide.eclipse.ui.CeylonPlugin.PLUGIN_ID;
 import static org.eclipse.ceylon.ide.eclipse.util.Nodes.getIdentifyingNode;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -25,11 +26,12 @@ import org.eclipse.jface.text.source.IAnnotationModel;
 import org.eclipse.ui.IEditorInput;
 
 import org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer;
+import org.eclipse.ceylon.compiler.typechecker.tree.Message;
 import org.eclipse.ceylon.compiler.typechecker.tree.Node;
 import org.eclipse.ceylon.compiler.typechecker.tree.Tree;
-import org.eclipse.ceylon.compiler.typechecker.tree.Visitor;
 import org.eclipse.ceylon.ide.eclipse.code.parse.CeylonParseController;
-import org.eclipse.ceylon.ide.eclipse.code.parse.TreeLifecycleListener;
+import org.eclipse.ceylon.ide.eclipse.code.parse.FusedTreeVisitor;
+import org.eclipse.ceylon.ide.eclipse.code.parse.TreeNodeListener;
 import org.eclipse.ceylon.ide.common.util.types_;
 import org.eclipse.ceylon.model.typechecker.model.Declaration;
 import org.eclipse.ceylon.model.typechecker.model.Unit;
@@ -41,7 +43,7 @@ import org.eclipse.ceylon.model.typechecker.model.Unit;
  *
  */
 public class RefinementAnnotationCreator 
-        implements TreeLifecycleListener {
+        implements TreeNodeListener {
     
     public static final String TODO_ANNOTATION_TYPE = 
             PLUGIN_ID + ".todo";
@@ -49,8 +51,16 @@ public class RefinementAnnotationCreator
 //            PLUGIN_ID + ".run";
 
 
+    @SuppressWarnings("unchecked")
+    private static final List<Class<? extends Node>> NODE_TYPES =
+            Arrays.<Class<? extends Node>>asList(
+                    Tree.Declaration.class,
+                    Tree.SpecifierStatement.class);
+
     private CeylonEditor editor;
     
+    private IAnnotationModel model;
+    
     public RefinementAnnotationCreator(CeylonEditor editor) {
         this.editor = editor;
     }
@@ -64,27 +74,37 @@ public class RefinementAnnotationCreator
     public void update(
             CeylonParseController parseController, 
             IProgressMonitor monitor) {
+        FusedTreeVisitor.update(this, parseController, monitor);
+    }
+    
+    @Override
+    public List<Class<? extends Node>> getNodeTypes() {
+        return NODE_TYPES;
+    }
+    
+    @Override
+    public Tree.CompilationUnit beginVisit(
+            CeylonParseController parseController, 
+            IProgressMonitor monitor) {
         if (editor.isBackgroundParsingPaused() || 
                 monitor.isCanceled()) {
-            return;
+            return null;
         }
         
         final CeylonParseController cpc = parseController;
         if (cpc.getStage().ordinal() >= getStage().ordinal()) {
             final Tree.CompilationUnit rootNode = 
                     cpc.getLastCompilationUnit();
-            List<CommonToken> tokens = cpc.getTokens();
             if (rootNode == null) {
-                return;
+                return null;
             }
             
             IEditorInput editorInput = 
                     editor.getEditorInput();
-            final IAnnotationModel model =
-                    editor.getDocumentProvider()
+            model = editor.getDocumentProvider()
                         .getAnnotationModel(editorInput);
             if (model==null) {
-                return;
+                return null;
             }
             
             for (Iterator<Annotation> iter = 
@@ -98,53 +118,68 @@ public class RefinementAnnotationCreator
                 }
             }
             
-            new Visitor() {
-                @Override
-                public void visit(Tree.Declaration that) {
-                    super.visit(that);
-                    addRefinementAnnotation(
-                            model, that, 
-                            that.getIdentifier(), 
-                            that.getDeclarationModel());
-                }
-                @Override
-                public void visit(Tree.SpecifierStatement that) {
-                    super.visit(that);
-                    if (that.getRefinement()) {
-                        addRefinementAnnotation(
-                                model, that, 
-                                that.getBaseMemberExpression(), 
-                                that.getDeclaration());
-                    }
-                }
-                //Disable until we have a good icon
-                /*@Override
-                public void visit(Tree.AnyMethod that) {
-                    super.visit(that);
-                    if (!that.getParameterLists().isEmpty()) {
-                        addRunAnnotation(model, that, 
-                                that.getDeclarationModel(), 
-                                that.getParameterLists()
-                                    .get(0));
-                    }
-                }
-                @Override
-                public void visit(Tree.ClassDefinition that) {
-                    super.visit(that);
-                    addRunAnnotation(model, that, 
-                            that.getDeclarationModel(), 
-                            that.getParameterList());
-                }*/
-            }.visit(rootNode);
-            
-            for (CommonToken token : tokens) {
-                int type = token.getType();
-                if (type == CeylonLexer.LINE_COMMENT || 
-                    type == CeylonLexer.MULTI_COMMENT) {
-                    addTaskAnnotation(token, model);
-                }
+            return rootNode;
+        }
+        else {
+            return null;
+        }
+    }
+    
+    @Override
+    public void visitNode(Node node) {
+        if (node instanceof Tree.Declaration) {
+            Tree.Declaration that = (Tree.Declaration) node;
+            addRefinementAnnotation(
+                    model, that, 
+                    that.getIdentifier(), 
+                    that.getDeclarationModel());
+        }
+        else if (node instanceof Tree.SpecifierStatement) {
+            Tree.SpecifierStatement that = 
+                    (Tree.SpecifierStatement) node;
+            if (that.getRefinement()) {
+                addRefinementAnnotation(
+                        model, that, 
+                        that.getBaseMemberExpression(), 
+                        that.getDeclaration());
+            }
+        }
+        //Disable until we have a good icon
+        /*if (node instanceof Tree.AnyMethod) {
+            Tree.AnyMethod that = (Tree.AnyMethod) node;
+            if (!that.getParameterLists().isEmpty()) {
+                addRunAnnotation(model, that, 
+                        that.getDeclarationModel(), 
+                        that.getParameterLists()
+                            .get(0));
+            }
+        }
+        if (node instanceof Tree.ClassDefinition) {
+            Tree.ClassDefinition that = 
+                    (Tree.ClassDefinition) node;
+            addRunAnnotation(model, that, 
+                    that.getDeclarationModel(), 
+                    that.getParameterList());
+        }*/
+    }
+    
+    @Override
+    public void handleMessage(int startOffset, int endOffset,
+            int startCol, int startLine, Message error) {}
+    
+    @Override
+    public void endVisit(
+            CeylonParseController parseController, 
+            IProgressMonitor monitor) {
+        List<CommonToken> tokens = parseController.getTokens();
+        for (CommonToken token : tokens) {
+            int type = token.getType();
+            if (type == CeylonLexer.LINE_COMMENT || 
+                type == CeylonLexer.MULTI_COMMENT) {
+                addTaskAnnotation(token, model);
             }
         }
+        model = null;
     }
     
     //Disable until we have a good icon
@@ -0,0 +1,202 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.code.hover;
+
+import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.getModelGeneration;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.ceylon.ide.common.model.CeylonBinaryUnit;
+import org.eclipse.ceylon.ide.common.model.ExternalSourceFile;
+import org.eclipse.ceylon.model.typechecker.model.Scope;
+import org.eclipse.ceylon.model.typechecker.model.Unit;
+
+/**
+ * Remembers the HTML rendered by {@link DocumentationHover}
+ * for the documentation of declarations, packages and
+ * modules, so that hovering repeatedly over the same
+ * reference, or moving the selection back and forth in
+ * the Open Declaration dialog, doesn't render the same
+ * documentation over and over again.
+ *
+ * A rendering is identified by the model elements and the
+ * AST node it was rendered for, compared by identity,
+ * along with the style sheet of the page. The key only
+ * holds the elements weakly, so that the cache doesn't
+ * keep the parse controller of a closed editor, or the
+ * model and AST of a previous typecheck, alive. A
+ * rendering is only reused as long as the builder hasn't
+ * typechecked anything since, according to the model
+ * generation of
+ * {@link org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder}.
+ *
+ * The markdown of the documentation of declarations of
+ * Ceylon archives is also remembered, for as long as the
+ * archive's units are alive, since it can't change.
+ */
+class DocumentationCache {
+
+    private static final int SIZE = 100;
+
+    private static final Map<Key, String> documentation =
+            new LinkedHashMap<Key, String>(SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<Key, String> eldest) {
+            return size() > SIZE;
+        }
+    };
+
+    private static final Map<Unit, Map<String, String>> markdown =
+            new WeakHashMap<Unit, Map<String, String>>();
+
+    static final class Key {
+        private final WeakReference<?>[] elements;
+        private final String styleSheet;
+        private final long generation;
+        private final int hash;
+
+        /**
+         * @param styleSheet the style sheet of the page, or
+         *        null if the rendering isn't a page
+         * @param elements the model elements and nodes the
+         *        rendering depends on, compared by identity
+         */
+        Key(String styleSheet, Object... elements) {
+            this.elements = new WeakReference<?>[elements.length];
+            this.styleSheet = styleSheet;
+            this.generation = getModelGeneration();
+            int hash = (int) generation;
+            for (int i=0; i<elements.length; i++) {
+                Object element = elements[i];
+                if (element!=null) {
+                    this.elements[i] = 
+                            new WeakReference<Object>(element);
+                }
+                hash = hash*31 +
+                        System.identityHashCode(element);
+            }
+            this.hash = hash;
+        }
+
+        private Object element(int i) {
+            WeakReference<?> ref = elements[i];
+            return ref==null ? null : ref.get();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj==this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            if (generation!=that.generation ||
+                    hash!=that.hash ||
+                    elements.length!=that.elements.length) {
+                return false;
+            }
+            for (int i=0; i<elements.length; i++) {
+                Object element = element(i);
+                if (element!=that.element(i) ||
+                        //an element was collected
+                        element==null && elements[i]!=null) {
+                    return false;
+                }
+            }
+            return styleSheet==null ?
+                    that.styleSheet==null :
+                    styleSheet.equals(that.styleSheet);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            Object[] result = new Object[elements.length];
+            for (int i=0; i<elements.length; i++) {
+                result[i] = element(i);
+            }
+            return Arrays.toString(result);
+        }
+    }
+
+    static String get(Key key) {
+        synchronized (documentation) {
+            return documentation.get(key);
+        }
+    }
+
+    static void put(Key key, String html) {
+        if (html!=null) {
+            synchronized (documentation) {
+                documentation.put(key, html);
+            }
+        }
+    }
+
+    /**
+     * Returns the remembered markdown rendering of the
+     * given text, if the unit belongs to a Ceylon archive.
+     */
+    static String getMarkdown(String text, Scope linkScope,
+            Unit unit) {
+        if (!isArchiveUnit(unit)) {
+            return null;
+        }
+        synchronized (markdown) {
+            Map<String, String> texts = markdown.get(unit);
+            return texts==null ? null :
+                texts.get(markdownKey(text, linkScope));
+        }
+    }
+
+    static void putMarkdown(String text, Scope linkScope,
+            Unit unit, String html) {
+        if (!isArchiveUnit(unit)) {
+            return;
+        }
+        synchronized (markdown) {
+            Map<String, String> texts = markdown.get(unit);
+            if (texts==null) {
+                texts = new HashMap<String, String>();
+                markdown.put(unit, texts);
+            }
+            texts.put(markdownKey(text, linkScope), html);
+        }
+    }
+
+    private static boolean isArchiveUnit(Unit unit) {
+        return unit instanceof ExternalSourceFile ||
+                unit instanceof CeylonBinaryUnit;
+    }
+
+    /**
+     * The scope is identified by name, since the texts
+     * must not refer back to the unit.
+     */
+    private static String markdownKey(String text,
+            Scope linkScope) {
+        String scope = linkScope==null ? "" :
+            linkScope.getQualifiedNameString();
+        return scope + '\n' + text;
+    }
+
+}
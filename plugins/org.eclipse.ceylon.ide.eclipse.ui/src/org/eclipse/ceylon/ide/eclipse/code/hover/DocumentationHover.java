@@ -312,7 +312,8 @@ public class DocumentationHover extends SourceInfoHover {
         String result = 
                 getExpressionHoverText(editor, hoverRegion);
         if (result==null) {
-            result = getHoverText(editor, hoverRegion);
+            result = getHoverText(editor, hoverRegion,
+                    newHoverMonitor());
         }
         return result;
     }
@@ -330,7 +331,8 @@ public class DocumentationHover extends SourceInfoHover {
             return new CeylonBrowserInput(null, null, result);
         }
         else {
-            result = getHoverText(editor, hoverRegion);
+            result = getHoverText(editor, hoverRegion,
+                    newHoverMonitor());
             if (result!=null) {
                 return new CeylonBrowserInput(null, 
                         getModel(editor, hoverRegion), 
@@ -402,7 +404,7 @@ public class DocumentationHover extends SourceInfoHover {
     }
     
     static String getHoverText(CeylonEditor editor,
-            IRegion hoverRegion) {
+            IRegion hoverRegion, IProgressMonitor monitor) {
         CeylonParseController parseController = 
                 editor.getParseController();
 
@@ -426,7 +428,7 @@ public class DocumentationHover extends SourceInfoHover {
                 Referenceable model = 
                         getReferencedDeclaration(node);
                 return getDocumentationHoverText(model, 
-                        editor, node, null);
+                        editor, node, monitor);
             }
         }
         else {
@@ -853,7 +855,7 @@ public class DocumentationHover extends SourceInfoHover {
         if (model instanceof Declaration) {
             Declaration dec = (Declaration) model;
             return getDocumentationFor(parseController, dec, 
-                    node, null, null);
+                    node, null, monitor);
         }
         else if (model instanceof Package) {
             Package dec = (Package) model;
@@ -952,16 +954,26 @@ public class DocumentationHover extends SourceInfoHover {
 
     public static String getDocumentationFor(
             CeylonParseController controller, Package pack) {
+        String styleSheet = HTML.getStyleSheet();
+        DocumentationCache.Key key = 
+                new DocumentationCache.Key(styleSheet, 
+                        controller, pack);
+        String result = DocumentationCache.get(key);
+        if (result!=null) {
+            return result;
+        }
         StringBuilder buffer = new StringBuilder();
-        insertPageProlog(buffer, 0, HTML.getStyleSheet());
+        insertPageProlog(buffer, 0, styleSheet);
         addMainPackageDescription(pack, buffer);
         addPackageDocumentation(controller, pack, buffer);
         addAdditionalPackageInfo(buffer, pack);
         addPackageMembers(buffer, pack);
         addPackageModuleInfo(pack, buffer);
-        insertPageProlog(buffer, 0, HTML.getStyleSheet());
+        insertPageProlog(buffer, 0, styleSheet);
         addPageEpilog(buffer);
-        return buffer.toString();
+        result = buffer.toString();
+        DocumentationCache.put(key, result);
+        return result;
         
     }
 
@@ -1152,15 +1164,25 @@ public class DocumentationHover extends SourceInfoHover {
 
     public static String getDocumentationFor(
             CeylonParseController controller, Module mod) {
+        String styleSheet = HTML.getStyleSheet();
+        DocumentationCache.Key key = 
+                new DocumentationCache.Key(styleSheet, 
+                        controller, mod);
+        String result = DocumentationCache.get(key);
+        if (result!=null) {
+            return result;
+        }
         StringBuilder buffer = new StringBuilder();
-        insertPageProlog(buffer, 0, HTML.getStyleSheet());
+        insertPageProlog(buffer, 0, styleSheet);
         addMainModuleDescription(mod, buffer);
         addAdditionalModuleInfo(buffer, mod);
         addModuleDocumentation(controller, mod, buffer);
         addModuleMembers(buffer, mod);
-        insertPageProlog(buffer, 0, HTML.getStyleSheet());
+        insertPageProlog(buffer, 0, styleSheet);
         addPageEpilog(buffer);
-        return buffer.toString();
+        result = buffer.toString();
+        DocumentationCache.put(key, result);
+        return result;
     }
 
     private static void addAdditionalModuleInfo(
@@ -1333,6 +1355,15 @@ public class DocumentationHover extends SourceInfoHover {
         Unit unit = controller==null ? null : 
             controller.getLastCompilationUnit().getUnit();
         
+        String styleSheet = HTML.getStyleSheet();
+        DocumentationCache.Key key = 
+                new DocumentationCache.Key(styleSheet, 
+                        dec, node, pr, controller, unit);
+        String result = DocumentationCache.get(key);
+        if (result!=null) {
+            return result;
+        }
+        
         Unit declarationUnit = dec.getUnit();
         if (declarationUnit instanceof CeylonUnit) {
         	CeylonUnit cu = (CeylonUnit) declarationUnit;
@@ -1342,8 +1373,12 @@ public class DocumentationHover extends SourceInfoHover {
             }
         }
         	
+        if (isCanceled(monitor)) {
+            return null;
+        }
+        
         StringBuilder buffer = new StringBuilder();
-        insertPageProlog(buffer, 0, HTML.getStyleSheet());
+        insertPageProlog(buffer, 0, styleSheet);
         addMainDescription(buffer, dec, node, pr, controller, unit);
         boolean obj = addInheritanceInfo(dec, node, pr, buffer, unit);
         addContainerInfo(dec, pr, node, buffer);
@@ -1351,6 +1386,11 @@ public class DocumentationHover extends SourceInfoHover {
             addPackageInfo(dec, buffer);
         }
         boolean hasDoc = addDoc(dec, node, buffer, monitor);
+        if (isCanceled(monitor)) {
+            //the hover is gone, and the documentation
+            //might be incomplete
+            return null;
+        }
         addRefinementInfo(dec, pr, node, buffer, hasDoc, unit);
         addReturnType(dec, buffer, node, pr, obj, unit);
         addParameters(controller, dec, node, pr, buffer, unit);
@@ -1362,7 +1402,13 @@ public class DocumentationHover extends SourceInfoHover {
             addUnitInfo(dec, buffer);
         }
         addPageEpilog(buffer);
-        return buffer.toString();
+        result = buffer.toString();
+        DocumentationCache.put(key, result);
+        return result;
+    }
+    
+    private static boolean isCanceled(IProgressMonitor monitor) {
+        return monitor!=null && monitor.isCanceled();
     }
 
     private static void addMainDescription(StringBuilder buffer,
@@ -2399,6 +2445,13 @@ public class DocumentationHover extends SourceInfoHover {
             return text;
         }
         
+        String result = 
+                DocumentationCache.getMarkdown(text, 
+                        linkScope, unit);
+        if (result!=null) {
+            return result;
+        }
+        
         Builder builder = 
                 Configuration.builder()
                     .forceExtentedProfile();
@@ -2409,7 +2462,10 @@ public class DocumentationHover extends SourceInfoHover {
         else {
             builder.setSpecialLinkEmitter(new UnlinkedSpanEmitter());
         }
-        return Processor.process(text, builder.build());
+        result = Processor.process(text, builder.build());
+        DocumentationCache.putMarkdown(text, linkScope, unit, 
+                result);
+        return result;
     }
     
     private static Scope resolveScope(Declaration decl) {
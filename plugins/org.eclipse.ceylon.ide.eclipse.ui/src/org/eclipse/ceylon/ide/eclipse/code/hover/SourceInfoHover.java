@@ -12,6 +12,8 @@ package org.eclipse.ceylon.ide.eclipse.code.hover;
 import static org.eclipse.ceylon.ide.eclipse.util.Nodes.findNode;
 import static java.lang.Character.isJavaIdentifierPart;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
@@ -46,10 +48,25 @@ public abstract class SourceInfoHover
 
     protected CeylonEditor editor;
 
+    private IProgressMonitor hoverMonitor;
+
     public SourceInfoHover(CeylonEditor editor) {
         this.editor = editor;
     }
 
+    /**
+     * Returns a monitor for computing the info of a new
+     * hover, canceling the monitor of the previous hover,
+     * since the mouse has moved away from it.
+     */
+    protected synchronized IProgressMonitor newHoverMonitor() {
+        if (hoverMonitor!=null) {
+            hoverMonitor.setCanceled(true);
+        }
+        hoverMonitor = new NullProgressMonitor();
+        return hoverMonitor;
+    }
+
     public IRegion getHoverRegion(ITextViewer textViewer, int offset) {
         return findWord(textViewer, offset);
     }
@@ -12,6 +12,7 @@ package org.eclipse.ceylon.ide.eclipse.code.imports;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.ceylon.ide.eclipse.core.builder.PackageNameIndex;
 import org.eclipse.ceylon.model.typechecker.model.Declaration;
 import org.eclipse.ceylon.model.typechecker.model.Module;
 import org.eclipse.ceylon.model.typechecker.model.Package;
@@ -54,10 +55,14 @@ final class ImportProposalsVisitor extends Visitor {
         List<Declaration> possibles = new ArrayList<Declaration>();
         Module module = cu.getUnit().getPackage().getModule();
         for (Package p: module.getAllVisiblePackages()) {
-            Declaration d = p.getMember(name, null, false); //TODO: pass sig
-            if (d!=null && d.isToplevel() && 
-                    d.isShared() && !d.isAnonymous()) {
-                possibles.add(d);
+            for (Declaration d: 
+                    PackageNameIndex.getDeclarations(p, name)) {
+                if (d.isToplevel() && d.isShared() && 
+                        !d.isAnonymous() && 
+                        !d.isNativeImplementation()) {
+                    possibles.add(d);
+                    break;
+                }
             }
         }
         Declaration prop;
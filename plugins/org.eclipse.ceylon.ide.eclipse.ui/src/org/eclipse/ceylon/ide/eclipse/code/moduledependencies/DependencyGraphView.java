@@ -26,8 +26,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IFile;
@@ -150,6 +152,78 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
     
     static final String ID = PLUGIN_ID + ".view.DependencyGraphView";
 
+    /**
+     * Graphs with more modules than this are collapsed to
+     * the neighbourhood of a single module.
+     */
+    private static final int LARGE_GRAPH_MODULES = 100;
+
+    /**
+     * Stands for the direct dependencies, or the direct 
+     * referencing modules, of a module of a collapsed graph 
+     * which aren't shown.
+     */
+    static final class HiddenModules {
+        final ModuleReference module;
+        final boolean dependencies;
+        final int count;
+        
+        HiddenModules(ModuleReference module, 
+                boolean dependencies, int count) {
+            this.module = module;
+            this.dependencies = dependencies;
+            this.count = count;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof HiddenModules) {
+                HiddenModules that = (HiddenModules) obj;
+                return module.equals(that.module) &&
+                        dependencies == that.dependencies;
+            }
+            return false;
+        }
+        
+        @Override
+        public int hashCode() {
+            return module.hashCode() * 2 + (dependencies ? 1 : 0);
+        }
+    }
+    
+    /**
+     * Connects a module of a collapsed graph to its 
+     * {@link HiddenModules}.
+     */
+    static final class HiddenModulesConnection {
+        final HiddenModules hiddenModules;
+        
+        HiddenModulesConnection(HiddenModules hiddenModules) {
+            this.hiddenModules = hiddenModules;
+        }
+        
+        Object getSource() {
+            return hiddenModules.dependencies ? 
+                    hiddenModules.module : hiddenModules;
+        }
+        
+        Object getTarget() {
+            return hiddenModules.dependencies ? 
+                    hiddenModules : hiddenModules.module;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof HiddenModulesConnection &&
+                    hiddenModules.equals(((HiddenModulesConnection) obj).hiddenModules);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hiddenModules.hashCode();
+        }
+    }
+
     private IProject project;
     private Map<String, IProject> projectMap = new ConcurrentHashMap<String, IProject>();
     
@@ -160,8 +234,16 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
     private Combo projectCombo;
     private Combo viewCombo;
     private Image overridesImage = null;
-
+    private GraphLayoutJob layoutJob = null;
     
+    /**
+     * The module whose neighbourhood is shown, when the 
+     * graph is collapsed, or null if all the modules are 
+     * shown.
+     */
+    private ModuleReference focus = null;
+    
+
     public void setProject(IProject project) {
         if (project!=null) {
             this.project = project;
@@ -183,26 +265,110 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
         
         @Override
         public Object getSource(Object rel) {
+            if (rel instanceof HiddenModulesConnection) {
+                return ((HiddenModulesConnection) rel).getSource();
+            }
             assert (rel instanceof Dependency);
             return ((Dependency) rel).getSource();
         }
         
         @Override
         public Object getDestination(Object rel) {
+            if (rel instanceof HiddenModulesConnection) {
+                return ((HiddenModulesConnection) rel).getTarget();
+            }
             assert (rel instanceof Dependency);
             return ((Dependency) rel).getTarget();
         }
         
         @Override
         public Object[] getElements(Object input) {
-            return ((ModuleDependencies) input).getAllDependencies().toArray();
+            ModuleDependencies dependencies = (ModuleDependencies) input;
+            if (focus == null) {
+                return dependencies.getAllDependencies().toArray();
+            }
+            return getNeighbourhood(dependencies, focus).toArray();
         }
     }
+    
+    /**
+     * Returns the dependencies of the given module, the 
+     * dependencies of the modules it references, and the 
+     * dependencies of the modules which reference it, 
+     * along with connections to the dependencies and 
+     * referencing modules of those modules which aren't 
+     * shown.
+     */
+    private static List<Object> getNeighbourhood(
+            ModuleDependencies dependencies, ModuleReference focus) {
+        List<Object> result = new ArrayList<Object>();
+        Set<Object> shown = new HashSet<Object>();
+        shown.add(focus);
+        for (Dependency dep : dependencies.getDirectDependencies(focus)) {
+            result.add(dep);
+            shown.add(dep.getTarget());
+        }
+        for (Dependency dep : dependencies.getDirectReverseDependencies(focus)) {
+            result.add(dep);
+            shown.add(dep.getSource());
+        }
+        for (Object module : shown) {
+            if (module.equals(focus)) {
+                continue;
+            }
+            ModuleReference moduleRef = (ModuleReference) module;
+            int hiddenDependencies = 0;
+            for (Dependency dep : dependencies.getDirectDependencies(moduleRef)) {
+                Object target = dep.getTarget();
+                if (!shown.contains(target)) {
+                    hiddenDependencies++;
+                }
+                else if (!target.equals(focus)) {
+                    result.add(dep);
+                }
+            }
+            if (hiddenDependencies > 0) {
+                result.add(new HiddenModulesConnection(
+                        new HiddenModules(moduleRef, true, hiddenDependencies)));
+            }
+            int hiddenReferences = 0;
+            for (Dependency dep : dependencies.getDirectReverseDependencies(moduleRef)) {
+                if (!shown.contains(dep.getSource())) {
+                    hiddenReferences++;
+                }
+            }
+            if (hiddenReferences > 0) {
+                result.add(new HiddenModulesConnection(
+                        new HiddenModules(moduleRef, false, hiddenReferences)));
+            }
+        }
+        return result;
+    }
+    
+    private static boolean isLargeGraph(ModuleDependencies dependencies) {
+        Set<Object> modules = new HashSet<Object>();
+        for (Object element : dependencies.getAllDependencies()) {
+            Dependency dep = (Dependency) element;
+            modules.add(dep.getSource());
+            modules.add(dep.getTarget());
+            if (modules.size() > LARGE_GRAPH_MODULES) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     class GraphLabelProvider extends LabelProvider implements ISelfStyleProvider {
         
         @Override
         public String getText(Object element) {
+            if (element instanceof HiddenModules) {
+                HiddenModules hiddenModules = (HiddenModules) element;
+                return hiddenModules.count + 
+                        (hiddenModules.dependencies ? 
+                                " more dependencies" : 
+                                " more referencing modules");
+            }
             if (element instanceof ModuleWeakReference) {
                 Module module = ((ModuleWeakReference) element).get();
                 if (module != null) {
@@ -315,6 +481,13 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
         
         @Override
         public void selfStyleNode(Object element, GraphNode node) {
+            if (element instanceof HiddenModules) {
+                node.setBackgroundColor(node.getDisplay()
+                        .getSystemColor(SWT.COLOR_WIDGET_LIGHT_SHADOW));
+                node.setForegroundColor(node.getDisplay()
+                        .getSystemColor(SWT.COLOR_DARK_GRAY));
+                node.setTooltip(new Label("Focus on the module to show them"));
+            }
             if (element instanceof ModuleWeakReference) {
                 Module module = ((ModuleWeakReference) element).get();
                 if (module == null) {
@@ -415,7 +588,8 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
                 .setNodeStyle(ZestStyles.NODES_NO_LAYOUT_RESIZE);
         viewer.setContentProvider(new GraphContentProvider());
         viewer.setLabelProvider(new GraphLabelProvider());
-        viewer.setLayoutAlgorithm(getCurrentLayoutAlgorithm());
+        // the graph is laid out in the background by applyLayout()
+        viewer.setLayoutAlgorithm(GraphLayoutJob.NO_LAYOUT);
         viewer.getControl().setLayoutData(GridDataFactory.fillDefaults().span(4, 1).grab(true, true).create());
         IPreferenceStore editorPreferenceStore = 
                 EditorsPlugin.getDefault().getPreferenceStore();
@@ -490,8 +664,7 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
             @Override
             public void widgetSelected(SelectionEvent e) {
                 try {
-                    viewer.setLayoutAlgorithm(getCurrentLayoutAlgorithm());
-                    viewer.applyLayout();
+                    applyLayout();
                 } catch(Exception ex){
                     e.doit = false;
                 }
@@ -578,15 +751,13 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
         partMenu.add(new Action("Lay Out") {
             @Override
             public void run() {
-                viewer.applyLayout();
+                applyLayout();
             }
         });
         partMenu.add(new Action("Show All") {
             @Override
             public void run() {
-                viewer.resetFilters();
-                viewer.refresh();
-                viewer.applyLayout();
+                showAll();
             }
         });
         partMenu.add(new Action("Show language module imports") {
@@ -594,7 +765,7 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
             public void run() {
                 showLanguageModuleVersions = true;
                 viewer.refresh();
-                viewer.applyLayout();
+                applyLayout();
             }
         });
         partMenu.add(new Action("Hide language module imports") {
@@ -602,7 +773,7 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
             public void run() {
                 showLanguageModuleVersions = false;
                 viewer.refresh();
-                viewer.applyLayout();
+                applyLayout();
             }
         });
         final MenuManager viewerMenu = new MenuManager();
@@ -653,56 +824,66 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
                         }
                     }
                 });
+                manager.add(new Action("Focus on Module") {
+                    @Override
+                    public boolean isEnabled() {
+                        return getSelectedModule() != null;
+                    }
+                    @Override
+                    public void run() {
+                        ModuleReference selectedModuleRef = getSelectedModule();
+                        if (selectedModuleRef != null) {
+                            focusOn(selectedModuleRef);
+                        }
+                    }
+                });
                 manager.add(new Action("Show All") {
                     @Override
                     public void run() {
-                        viewer.resetFilters();
-                        viewer.refresh();
-                        viewer.applyLayout();
+                        showAll();
                     }
                 });
             }
         });
     }
     
+    private ModuleReference getSelectedModule() {
+        IStructuredSelection selection = 
+                (IStructuredSelection) viewer.getSelection();
+        if (selection.size() == 1) {
+            Object first = selection.getFirstElement();
+            if (first instanceof ModuleReference) {
+                return (ModuleReference) first;
+            }
+            if (first instanceof HiddenModules) {
+                return ((HiddenModules) first).module;
+            }
+        }
+        return null;
+    }
+    
     protected void narrowToDependencies(
             final ModuleReference selectedModuleRef) {
         ModuleDependencies moduleDependencies = 
                 (ModuleDependencies) viewer.getInput();
-        final Iterable<Module> modulesToShow = 
-                moduleDependencies.getTransitiveDependencies(selectedModuleRef);
-        viewer.setFilters(new ViewerFilter[] { 
-                new ViewerFilter() {
-                    @Override
-                    public boolean select(Viewer viewer, 
-                            Object parentElement, Object element) {
-                        if (element.equals(selectedModuleRef) || 
-                                element instanceof Dependency) {
-                            return true;
-                        }
-                        if (element instanceof ModuleWeakReference) {
-                            Module moduleToSort = 
-                                    ((ModuleWeakReference) element).get();
-                            for (Module moduleToShow : modulesToShow) {
-                                if (moduleToShow.equals(moduleToSort)) {
-                                    return true;
-                                }
-                            }
-                        }
-                        return false;
-                    }
-                } 
-        });
-        viewer.refresh();
-        viewer.applyLayout();
+        narrowTo(selectedModuleRef, 
+                moduleDependencies.getTransitiveDependencies(selectedModuleRef));
     }
     
     protected void narrowToReferences(
             final ModuleReference selectedModuleRef) {
         ModuleDependencies moduleDependencies = 
                 (ModuleDependencies) viewer.getInput();
-        final Iterable<Module> modulesToShow = 
-                moduleDependencies.getReferencingModules(selectedModuleRef);
+        narrowTo(selectedModuleRef, 
+                moduleDependencies.getReferencingModules(selectedModuleRef));
+    }
+    
+    private void narrowTo(final ModuleReference selectedModuleRef,
+            Iterable<Module> modules) {
+        final Set<Module> modulesToShow = new HashSet<Module>();
+        for (Module module : modules) {
+            modulesToShow.add(module);
+        }
         viewer.setFilters(new ViewerFilter[] { 
                 new ViewerFilter() {
                     @Override
@@ -715,18 +896,47 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
                         if (element instanceof ModuleWeakReference) {
                             Module moduleToSort = 
                                     ((ModuleWeakReference) element).get();
-                            for (Module moduleToShow : modulesToShow) {
-                                if (moduleToShow.equals(moduleToSort)) {
-                                    return true;
-                                }
-                            }
+                            return moduleToSort != null &&
+                                    modulesToShow.contains(moduleToSort);
                         }
                         return false;
                     }
                 } 
         });
         viewer.refresh();
-        viewer.applyLayout();
+        applyLayout();
+    }
+    
+    /**
+     * Show the neighbourhood of the given module only.
+     */
+    private void focusOn(ModuleReference moduleRef) {
+        if (!moduleRef.equals(focus)) {
+            focus = moduleRef;
+            viewer.resetFilters();
+            viewer.refresh();
+            applyLayout();
+        }
+    }
+    
+    private void showAll() {
+        focus = null;
+        viewer.resetFilters();
+        viewer.refresh();
+        applyLayout();
+    }
+    
+    /**
+     * Lay out the graph in the background, abandoning any
+     * layout in progress.
+     */
+    private void applyLayout() {
+        if (layoutJob != null) {
+            layoutJob.discard();
+        }
+        layoutJob = new GraphLayoutJob(viewer.getGraphControl(), 
+                getCurrentLayoutAlgorithm());
+        layoutJob.schedule();
     }
     
     private void init() {
@@ -738,13 +948,26 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
         if (dependencies == null) {
             return;
         }
+        focus = null;
+        if (isLargeGraph(dependencies)) {
+            Collection<Module> sourceModules = 
+                    getProjectSourceModules(project);
+            if (!sourceModules.isEmpty()) {
+                focus = ModuleDependencies.reference(
+                        sourceModules.iterator().next());
+            }
+        }
         viewer.setInput(dependencies);
+        applyLayout();
     }
     
     
     
     @Override
     public void dispose() {
+        if (layoutJob != null) {
+            layoutJob.discard();
+        }
         getWorkspace().removeResourceChangeListener(updateProjectComboListener);
         modelJ2C().ceylonModel().removeModelListener(this);
     }
@@ -828,6 +1051,9 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
 
     private void select(Collection<Module> modules) {
         if (!modules.isEmpty()) {
+            if (focus != null) {
+                focusOn(ModuleDependencies.reference(modules.iterator().next()));
+            }
             List<ModuleReference> list = new ArrayList<ModuleReference>();
             for (Module module: modules) {
                 list.add(ModuleDependencies.reference(module));
@@ -837,6 +1063,9 @@ public class DependencyGraphView extends ViewPart implements IShowInTarget, Mode
     }
 
     private void select(Module module) {
+        if (focus != null) {
+            focusOn(ModuleDependencies.reference(module));
+        }
         viewer.setSelection(new StructuredSelection(ModuleDependencies.reference(module)), true);
     }
 
@@ -0,0 +1,193 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.code.moduledependencies;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.draw2d.geometry.Dimension;
+import org.eclipse.draw2d.geometry.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.zest.core.widgets.Graph;
+import org.eclipse.zest.core.widgets.GraphConnection;
+import org.eclipse.zest.core.widgets.GraphNode;
+import org.eclipse.zest.layouts.InvalidLayoutConfiguration;
+import org.eclipse.zest.layouts.LayoutAlgorithm;
+import org.eclipse.zest.layouts.LayoutEntity;
+import org.eclipse.zest.layouts.LayoutRelationship;
+import org.eclipse.zest.layouts.LayoutStyles;
+import org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm;
+import org.eclipse.zest.layouts.dataStructures.InternalNode;
+import org.eclipse.zest.layouts.dataStructures.InternalRelationship;
+import org.eclipse.zest.layouts.exampleStructures.SimpleNode;
+import org.eclipse.zest.layouts.exampleStructures.SimpleRelationship;
+
+/**
+ * Lays out the visible nodes of a graph in the background.
+ *
+ * The nodes and connections of the graph are copied, on
+ * the UI thread, to a detached model that the layout
+ * algorithm works on, and the computed locations are then
+ * applied to the nodes of the graph all at once.
+ *
+ * The graph itself is given a {@link #NO_LAYOUT layout
+ * algorithm which does nothing}, so that it doesn't lay
+ * itself out on the UI thread when its input changes.
+ */
+class GraphLayoutJob extends Job {
+
+    /**
+     * A layout algorithm that leaves the nodes where they
+     * are, for graphs which are laid out by this job.
+     */
+    static final LayoutAlgorithm NO_LAYOUT =
+            new AbstractLayoutAlgorithm(LayoutStyles.NO_LAYOUT_NODE_RESIZING) {
+        @Override
+        public void setLayoutArea(double x, double y,
+                double width, double height) {}
+        @Override
+        protected boolean isValidConfiguration(boolean asynchronous,
+                boolean continuous) {
+            return true;
+        }
+        @Override
+        protected void preLayoutAlgorithm(InternalNode[] entitiesToLayout,
+                InternalRelationship[] relationshipsToConsider,
+                double x, double y, double width, double height) {}
+        @Override
+        protected void applyLayoutInternal(InternalNode[] entitiesToLayout,
+                InternalRelationship[] relationshipsToConsider,
+                double boundsX, double boundsY,
+                double boundsWidth, double boundsHeight) {}
+        @Override
+        protected void postLayoutAlgorithm(InternalNode[] entitiesToLayout,
+                InternalRelationship[] relationshipsToConsider) {}
+        @Override
+        protected int getTotalNumberOfLayoutSteps() {
+            return 0;
+        }
+        @Override
+        protected int getCurrentLayoutStep() {
+            return 0;
+        }
+    };
+
+    private final Graph graph;
+    private final LayoutAlgorithm algorithm;
+    private final LayoutEntity[] entities;
+    private final LayoutRelationship[] relationships;
+    private final Rectangle area;
+    private volatile boolean discarded = false;
+
+    /**
+     * Must be created on the UI thread, since it copies the
+     * nodes and connections of the graph.
+     */
+    GraphLayoutJob(Graph graph, LayoutAlgorithm algorithm) {
+        super("Laying out module dependencies");
+        this.graph = graph;
+        this.algorithm = algorithm;
+        this.area = graph.getClientArea();
+        Map<GraphNode, SimpleNode> nodes =
+                new IdentityHashMap<GraphNode, SimpleNode>();
+        for (Object item: graph.getNodes()) {
+            GraphNode node = (GraphNode) item;
+            if (node.isVisible()) {
+                Point location = node.getLocation();
+                Dimension size = node.getSize();
+                nodes.put(node, new SimpleNode(node,
+                        location.x, location.y,
+                        size.width, size.height));
+            }
+        }
+        List<LayoutRelationship> rels =
+                new ArrayList<LayoutRelationship>();
+        for (Object item: graph.getConnections()) {
+            GraphConnection connection = (GraphConnection) item;
+            SimpleNode source = nodes.get(connection.getSource());
+            SimpleNode destination = nodes.get(connection.getDestination());
+            if (source!=null && destination!=null && source!=destination) {
+                rels.add(new SimpleRelationship(source, destination, false));
+            }
+        }
+        this.entities =
+                nodes.values().toArray(new LayoutEntity[nodes.size()]);
+        this.relationships =
+                rels.toArray(new LayoutRelationship[rels.size()]);
+        setSystem(true);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        if (entities.length==0 ||
+                area.width<=0 || area.height<=0) {
+            return Status.OK_STATUS;
+        }
+        try {
+            algorithm.applyLayout(entities, relationships,
+                    0, 0, area.width, area.height,
+                    false, false);
+        }
+        catch (InvalidLayoutConfiguration e) {
+            e.printStackTrace();
+            return Status.OK_STATUS;
+        }
+        if (monitor.isCanceled()) {
+            return Status.CANCEL_STATUS;
+        }
+        Display.getDefault().asyncExec(new Runnable() {
+            @Override
+            public void run() {
+                if (discarded || graph.isDisposed()) {
+                    return;
+                }
+                graph.setRedraw(false);
+                try {
+                    for (LayoutEntity entity: entities) {
+                        GraphNode node = (GraphNode)
+                                ((SimpleNode) entity).getRealObject();
+                        if (!node.isDisposed()) {
+                            node.setLocation(
+                                    entity.getXInLayout(),
+                                    entity.getYInLayout());
+                        }
+                    }
+                }
+                finally {
+                    graph.setRedraw(true);
+                }
+            }
+        });
+        return Status.OK_STATUS;
+    }
+
+    /**
+     * Cancel the layout, or forget its result if it's
+     * already been computed, because the graph changed
+     * or is being laid out again.
+     */
+    void discard() {
+        discarded = true;
+        cancel();
+    }
+
+    @Override
+    protected void canceling() {
+        algorithm.stop();
+    }
+
+}
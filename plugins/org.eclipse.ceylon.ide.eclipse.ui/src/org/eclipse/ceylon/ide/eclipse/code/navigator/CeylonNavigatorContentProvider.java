@@ -11,7 +11,9 @@ package org.eclipse.ceylon.ide.eclipse.code.navigator;
 
 import static org.eclipse.ceylon.ide.eclipse.java2ceylon.Java2CeylonProxies.modelJ2C;
 
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -78,6 +80,19 @@ public class CeylonNavigatorContentProvider implements
     
 	private org.eclipse.ui.navigator.IExtensionStateModel javaNavigatorStateModel;
 
+    /**
+     * The repository nodes of each project, built the first
+     * time they're needed, and kept until the Ceylon model
+     * or the classpath of the project changes.
+     */
+    private final Map<IProject, Map<String, RepositoryNode>> projectRepositoryNodes = new HashMap<>();
+
+    /**
+     * The external module nodes of all the projects, by the
+     * URI of the root of their source archive.
+     */
+    private Map<URI, ExternalModuleNode> sourceArchiveModuleNodes = null;
+
 	private boolean isFlatLayout() {
 		return javaNavigatorStateModel.getBooleanProperty(Values.IS_LAYOUT_FLAT);
 	}
@@ -93,23 +108,29 @@ public class CeylonNavigatorContentProvider implements
             IProject project = (IProject) aParent;
 
             Map<String, RepositoryNode> repositories = getProjectRepositoryNodes(project);
+            Map<IPackageFragmentRoot, List<ExternalModuleNode>> moduleNodesByRoot = null;
+            // the nodes are kept, so forget the binary archives
+            // they were given the last time
+            for (RepositoryNode rn : repositories.values()) {
+                for (ExternalModuleNode emn : rn.getModules()) {
+                    emn.getBinaryArchives().clear();
+                }
+            }
 
             List<Object> toRemove = new ArrayList<>();
             for (Object child : theCurrentChildren) {
                 if (child instanceof ClassPathContainer) {
                     toRemove.add(child);
+                    if (moduleNodesByRoot == null) {
+                        moduleNodesByRoot = getModuleNodesByRoot(repositories);
+                    }
                     ClassPathContainer cpContainer = (ClassPathContainer) child;
                     for (IAdaptable entry : cpContainer.getChildren()) {
                         if (entry instanceof IPackageFragmentRoot) {
-                            IPackageFragmentRoot pfr = (IPackageFragmentRoot) entry;
-                            for (RepositoryNode rn : repositories.values()) {
-                                for (ExternalModuleNode emn : rn.getModules()) {
-                                    BaseIdeModule module = emn.getModule();
-                                    if (module != null &&
-                                            modelJ2C().getModulePackageFragmentRoots(module)
-                                            .contains(pfr)) {
-                                        emn.getBinaryArchives().add(pfr);
-                                    }
+                            List<ExternalModuleNode> moduleNodes = moduleNodesByRoot.get(entry);
+                            if (moduleNodes != null) {
+                                for (ExternalModuleNode emn : moduleNodes) {
+                                    emn.getBinaryArchives().add((IPackageFragmentRoot) entry);
                                 }
                             }
                         }
@@ -218,7 +239,65 @@ public class CeylonNavigatorContentProvider implements
         }
     }
 
+    private Map<IPackageFragmentRoot, List<ExternalModuleNode>> getModuleNodesByRoot(
+            Map<String, RepositoryNode> repositories) {
+        Map<IPackageFragmentRoot, List<ExternalModuleNode>> moduleNodesByRoot = new HashMap<>();
+        for (RepositoryNode rn : repositories.values()) {
+            for (ExternalModuleNode emn : rn.getModules()) {
+                BaseIdeModule module = emn.getModule();
+                if (module != null) {
+                    for (IPackageFragmentRoot pfr : modelJ2C().getModulePackageFragmentRoots(module)) {
+                        List<ExternalModuleNode> moduleNodes = moduleNodesByRoot.get(pfr);
+                        if (moduleNodes == null) {
+                            moduleNodes = new ArrayList<>(1);
+                            moduleNodesByRoot.put(pfr, moduleNodes);
+                        }
+                        moduleNodes.add(emn);
+                    }
+                }
+            }
+        }
+        return moduleNodesByRoot;
+    }
+
     private synchronized Map<String, RepositoryNode> getProjectRepositoryNodes(IProject project) {
+        Map<String, RepositoryNode> repositories = projectRepositoryNodes.get(project);
+        if (repositories == null) {
+            repositories = createProjectRepositoryNodes(project);
+            projectRepositoryNodes.put(project, repositories);
+            sourceArchiveModuleNodes = null;
+        }
+        return repositories;
+    }
+
+    private synchronized void forgetProjectRepositoryNodes(IProject project) {
+        if (projectRepositoryNodes.remove(project) != null) {
+            sourceArchiveModuleNodes = null;
+        }
+    }
+
+    private synchronized ExternalModuleNode getSourceArchiveModuleNode(CeylonArchiveFileStore archiveRoot) {
+        if (sourceArchiveModuleNodes == null) {
+            Map<URI, ExternalModuleNode> moduleNodes = new HashMap<>();
+            for (IProject project: CeylonBuilder.getProjects()) {
+                for (RepositoryNode repoNode: getProjectRepositoryNodes(project).values()) {
+                    for (ExternalModuleNode moduleNode: repoNode.getModules()) {
+                        CeylonArchiveFileStore sourceArchive = moduleNode.getSourceArchive();
+                        if (sourceArchive != null) {
+                            URI uri = sourceArchive.toURI();
+                            if (!moduleNodes.containsKey(uri)) {
+                                moduleNodes.put(uri, moduleNode);
+                            }
+                        }
+                    }
+                }
+            }
+            sourceArchiveModuleNodes = moduleNodes;
+        }
+        return sourceArchiveModuleNodes.get(archiveRoot.toURI());
+    }
+
+    private Map<String, RepositoryNode> createProjectRepositoryNodes(IProject project) {
         Map<String, RepositoryNode> repositories = new LinkedHashMap<>();
 
         BaseCeylonProject baseCeylonProject = modelJ2C().ceylonModel().getProject(project);
@@ -294,6 +373,13 @@ public class CeylonNavigatorContentProvider implements
             if (aSuggestedParent instanceof ClassPathContainer) {
                 IProject project = pfr.getJavaProject().getProject();
                 Map<String, RepositoryNode> repositories = getProjectRepositoryNodes(project);
+                for (RepositoryNode rn : repositories.values()) {
+                    for (ExternalModuleNode emn : rn.getModules()) {
+                        if (emn.getBinaryArchives().contains(pfr)) {
+                            return rn;
+                        }
+                    }
+                }
                 for (RepositoryNode rn : repositories.values()) {
                     for (ExternalModuleNode emn : rn.getModules()) {
                         BaseIdeModule module = emn.getModule();
@@ -371,6 +457,7 @@ public class CeylonNavigatorContentProvider implements
                 if (aParent instanceof IProject) {
                     for (Object child : changedChildren) {
                         if (child instanceof ClassPathContainer) {
+                            forgetProjectRepositoryNodes((IProject) aParent);
                             aShapeModification.getChildren().clear();
                             scheduleRefresh(aParent);
                             return aShapeModification;
@@ -478,8 +565,10 @@ public class CeylonNavigatorContentProvider implements
             }
         }
         if (aClassPathContainer != null) {
+            IProject project = aClassPathContainer.getJavaProject().getProject();
+            forgetProjectRepositoryNodes(project);
             aRefreshSynchronization.getRefreshTargets().clear();            
-            aRefreshSynchronization.getRefreshTargets().addAll(getProjectRepositoryNodes(aClassPathContainer.getJavaProject().getProject()).values());
+            aRefreshSynchronization.getRefreshTargets().addAll(getProjectRepositoryNodes(project).values());
             return true;
         }
         return false;
@@ -546,9 +635,10 @@ public class CeylonNavigatorContentProvider implements
         }
         if (parentElement instanceof ExternalModuleNode) {
             ExternalModuleNode moduleNode = (ExternalModuleNode) parentElement;
-            ArrayList<Object> result = new ArrayList<Object>(moduleNode.getBinaryArchives().size() + (moduleNode.getSourceArchive() != null ? 1 : 0));
-            if (moduleNode.getSourceArchive() != null) {
-                result.add(moduleNode.getSourceArchive());
+            CeylonArchiveFileStore sourceArchive = moduleNode.getSourceArchive();
+            ArrayList<Object> result = new ArrayList<Object>(moduleNode.getBinaryArchives().size() + (sourceArchive != null ? 1 : 0));
+            if (sourceArchive != null) {
+                result.add(sourceArchive);
             }
             result.addAll(moduleNode.getBinaryArchives());
             return result.toArray();
@@ -589,17 +679,7 @@ public class CeylonNavigatorContentProvider implements
             CeylonArchiveFileStore archiveFileStore = (CeylonArchiveFileStore) element;
             if (archiveFileStore.getParent() == null) {
                 // it's the archive root
-                for (IProject project: CeylonBuilder.getProjects()) {
-                    for (RepositoryNode repoNode: getProjectRepositoryNodes(project).values()) {
-                        for (ExternalModuleNode moduleNode: repoNode.getModules()) {
-                            CeylonArchiveFileStore sourceArchive = moduleNode.getSourceArchive();
-                            if (sourceArchive!=null &&
-                                    sourceArchive.equals(archiveFileStore)) {
-                                return moduleNode;
-                            }
-                        }
-                    }
-                }
+                return getSourceArchiveModuleNode(archiveFileStore);
             } else {
                 return ((CeylonArchiveFileStore) element).getParent();
             }
@@ -689,6 +769,7 @@ public class CeylonNavigatorContentProvider implements
     @Override
     public Object ceylonModelParsed(CeylonProject<IProject, IResource, IFolder, IFile> project) {
         if (project != null) {
+            forgetProjectRepositoryNodes(project.getIdeArtifact());
             try {
                 for (IPackageFragmentRoot pfr : JavaCore.create(project.getIdeArtifact()).getAllPackageFragmentRoots()) {
                     if (CeylonBuilder.isSourceFolder(pfr)) {
@@ -705,12 +786,14 @@ public class CeylonNavigatorContentProvider implements
     @Override
     public Object ceylonProjectAdded(
             CeylonProject<IProject, IResource, IFolder, IFile> project) {
+        forgetProjectRepositoryNodes(project.getIdeArtifact());
         return null;
     }
 
     @Override
     public Object ceylonProjectRemoved(
             CeylonProject<IProject, IResource, IFolder, IFile> project) {
+        forgetProjectRepositoryNodes(project.getIdeArtifact());
         return null;
     }
 
@@ -51,6 +51,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
@@ -83,6 +84,7 @@ import org.eclipse.ceylon.ide.eclipse.code.editor.CeylonEditor;
 import org.eclipse.ceylon.ide.eclipse.code.html.HTML;
 import org.eclipse.ceylon.ide.eclipse.code.preferences.CeylonFiltersPreferencePage;
 import org.eclipse.ceylon.ide.eclipse.code.preferences.CeylonOpenDialogsPreferencePage;
+import org.eclipse.ceylon.ide.eclipse.core.builder.PackageNameIndex;
 import org.eclipse.ceylon.ide.eclipse.ui.CeylonPlugin;
 import org.eclipse.ceylon.ide.eclipse.ui.CeylonResources;
 import org.eclipse.ceylon.ide.eclipse.util.DocBrowser;
@@ -96,7 +98,6 @@ import org.eclipse.ceylon.ide.common.model.IResourceAware;
 import org.eclipse.ceylon.ide.common.model.IdeModule;
 import org.eclipse.ceylon.ide.common.model.JavaCompilationUnit;
 import org.eclipse.ceylon.ide.common.model.ProjectSourceFile;
-import org.eclipse.ceylon.model.typechecker.model.ClassOrInterface;
 import org.eclipse.ceylon.model.typechecker.model.Declaration;
 import org.eclipse.ceylon.model.typechecker.model.Module;
 import org.eclipse.ceylon.model.typechecker.model.Modules;
@@ -314,7 +315,10 @@ public class OpenDeclarationDialog extends FilteredItemsSelectionDialog {
     }
     
     private static Declaration toDeclaration(Object object) {
-        if (object instanceof DeclarationProxy) {
+        if (object instanceof Declaration) {
+            return (Declaration) object;
+        }
+        else if (object instanceof DeclarationProxy) {
             DeclarationProxy proxy = 
                     (DeclarationProxy) object;
             return proxy.get();
@@ -330,7 +334,12 @@ public class OpenDeclarationDialog extends FilteredItemsSelectionDialog {
         boolean filterJDK = excludeJDK;
         boolean filterOracleJDK = excludeOracleJDK;
         int version = filterVersion;
+        private String[] globSubfilters;
         
+        /**
+         * Determines if the given item, or the given 
+         * declaration, matches the filter.
+         */
         @Override
         public boolean matchItem(Object item) {
             Declaration declaration = toDeclaration(item);
@@ -353,7 +362,12 @@ public class OpenDeclarationDialog extends FilteredItemsSelectionDialog {
                     return false;
                 }
                 else if (pattern.contains("*")) {
-                    return isMatchingGlob(pattern, name);
+                    if (globSubfilters==null) {
+                        globSubfilters = 
+                                globSubfilters(pattern);
+                    }
+                    return isMatchingGlob(globSubfilters, 
+                            name.toLowerCase());
                 }
                 else {
                     return isNameMatching(pattern, name);
@@ -973,10 +987,12 @@ public class OpenDeclarationDialog extends FilteredItemsSelectionDialog {
             AbstractContentProvider contentProvider, 
             ItemsFilter itemsFilter, 
             IProgressMonitor monitor) {
+        String prefix = getNamePrefix(itemsFilter);
         ArrayList<Package> copiedPackages = 
                 new ArrayList<Package>(module.getPackages());
         for (Package pack: copiedPackages) {
-            fillPackage(pack, module, contentProvider, itemsFilter);
+            fillPackage(pack, module, contentProvider, 
+                    itemsFilter, prefix);
             monitor.worked(1);
             if (monitor.isCanceled()) break;
         }
@@ -984,14 +1000,49 @@ public class OpenDeclarationDialog extends FilteredItemsSelectionDialog {
 
     private void fillPackage(Package pack, IdeModule module, 
             AbstractContentProvider contentProvider,
-            ItemsFilter itemsFilter) {
+            ItemsFilter itemsFilter, String prefix) {
         if (includePackage(pack, module)) {
-            for (Declaration dec: pack.getMembers()) {
-                fillDeclarationAndMembers(contentProvider, 
-                        itemsFilter, module, dec);
+            for (Declaration dec: 
+                    PackageNameIndex.getDeclarations(pack, 
+                            prefix, includeMembers)) {
+                if (includeDeclarationAndContainers(module, dec)) {
+                    addDeclaration(contentProvider, 
+                            itemsFilter, dec);
+                    nameOccurs(dec);
+                }
             }
         }
     }
+    
+    /**
+     * Returns the lowercase prefix that the names of the
+     * declarations matching the given filter must start 
+     * with, either the first part of a glob, or the first
+     * character of a name or camel hump pattern, or the
+     * empty string if any name could match.
+     */
+    private static String getNamePrefix(ItemsFilter itemsFilter) {
+        String pattern = 
+                itemsFilter==null ? null : 
+                    itemsFilter.getPattern();
+        if (pattern==null) {
+            return "";
+        }
+        int loc = pattern.indexOf('.');
+        if (loc>=0) {
+            pattern = pattern.substring(loc+1);
+        }
+        if (pattern.contains("*")) {
+            String[] subfilters = globSubfilters(pattern);
+            return subfilters.length==0 ? "" : subfilters[0];
+        }
+        else if (pattern.isEmpty()) {
+            return "";
+        }
+        else {
+            return pattern.substring(0, 1).toLowerCase();
+        }
+    }
 
     private boolean includePackage(Package pack, IdeModule module) {
         boolean visibleFromProjectSource
@@ -1037,36 +1088,36 @@ public class OpenDeclarationDialog extends FilteredItemsSelectionDialog {
         }
     }
 
-    private void fillDeclarationAndMembers(
-            AbstractContentProvider contentProvider, 
-            ItemsFilter itemsFilter,
+    /**
+     * Determines if the given declaration should be 
+     * included, along with the classes and interfaces 
+     * containing it, if it's a member.
+     */
+    private boolean includeDeclarationAndContainers(
             IdeModule module, Declaration dec) {
-        if (includeDeclaration(module, dec) /*&&
-                //watch out for dupes!
-                (!module.getIsProjectModule() || 
-                 !dec.getUnit()
-                     .getFilename()
-                     .endsWith(".ceylon"))*/) {
+        while (includeDeclaration(module, dec)) {
+            if (dec.isClassOrInterfaceMember()) {
+                dec = (Declaration) dec.getContainer();
+            }
+            else {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Add a proxy for the given declaration if it matches
+     * the filter, avoiding the creation of a proxy for 
+     * each candidate declaration.
+     */
+    private static void addDeclaration(
+            AbstractContentProvider contentProvider,
+            ItemsFilter itemsFilter, Declaration dec) {
+        if (itemsFilter==null || 
+                itemsFilter.matchItem(dec)) {
             contentProvider.add(new DeclarationProxy(dec), 
                     itemsFilter);
-            nameOccurs(dec);
-            if (includeMembers && 
-                    dec instanceof ClassOrInterface) {
-                try {
-                    ArrayList<Declaration> copiedMembers = 
-                            new ArrayList<Declaration>
-                                (dec.getMembers());
-                    for (Declaration member: copiedMembers) {
-                        fillDeclarationAndMembers(
-                                contentProvider, 
-                                itemsFilter, 
-                                module, member);
-                    }
-                }
-                catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
         }
     }
     
@@ -1081,9 +1132,8 @@ public class OpenDeclarationDialog extends FilteredItemsSelectionDialog {
                         .getModule();
             for (Declaration dec: unit.getDeclarations()) {
                 if (includeDeclaration(jdtModule, dec)) {
-                    contentProvider.add(
-                            new DeclarationProxy(dec), 
-                            itemsFilter);
+                    addDeclaration(contentProvider, 
+                            itemsFilter, dec);
                     nameOccurs(dec);
                 }
             }
@@ -1252,8 +1302,28 @@ public class OpenDeclarationDialog extends FilteredItemsSelectionDialog {
                 .getCeylonRepository()
                     .getPath();
     
+    /**
+     * The locations of units, which are shared by all 
+     * their declarations.
+     */
+    private static final Map<Unit, String> locations = 
+            new WeakHashMap<Unit, String>();
+    
     private static String getLocation(Declaration declaration) {
         Unit unit = declaration.getUnit();
+        synchronized (locations) {
+            if (locations.containsKey(unit)) {
+                return locations.get(unit);
+            }
+        }
+        String location = getLocation(unit);
+        synchronized (locations) {
+            locations.put(unit, location);
+        }
+        return location;
+    }
+    
+    private static String getLocation(Unit unit) {
         Module module = unit.getPackage().getModule();
         if (module instanceof IdeModule) {
             if (unit instanceof EditedSourceFile ||
@@ -1409,11 +1479,24 @@ public class OpenDeclarationDialog extends FilteredItemsSelectionDialog {
         if (name==null) {
             return false;
         }
+        return isMatchingGlob(globSubfilters(filter), 
+                name.toLowerCase());
+    }
+    
+    private static String[] globSubfilters(String filter) {
+        return filter.toLowerCase().split("\\*");
+    }
+    
+    /**
+     * @param subfilters the lowercase parts of the glob
+     * @param name the lowercase name
+     */
+    private static boolean isMatchingGlob(
+            String[] subfilters, String name) {
         int loc = 0;
         boolean first = true;
-        for (String subfilter: filter.split("\\*")) {
-            int match = name.toLowerCase()
-                    .indexOf(subfilter.toLowerCase(), loc);
+        for (String subfilter: subfilters) {
+            int match = name.indexOf(subfilter, loc);
             if (match<0 || first && match>0) {
                 return false;
             }
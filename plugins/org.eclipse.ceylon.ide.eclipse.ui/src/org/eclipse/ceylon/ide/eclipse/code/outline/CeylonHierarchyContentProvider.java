@@ -24,6 +24,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -37,6 +38,7 @@ import org.eclipse.ui.IWorkbenchPartSite;
 
 import org.eclipse.ceylon.compiler.typechecker.tree.Tree.CompilationUnit;
 import org.eclipse.ceylon.ide.eclipse.code.editor.CeylonEditor;
+import org.eclipse.ceylon.ide.eclipse.core.builder.SubtypeIndex;
 import org.eclipse.ceylon.ide.eclipse.util.Filters;
 import org.eclipse.ceylon.ide.eclipse.util.ModelProxy;
 import org.eclipse.ceylon.ide.common.model.BaseIdeModule;
@@ -336,18 +338,6 @@ public final class CeylonHierarchyContentProvider
             
             monitor.beginTask("Building hierarchy", 100000);
             
-            Set<Module> allModules = collectModules();
-            
-            monitor.worked(10000);
-            
-            Set<Package> packages = new HashSet<Package>();
-            int ams = allModules.size();
-            for (Module module: allModules) {
-                collectPackages(packages, module);
-                monitor.worked(10000/ams);
-                if (monitor.isCanceled()) return;
-            }
-    
             CeylonHierarchyNode node = 
                     getSubtypePathNode(declaration);
             node.setFocus(true);
@@ -370,63 +360,136 @@ public final class CeylonHierarchyContentProvider
             
             if (monitor.isCanceled()) return;
             
+            Set<TypeDeclaration> types = 
+                    collectTypes(monitor);
+            
+            if (monitor.isCanceled()) return;
+            
             IEditorPart part = 
                     site.getPage()
                         .getActiveEditor();
             
             List<Type> signature = getSignature(declaration);
             boolean isVariadic = isVariadic(declaration);
-            int ps = packages.size();
-            for (Package pack: packages) { //workaround CME
-                List<Declaration> members =
-                        //IMPORTANT: call getMembers() to 
-                        //force lazy loading of all Units!
-                        pack.getMembers();
-                int ms = members.size();
-                monitor.subTask("scanning " 
-                        + pack.getNameAsString());
-                //iterate over units and then declarations
-                //in order to pick up nested declarations,
-                //unlike in OpenDeclarationDialog where we
-                //iterate over Package.getMembers() because
-                //we only want toplevels
-                for (Unit unit: pack.getUnits()) {
-                    try {
-                        //TODO: unshared inner types get 
-                        //      missed for binary modules
-                        for (Declaration d: unit.getDeclarations()) {
-                            if (!isFiltered(d)) {
-                                d = replaceWithCurrentEditorDeclaration(
-                                        part, pack, d); //TODO: not enough to catch *new* subtypes in the dirty editor
-                                if (d instanceof ClassOrInterface || 
-                                    d instanceof TypeParameter) {
-                                    try {
-                                        if (declaration instanceof TypeDeclaration) {
-                                            addTypeToHierarchy(d);
-                                        }
-                                        else if (declaration instanceof TypedDeclaration) {
-                                            addMemberToHierarchy(signature, isVariadic, d);
-                                        }
-                                    }
-                                    catch (Exception e) {
-                                        String qn = d.getQualifiedNameString();
-                                        System.err.println(qn);
-                                        throw e;
-                                    }
-                                }
+            int ts = Math.max(1, types.size());
+            for (Declaration d: types) {
+                try {
+                    if (!isFiltered(d)) {
+                        d = replaceWithCurrentEditorDeclaration(
+                                part, d.getUnit().getPackage(), 
+                                d); //TODO: not enough to catch *new* subtypes in the dirty editor
+                        if (d instanceof ClassOrInterface || 
+                            d instanceof TypeParameter) {
+                            if (declaration instanceof TypeDeclaration) {
+                                addTypeToHierarchy(d);
+                            }
+                            else if (declaration instanceof TypedDeclaration) {
+                                addMemberToHierarchy(signature, isVariadic, d);
                             }
-                            monitor.worked(15000/ps/ms);
-                            if (monitor.isCanceled()) return;
                         }
                     }
-                    catch (Exception e) {
-                        e.printStackTrace();
-                    }
                 }
+                catch (Exception e) {
+                    System.err.println(d.getQualifiedNameString());
+                    e.printStackTrace();
+                }
+                monitor.worked(50000/ts);
                 if (monitor.isCanceled()) return;
             }
             monitor.done();
         }
+        
+        /**
+         * Collect the classes, interfaces and type parameters
+         * which could be part of the hierarchy, using the 
+         * subtype index to avoid checking every type of every 
+         * package.
+         */
+        private Set<TypeDeclaration> collectTypes(
+                IProgressMonitor monitor) {
+            Set<TypeDeclaration> types = 
+                    new LinkedHashSet<TypeDeclaration>();
+            TypeDeclaration type;
+            Set<Module> modules;
+            if (declaration instanceof TypeDeclaration) {
+                //the supertypes, and the subtypes, which
+                //can only belong to modules which see the
+                //module of the declaration
+                type = (TypeDeclaration) declaration;
+                collectSupertypes(type, types, 
+                        new HashSet<TypeDeclaration>());
+                modules = collectModules(false);
+            }
+            else if (declaration.getRefinedDeclaration()
+                    .getContainer() 
+                        instanceof TypeDeclaration) {
+                //the members of all subtypes of the type
+                //which declares the refined member may be
+                //refinements
+                type = (TypeDeclaration) 
+                        declaration.getRefinedDeclaration()
+                            .getContainer();
+                types.add(type);
+                modules = collectModules(true);
+            }
+            else {
+                return types;
+            }
+            monitor.worked(10000);
+            
+            Set<Package> packages = new HashSet<Package>();
+            for (Module module: modules) {
+                collectPackages(packages, module);
+                if (monitor.isCanceled()) return types;
+            }
+            monitor.worked(5000);
+            
+            int ps = Math.max(1, packages.size());
+            for (Package pack: packages) {
+                //IMPORTANT: call getMembers() to force 
+                //lazy loading of all Units, since the 
+                //subtype index only covers loaded units
+                pack.getMembers();
+                monitor.worked(5000/ps);
+                if (monitor.isCanceled()) return types;
+            }
+            
+            monitor.subTask("finding subtypes of " 
+                    + type.getName());
+            types.addAll(SubtypeIndex.getSubtypes(type, packages));
+            monitor.worked(30000);
+            return types;
+        }
+        
+        private void collectSupertypes(TypeDeclaration type, 
+                Set<TypeDeclaration> types, 
+                Set<TypeDeclaration> visited) {
+            if (type==null || !visited.add(type)) {
+                return;
+            }
+            if (type==declaration || 
+                    type instanceof ClassOrInterface && 
+                    isIncluded(type)) {
+                types.add(type);
+            }
+            Type et = type.getExtendedType();
+            if (et!=null) {
+                collectSupertypes(et.getDeclaration(), 
+                        types, visited);
+            }
+            for (Type st: type.getSatisfiedTypes()) {
+                if (st!=null) {
+                    collectSupertypes(st.getDeclaration(), 
+                            types, visited);
+                }
+            }
+        }
+        
+        private boolean isIncluded(Declaration dec) {
+            Package pack = dec.getUnit().getPackage();
+            return !filters.isFiltered(pack) &&
+                    includeModule(pack.getModule());
+        }
 
         private Declaration collectOverriddenMembers(Declaration root) {
             Declaration memberDec = declaration;
@@ -607,7 +670,8 @@ public final class CeylonHierarchyContentProvider
                     isOracleJDKModule(moduleName);
         }
 
-        private Set<Module> collectModules() {
+        private Set<Module> collectModules(
+                boolean includeDependencies) {
             Unit unit = declaration.getUnit();
             Module currentModule = 
                     unit.getPackage()
@@ -623,7 +687,9 @@ public final class CeylonHierarchyContentProvider
                 for (BaseIdeModule ideModule: moduleInAllProjects) {
                     allModules.add(ideModule);
                     allModules.addAll(ideModule.getReferencingModulesAsJavaList());
-                    allModules.addAll(ideModule.getTransitiveDependenciesAsJavaList());
+                    if (includeDependencies) {
+                        allModules.addAll(ideModule.getTransitiveDependenciesAsJavaList());
+                    }
                 }
             }
             return allModules;
@@ -168,7 +168,13 @@ public class CeylonParseController
      * The most-recently parsed token stream. May be null if 
      * this parse controller has never parsed anything.
      */
-    private List<? extends Token> tokens;
+    private volatile List<? extends Token> tokens;
+    
+    /**
+     * The view of the token list given to the phased unit 
+     * created for the most recent parse. May be null.
+     */
+    private TokenListView phasedUnitTokens;
     
     /**
      * The type checker associated with the most recent parse. 
@@ -180,6 +186,13 @@ public class CeylonParseController
     private Stage stage = Stage.NONE;
     
     private boolean dirty = true;
+    
+    /**
+     * The text of the document when the current AST was 
+     * typechecked, if it had no syntax errors, and if the 
+     * model hasn't changed since. May be null.
+     */
+    private String typecheckedCode;
      
     /**
      * @param filePath        the project-relative path of file
@@ -458,6 +471,7 @@ public class CeylonParseController
         final PhasedUnit newPhasedUnit;
         PhasedUnits phasedUnits = 
                 typeChecker.getPhasedUnits();
+        phasedUnitTokens = new TokenListView(getTokens());
         if (builtPhasedUnit instanceof ProjectPhasedUnit) {
             newPhasedUnit = 
                     newEditedPhasedUnit(file, srcDir, 
@@ -465,7 +479,7 @@ public class CeylonParseController
                             phasedUnits.getModuleManager(), 
                             (BaseIdeModuleSourceMapper)
                             phasedUnits.getModuleSourceMapper(), 
-                            typeChecker, getTokens(), 
+                            typeChecker, phasedUnitTokens, 
                             (ProjectPhasedUnit) 
                                 builtPhasedUnit);  
         }
@@ -476,7 +490,7 @@ public class CeylonParseController
                             phasedUnits.getModuleManager(),
                             (BaseIdeModuleSourceMapper)
                             phasedUnits.getModuleSourceMapper(), 
-                            typeChecker, getTokens(), 
+                            typeChecker, phasedUnitTokens, 
                             null);
             IdeModuleManager moduleManager = 
                     (IdeModuleManager)
@@ -855,6 +869,16 @@ public class CeylonParseController
     
     public void dirty() {
         dirty = true;
+        typecheckedCode = null;
+    }
+    
+    /**
+     * Like {@link #dirty()}, but only the text of the 
+     * document changed, and the model against which the 
+     * current AST was typechecked is still valid.
+     */
+    public void documentChanged() {
+        dirty = true;
     }
 
     @Override
@@ -903,6 +927,59 @@ public class CeylonParseController
     }    
     
     
+    /*
+     * When only whitespace or comments changed since the 
+     * current AST was typechecked, the AST and its 
+     * typechecking results are still valid, and only the 
+     * positions of its tokens need updating. This avoids 
+     * a full reparse and typecheck while the user is 
+     * typing comments or reformatting.
+     */
+    private boolean reconcileTypecheckedTree(String code,
+            IProgressMonitor monitor, Stager stager) {
+        String previousCode = typecheckedCode;
+        if (previousCode==null || 
+                previousCode.equals(code) ||
+                getTypecheckedPhasedUnit()==null ||
+                phasedUnitTokens==null ||
+                phasedUnit.getTokens()!=phasedUnitTokens ||
+                phasedUnitTokens.getTokens()!=tokens) {
+            //if the text didn't change, something else 
+            //did, so typecheck again
+            return false;
+        }
+        TokenReconciler reconciler = 
+                TokenReconciler.reconcile(getTokens(), 
+                        previousCode, code);
+        if (reconciler==null) {
+            return false;
+        }
+        //the old token list may be in use by other 
+        //threads, so publish a new one
+        List<CommonToken> reconciled = reconciler.apply();
+        tokens = reconciled;
+        phasedUnitTokens.setTokens(reconciled);
+        typecheckedCode = code;
+        
+        stage = LEXICAL_ANALYSIS;
+        if (stager!=null) {
+            stager.afterStage(LEXICAL_ANALYSIS, monitor);
+        }
+        stage = SYNTACTIC_ANALYSIS;
+        if (stager!=null) {
+            stager.afterStage(SYNTACTIC_ANALYSIS, monitor);
+        }
+        if (document.get().equals(code)) {
+            dirty = false;
+        }
+        stage = TYPE_ANALYSIS;
+        if (stager!=null) {
+            stager.afterStage(FOR_OUTLINE, monitor);
+            stager.afterStage(TYPE_ANALYSIS, monitor);
+        }
+        return true;
+    }
+    
     /*
      * returns true is the the last AST was parsed *and* 
      * typechecked until the end (=> stage == TYPE_ANALYSIS)
@@ -979,6 +1056,7 @@ public class CeylonParseController
                           builtPhasedUnit.getCompilationUnit();
                   tokens = 
                           builtPhasedUnit.getTokens();
+                  typecheckedCode = null;
                   
                   stage = SYNTACTIC_ANALYSIS;
                   if (stager!=null) {
@@ -1012,6 +1090,11 @@ public class CeylonParseController
       }
 
       final String code = doc.get();
+      if (reconcileTypecheckedTree(code, monitor, stager)) {
+          return phasedUnit;
+      }
+      typecheckedCode = null;
+      
       NewlineFixingStringStream stream =
               new NewlineFixingStringStream(code);
       CeylonLexer lexer = new CeylonLexer(stream);
@@ -1044,6 +1127,9 @@ public class CeylonParseController
       //      make use of it in the callback
       rootNode = cu;
 
+      final boolean wellFormed = 
+              lexer.getErrors().isEmpty() &&
+              parser.getErrors().isEmpty();
       collectLexAndParseErrors(lexer, parser, cu);
 
       stage = SYNTACTIC_ANALYSIS;
@@ -1139,6 +1225,8 @@ public class CeylonParseController
                         if (doc.get().equals(code)) {
                             dirty = false;
                         }
+                        typecheckedCode = 
+                                wellFormed ? code : null;
                         if (finalProject!=null 
                                 && !ceylonEnabled) {
                             rootNode.visit(new Visitor() {
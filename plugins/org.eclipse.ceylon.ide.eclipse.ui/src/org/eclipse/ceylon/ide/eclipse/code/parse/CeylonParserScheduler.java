@@ -25,6 +25,7 @@ import org.eclipse.jface.text.IDocument;
 import org.eclipse.ceylon.ide.eclipse.code.editor.CeylonEditor;
 import org.eclipse.ceylon.ide.eclipse.code.editor.CeylonSourceViewer;
 import org.eclipse.ceylon.ide.eclipse.code.parse.TreeLifecycleListener.Stage;
+import org.eclipse.ceylon.ide.eclipse.ui.CeylonPlugin;
 
 public class CeylonParserScheduler extends Job {
 
@@ -150,13 +151,66 @@ public class CeylonParserScheduler extends Job {
         listeners.clear();
     }
 
+    /**
+     * Notify the listeners of the given stage, in the order
+     * they were added. Consecutive {@link TreeNodeListener}s
+     * share a single traversal of the AST. When debugging, 
+     * the time spent in each listener is logged.
+     */
     private synchronized void notifyModelListeners(Stage stage, IProgressMonitor monitor) {
         if (parseController!=null) {
+            boolean timed = CeylonPlugin.getInstance().isDebugging();
+            StringBuilder report = timed ? new StringBuilder() : null;
+            List<TreeNodeListener> fused = new ArrayList<TreeNodeListener>();
             for (TreeLifecycleListener listener: new ArrayList<TreeLifecycleListener>(listeners)) {
                 if (listener.getStage()==stage) {
-                    listener.update(parseController, monitor);
+                    if (listener instanceof TreeNodeListener) {
+                        fused.add((TreeNodeListener) listener);
+                    }
+                    else {
+                        notifyFusedListeners(fused, monitor, report);
+                        long start = timed ? System.nanoTime() : 0;
+                        listener.update(parseController, monitor);
+                        if (timed) {
+                            appendTime(report, listener, System.nanoTime() - start);
+                        }
+                    }
                 }
             }
+            notifyFusedListeners(fused, monitor, report);
+            if (timed && report.length()>0) {
+                CeylonPlugin.log(IStatus.INFO, 
+                        "Reconcile listeners at stage " + stage + 
+                        " for " + editor.getEditorInput().getName() + 
+                        ":" + report);
+            }
+        }
+    }
+
+    private void notifyFusedListeners(List<TreeNodeListener> fused, 
+            IProgressMonitor monitor, StringBuilder report) {
+        if (!fused.isEmpty()) {
+            long[] times = report==null ? null : new long[fused.size()];
+            FusedTreeVisitor.update(fused, parseController, monitor, times);
+            if (times!=null) {
+                for (int i=0; i<times.length; i++) {
+                    appendTime(report, fused.get(i), times[i]);
+                }
+            }
+            fused.clear();
+        }
+    }
+
+    private static void appendTime(StringBuilder report, 
+            TreeLifecycleListener listener, long nanos) {
+        String name = listener.getClass().getSimpleName();
+        if (name.isEmpty()) {
+            name = listener.getClass().getName();
         }
+        report.append(' ')
+            .append(name)
+            .append('=')
+            .append(nanos/1000)
+            .append("us");
     }
 }
@@ -0,0 +1,182 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.code.parse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.ceylon.compiler.typechecker.tree.Message;
+import org.eclipse.ceylon.compiler.typechecker.tree.Node;
+import org.eclipse.ceylon.compiler.typechecker.tree.Tree;
+import org.eclipse.ceylon.ide.eclipse.util.ErrorVisitor;
+
+/**
+ * Walks an AST once on behalf of several
+ * {@link TreeNodeListener}s, dispatching each node to the
+ * listeners interested in its kind, and each error or
+ * warning to all the listeners.
+ *
+ * Optionally, the time spent in each listener is
+ * measured, including the time it spends preparing for
+ * and finishing the traversal. The cost of the shared
+ * traversal itself isn't attributed to any listener.
+ */
+public class FusedTreeVisitor extends ErrorVisitor {
+
+    private static final int[] NO_LISTENERS = new int[0];
+
+    private final List<? extends TreeNodeListener> listeners;
+    private final int[] indexes;
+    private final long[] times;
+    private final Map<Class<?>, int[]> dispatch =
+            new HashMap<Class<?>, int[]>();
+
+    private FusedTreeVisitor(
+            List<? extends TreeNodeListener> listeners,
+            int[] indexes, long[] times) {
+        this.listeners = listeners;
+        this.indexes = indexes;
+        this.times = times;
+    }
+
+    /**
+     * Update a single listener, walking the AST just for
+     * it.
+     */
+    public static void update(TreeNodeListener listener,
+            CeylonParseController parseController,
+            IProgressMonitor monitor) {
+        update(Collections.singletonList(listener),
+                parseController, monitor, null);
+    }
+
+    /**
+     * Update the given listeners, walking each AST they
+     * ask for just once.
+     *
+     * @param times if not null, receives the number of
+     *        nanoseconds spent in each listener
+     */
+    public static void update(
+            List<? extends TreeNodeListener> listeners,
+            CeylonParseController parseController,
+            IProgressMonitor monitor, long[] times) {
+        int size = listeners.size();
+        Tree.CompilationUnit[] roots =
+                new Tree.CompilationUnit[size];
+        for (int i=0; i<size; i++) {
+            long start = times==null ? 0 : System.nanoTime();
+            roots[i] = listeners.get(i)
+                    .beginVisit(parseController, monitor);
+            if (times!=null) {
+                times[i] += System.nanoTime() - start;
+            }
+        }
+
+        //listeners normally all ask for the same AST,
+        //but be careful anyway
+        boolean[] visited = new boolean[size];
+        for (int i=0; i<size; i++) {
+            Tree.CompilationUnit root = roots[i];
+            if (root!=null && !visited[i]) {
+                int[] group = new int[size];
+                int count = 0;
+                for (int j=i; j<size; j++) {
+                    if (roots[j]==root) {
+                        group[count++] = j;
+                        visited[j] = true;
+                    }
+                }
+                int[] indexes = new int[count];
+                System.arraycopy(group, 0, indexes, 0, count);
+                root.visit(new FusedTreeVisitor(listeners,
+                        indexes, times));
+            }
+        }
+
+        for (int i=0; i<size; i++) {
+            if (roots[i]!=null) {
+                long start = times==null ? 0 : System.nanoTime();
+                listeners.get(i)
+                    .endVisit(parseController, monitor);
+                if (times!=null) {
+                    times[i] += System.nanoTime() - start;
+                }
+            }
+        }
+    }
+
+    private int[] getListeners(Class<?> nodeType) {
+        int[] result = dispatch.get(nodeType);
+        if (result==null) {
+            List<Integer> interested = new ArrayList<Integer>();
+            for (int index: indexes) {
+                for (Class<? extends Node> type:
+                        listeners.get(index).getNodeTypes()) {
+                    if (type.isAssignableFrom(nodeType)) {
+                        interested.add(index);
+                        break;
+                    }
+                }
+            }
+            if (interested.isEmpty()) {
+                result = NO_LISTENERS;
+            }
+            else {
+                result = new int[interested.size()];
+                for (int i=0; i<result.length; i++) {
+                    result[i] = interested.get(i);
+                }
+            }
+            dispatch.put(nodeType, result);
+        }
+        return result;
+    }
+
+    @Override
+    public void visitAny(Node that) {
+        for (int index: getListeners(that.getClass())) {
+            TreeNodeListener listener = listeners.get(index);
+            if (times==null) {
+                listener.visitNode(that);
+            }
+            else {
+                long start = System.nanoTime();
+                listener.visitNode(that);
+                times[index] += System.nanoTime() - start;
+            }
+        }
+        super.visitAny(that);
+    }
+
+    @Override
+    protected void handleMessage(int startOffset, int endOffset,
+            int startCol, int startLine, Message error) {
+        for (int index: indexes) {
+            TreeNodeListener listener = listeners.get(index);
+            if (times==null) {
+                listener.handleMessage(startOffset, endOffset,
+                        startCol, startLine, error);
+            }
+            else {
+                long start = System.nanoTime();
+                listener.handleMessage(startOffset, endOffset,
+                        startCol, startLine, error);
+                times[index] += System.nanoTime() - start;
+            }
+        }
+    }
+
+}
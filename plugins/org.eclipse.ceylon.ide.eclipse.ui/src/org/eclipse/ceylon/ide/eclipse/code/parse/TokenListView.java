@@ -0,0 +1,69 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.code.parse;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.antlr.runtime.CommonToken;
+
+/**
+ * The token list of the phased unit of an editor, which
+ * reads through to the current token list of the parse
+ * controller, so that the tokens of the phased unit can be
+ * replaced in one step when they are reconciled with an
+ * edit to whitespace or comments. Iterators and sublists
+ * are taken from a single token list, even if it's
+ * replaced while they are in use.
+ */
+class TokenListView extends AbstractList<CommonToken> {
+
+    private volatile List<CommonToken> tokens;
+
+    TokenListView(List<CommonToken> tokens) {
+        this.tokens = tokens;
+    }
+
+    List<CommonToken> getTokens() {
+        return tokens;
+    }
+
+    void setTokens(List<CommonToken> tokens) {
+        this.tokens = tokens;
+    }
+
+    @Override
+    public CommonToken get(int index) {
+        return tokens.get(index);
+    }
+
+    @Override
+    public int size() {
+        return tokens.size();
+    }
+
+    @Override
+    public Iterator<CommonToken> iterator() {
+        return tokens.iterator();
+    }
+
+    @Override
+    public ListIterator<CommonToken> listIterator(int index) {
+        return tokens.listIterator(index);
+    }
+
+    @Override
+    public List<CommonToken> subList(int fromIndex, int toIndex) {
+        return tokens.subList(fromIndex, toIndex);
+    }
+
+}
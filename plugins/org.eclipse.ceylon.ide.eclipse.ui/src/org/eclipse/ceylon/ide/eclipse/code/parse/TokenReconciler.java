@@ -0,0 +1,184 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.code.parse;
+
+import static org.eclipse.ceylon.ide.eclipse.util.Nodes.getLexerType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.Token;
+
+/**
+ * Brings the tokens of an already typechecked AST up to
+ * date with an edit which doesn't change any token on the
+ * default channel, that is, an edit to whitespace or
+ * comments only.
+ *
+ * The damaged part of the text is relexed by a
+ * {@link TokenRelexer}. If the relexed tokens on the
+ * default channel have the same types and text as the old
+ * ones, a new token list is built, where the hidden tokens
+ * are new, and the default channel tokens are the old
+ * token objects, which are referenced by the AST. The old
+ * tokens and the old token list are left untouched until
+ * {@link #apply()} moves the old default channel tokens to
+ * their new positions, in one short pass, after which the
+ * new list should be published with a single reference
+ * swap. Otherwise, the document must be fully reparsed.
+ *
+ * The parser retypes some of the old tokens, so they are
+ * compared by the type the lexer gave them.
+ */
+public class TokenReconciler {
+
+    private final List<CommonToken> result;
+    /**
+     * For each token of the new list, the old token to
+     * move to its position, or null if the token of the
+     * new list is kept.
+     */
+    private final CommonToken[] originals;
+
+    private TokenReconciler(List<CommonToken> result,
+            CommonToken[] originals) {
+        this.result = result;
+        this.originals = originals;
+    }
+
+    /**
+     * Try to reconcile the given tokens of the old text of
+     * a document with its new text, returning null if the
+     * edit changed the default channel token stream. The
+     * given tokens are not modified.
+     */
+    public static TokenReconciler reconcile(
+            List<CommonToken> tokens,
+            String oldText, String newText) {
+        int size = tokens.size();
+        if (size==0 ||
+                tokens.get(size-1).getType()!=Token.EOF) {
+            return null;
+        }
+
+        //find the changed region of the text
+        int oldLength = oldText.length();
+        int newLength = newText.length();
+        int min = Math.min(oldLength, newLength);
+        int prefix = 0;
+        while (prefix<min &&
+                oldText.charAt(prefix)==newText.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix<min-prefix &&
+                oldText.charAt(oldLength-1-suffix)
+                    ==newText.charAt(newLength-1-suffix)) {
+            suffix++;
+        }
+
+        TokenRelexer relexer =
+                new TokenRelexer(tokens, newText, prefix,
+                        oldLength-suffix-prefix,
+                        newLength-suffix-prefix);
+        if (relexer.hasErrors()) {
+            return null;
+        }
+        int restart = relexer.getRestart();
+        int resync = relexer.getResync();
+        List<CommonToken> relexed = relexer.getRelexed();
+
+        //the relexed tokens must be the same as the
+        //replaced tokens, except for hidden tokens
+        List<CommonToken> replaced =
+                significant(tokens.subList(restart, resync));
+        List<CommonToken> replacing = significant(relexed);
+        if (replaced.size()!=replacing.size()) {
+            return null;
+        }
+        for (int i=0; i<replaced.size(); i++) {
+            CommonToken oldToken = replaced.get(i);
+            CommonToken newToken = replacing.get(i);
+            String oldTokenText = oldToken.getText();
+            String newTokenText = newToken.getText();
+            if (getLexerType(oldToken)!=newToken.getType() ||
+                    (oldTokenText==null ? newTokenText!=null :
+                        !oldTokenText.equals(newTokenText))) {
+                return null;
+            }
+        }
+
+        //build the new list, remembering which old
+        //tokens go where
+        List<CommonToken> shifted = relexer.getShiftedTokens();
+        List<CommonToken> result =
+                new ArrayList<CommonToken>
+                    (restart + relexed.size() + shifted.size());
+        result.addAll(tokens.subList(0, restart));
+        CommonToken[] originals =
+                new CommonToken[restart + relexed.size()
+                                + shifted.size()];
+        int next = 0;
+        for (CommonToken token: relexed) {
+            if (token.getChannel()==Token.DEFAULT_CHANNEL) {
+                originals[result.size()] = replaced.get(next++);
+            }
+            result.add(token);
+        }
+        for (int i=0; i<shifted.size(); i++) {
+            CommonToken token = shifted.get(i);
+            if (token.getChannel()==Token.DEFAULT_CHANNEL) {
+                originals[result.size()] = tokens.get(resync+i);
+            }
+            result.add(token);
+        }
+        for (int i=restart; i<result.size(); i++) {
+            result.get(i).setTokenIndex(i);
+        }
+        return new TokenReconciler(result, originals);
+    }
+
+    /**
+     * Move the old tokens referenced by the AST to their
+     * positions in the new text, and return the new token
+     * list, which replaces the old one.
+     */
+    public List<CommonToken> apply() {
+        for (int i=0; i<originals.length; i++) {
+            CommonToken original = originals[i];
+            if (original!=null) {
+                CommonToken token = result.get(i);
+                original.setStartIndex(token.getStartIndex());
+                original.setStopIndex(token.getStopIndex());
+                original.setLine(token.getLine());
+                original.setCharPositionInLine(
+                        token.getCharPositionInLine());
+                original.setTokenIndex(i);
+                original.setInputStream(token.getInputStream());
+                result.set(i, original);
+            }
+        }
+        return result;
+    }
+
+    private static List<CommonToken> significant(
+            List<CommonToken> tokens) {
+        List<CommonToken> result =
+                new ArrayList<CommonToken>(tokens.size());
+        for (CommonToken token: tokens) {
+            if (token.getChannel()==Token.DEFAULT_CHANNEL) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+}
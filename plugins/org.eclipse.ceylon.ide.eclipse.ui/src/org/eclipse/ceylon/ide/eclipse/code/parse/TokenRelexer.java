@@ -0,0 +1,236 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.code.parse;
+
+import static org.eclipse.ceylon.ide.eclipse.util.Nodes.getLexerType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.Token;
+
+import org.eclipse.ceylon.compiler.typechecker.parser.CeylonInterpolatingLexer;
+import org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer;
+import org.eclipse.ceylon.compiler.typechecker.util.NewlineFixingStringStream;
+
+/**
+ * Lexes the part of the text of a document damaged by an
+ * edit, given the tokens of the text before the edit.
+ *
+ * Lexing restarts at the last token before the edit at
+ * which the lexer is in its initial state (that is,
+ * outside any string template), and stops as soon as the
+ * new token stream lines up again with the old one after
+ * the end of the edit. The old tokens after that point are
+ * still valid once shifted, and shifted copies of them are
+ * available from {@link #getShiftedTokens()}.
+ *
+ * The old tokens are never modified, since they may still
+ * be in use by other threads.
+ */
+public class TokenRelexer {
+
+    private final List<CommonToken> tokens;
+    private final ANTLRStringStream input;
+    private final CeylonLexer lexer;
+    private final List<CommonToken> relexed =
+            new ArrayList<CommonToken>();
+    private final int restart;
+    private final int resync;
+    private final CommonToken sync;
+    private final int delta;
+
+    /**
+     * Relex the given new text of a document, whose old
+     * text had the given tokens, ending with an EOF token,
+     * after the given edit.
+     *
+     * @param offset the offset of the edit
+     * @param removed the number of characters removed
+     * @param inserted the number of characters inserted
+     */
+    public TokenRelexer(List<CommonToken> tokens, String text,
+            int offset, int removed, int inserted) {
+        this.tokens = tokens;
+        delta = inserted - removed;
+        int oldEditEnd = offset + removed;
+        int newEditEnd = offset + inserted;
+        int size = tokens.size();
+
+        //find the last token that starts before the
+        //edit, and at which we're not inside a string
+        //template
+        int start = 0;
+        int depth = 0;
+        for (int i=0; i<size; i++) {
+            CommonToken token = tokens.get(i);
+            if (token.getType()==Token.EOF ||
+                    token.getStartIndex()>offset-1) {
+                break;
+            }
+            if (depth==0) {
+                start = i;
+            }
+            depth += depthChange(token.getType());
+        }
+        restart = start;
+
+        CommonToken restartToken = tokens.get(restart);
+        input = new NewlineFixingStringStream(text);
+        input.seek(restartToken.getStartIndex());
+        input.setLine(restartToken.getLine());
+        input.setCharPositionInLine(
+                restartToken.getCharPositionInLine());
+        lexer = new CeylonLexer(input);
+        CeylonInterpolatingLexer source =
+                new CeylonInterpolatingLexer(lexer);
+
+        int old = restart;
+        int oldDepth = 0;
+        int newDepth = 0;
+        CommonToken synced = null;
+        while (true) {
+            CommonToken token =
+                    (CommonToken) source.nextToken();
+            int type = token.getType();
+            int tokenStart = token.getStartIndex();
+            if (tokenStart>=newEditEnd) {
+                //skip over old tokens which are now
+                //behind us
+                while (old<size) {
+                    CommonToken oldToken = tokens.get(old);
+                    int oldStart = oldToken.getStartIndex();
+                    if (oldStart>=oldEditEnd &&
+                            oldStart+delta>=tokenStart) {
+                        break;
+                    }
+                    oldDepth += depthChange(oldToken.getType());
+                    old++;
+                }
+                if (old<size && oldDepth==newDepth &&
+                        sameToken(tokens.get(old), token)) {
+                    //the new and old token streams are
+                    //back in sync
+                    synced = token;
+                    break;
+                }
+            }
+            relexed.add(token);
+            if (type==Token.EOF) {
+                old = size;
+                break;
+            }
+            newDepth += depthChange(type);
+        }
+        resync = old;
+        sync = synced;
+    }
+
+    /**
+     * The new input stream, for the new tokens.
+     */
+    public ANTLRStringStream getInput() {
+        return input;
+    }
+
+    /**
+     * The index of the first old token which was replaced
+     * by the relexed tokens.
+     */
+    public int getRestart() {
+        return restart;
+    }
+
+    /**
+     * The index of the first old token after the ones
+     * replaced by the relexed tokens, or the number of old
+     * tokens, if the text was relexed up to its end.
+     */
+    public int getResync() {
+        return resync;
+    }
+
+    /**
+     * The new tokens replacing the old tokens from
+     * {@link #getRestart()} to {@link #getResync()}.
+     */
+    public List<CommonToken> getRelexed() {
+        return relexed;
+    }
+
+    public boolean hasErrors() {
+        return !lexer.getErrors().isEmpty();
+    }
+
+    /**
+     * Copies of the old tokens from {@link #getResync()}
+     * on, with their offsets, lines and columns shifted to
+     * the new text.
+     */
+    public List<CommonToken> getShiftedTokens() {
+        int size = tokens.size();
+        List<CommonToken> result =
+                new ArrayList<CommonToken>(size-resync);
+        if (sync!=null) {
+            //tokens on the line where the edit ended
+            //move horizontally, the others just move
+            //vertically
+            CommonToken syncToken = tokens.get(resync);
+            int syncLine = syncToken.getLine();
+            int lineDelta = sync.getLine() - syncLine;
+            int columnDelta =
+                    sync.getCharPositionInLine() -
+                    syncToken.getCharPositionInLine();
+            for (int i=resync; i<size; i++) {
+                CommonToken token =
+                        new CommonToken(tokens.get(i));
+                if (token.getLine()==syncLine) {
+                    token.setCharPositionInLine(
+                            token.getCharPositionInLine() +
+                            columnDelta);
+                }
+                token.setLine(token.getLine()+lineDelta);
+                token.setStartIndex(token.getStartIndex()+delta);
+                token.setStopIndex(token.getStopIndex()+delta);
+                token.setInputStream(input);
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The parser retypes some of the old tokens, so they
+     * are compared by the type the lexer gave them.
+     */
+    private boolean sameToken(CommonToken oldToken,
+            CommonToken newToken) {
+        return getLexerType(oldToken)==newToken.getType() &&
+                oldToken.getChannel()==newToken.getChannel() &&
+                oldToken.getStartIndex()+delta
+                    ==newToken.getStartIndex() &&
+                oldToken.getStopIndex()+delta
+                    ==newToken.getStopIndex();
+    }
+
+    private static int depthChange(int type) {
+        switch (type) {
+        case CeylonLexer.STRING_START:
+            return 1;
+        case CeylonLexer.STRING_END:
+            return -1;
+        default:
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.code.parse;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.ceylon.compiler.typechecker.tree.Message;
+import org.eclipse.ceylon.compiler.typechecker.tree.Node;
+import org.eclipse.ceylon.compiler.typechecker.tree.Tree;
+
+/**
+ * A language service that updates by walking the AST,
+ * and only cares about some kinds of nodes. Instead of
+ * walking the AST itself, it has the nodes it's
+ * interested in pushed to it by a {@link FusedTreeVisitor},
+ * which walks the AST just once for all the listeners
+ * notified at the same stage.
+ *
+ * @see FusedTreeVisitor#update(TreeNodeListener,
+ *          CeylonParseController, IProgressMonitor)
+ */
+public interface TreeNodeListener extends TreeLifecycleListener {
+
+    /**
+     * @return the kinds of node the listener wants to see
+     */
+    public List<Class<? extends Node>> getNodeTypes();
+
+    /**
+     * Prepare for a traversal of the AST.
+     *
+     * @return the AST to be visited, or null if the
+     *         listener has nothing to do this time
+     */
+    public Tree.CompilationUnit beginVisit(
+            CeylonParseController parseController,
+            IProgressMonitor monitor);
+
+    /**
+     * Visit a node of one of the kinds returned by
+     * {@link #getNodeTypes()}. Nodes are visited in
+     * document order, parents before their children.
+     */
+    public void visitNode(Node node);
+
+    /**
+     * Handle an error or warning attached to a node of the
+     * AST, whatever its kind.
+     */
+    public void handleMessage(int startOffset, int endOffset,
+            int startCol, int startLine, Message error);
+
+    /**
+     * Finish the update after the traversal of the AST.
+     */
+    public void endVisit(
+            CeylonParseController parseController,
+            IProgressMonitor monitor);
+
+}
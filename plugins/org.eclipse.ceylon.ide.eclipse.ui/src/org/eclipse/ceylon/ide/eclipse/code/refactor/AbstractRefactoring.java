@@ -9,7 +9,10 @@
  ********************************************************************************/
 package org.eclipse.ceylon.ide.eclipse.code.refactor;
 
+import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.getModelGeneration;
 import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.getUnits;
+import static org.eclipse.ceylon.ide.eclipse.core.builder.IdentifierIndex.getSearchIdentifier;
+import static org.eclipse.ceylon.ide.eclipse.core.builder.IdentifierIndex.mayMention;
 import static org.eclipse.ceylon.ide.eclipse.util.EditorUtil.getSelection;
 import static org.eclipse.ceylon.ide.eclipse.util.Nodes.findNode;
 
@@ -49,6 +52,7 @@ import org.eclipse.ceylon.ide.common.typechecker.ModifiablePhasedUnit;
 import org.eclipse.ceylon.ide.common.typechecker.ProjectPhasedUnit;
 import org.eclipse.ceylon.model.typechecker.model.Declaration;
 import org.eclipse.ceylon.model.typechecker.model.Package;
+import org.eclipse.ceylon.model.typechecker.model.Referenceable;
 import org.eclipse.ceylon.model.typechecker.model.Unit;
 
 abstract class AbstractRefactoring extends Refactoring {
@@ -60,6 +64,9 @@ abstract class AbstractRefactoring extends Refactoring {
     final CeylonEditor editor;
     final Tree.CompilationUnit rootNode;
     Node node;
+    
+    private List<PhasedUnit> searchUnits;
+    private long searchUnitsGeneration;
    
     /*public AbstractRefactoring(IQuickFixInvocationContext context) {
         sourceFile = context.getModel().getFile();
@@ -193,12 +200,50 @@ abstract class AbstractRefactoring extends Refactoring {
         return units;
     }
     
+    /**
+     * The declaration whose name a unit must mention to be 
+     * affected by this refactoring, or null if any unit 
+     * may be affected.
+     */
+    Referenceable getRefactoredDeclaration() {
+        return null;
+    }
+    
+    /**
+     * Returns the units of {@link #getAllUnits()} which 
+     * might mention the {@link #getRefactoredDeclaration() 
+     * refactored declaration}, according to the identifier 
+     * index. They're remembered between counting the 
+     * occurrences and creating the change, for as long as 
+     * the builder hasn't typechecked anything since.
+     */
+    protected List<PhasedUnit> getSearchUnits() {
+        long generation = getModelGeneration();
+        if (searchUnits==null || 
+                searchUnitsGeneration!=generation) {
+            String identifier = 
+                    getSearchIdentifier(
+                            getRefactoredDeclaration());
+            List<PhasedUnit> units = 
+                    new ArrayList<PhasedUnit>();
+            for (PhasedUnit pu: getAllUnits()) {
+                //skip units which don't even mention the name
+                if (mayMention(pu, identifier)) {
+                    units.add(pu);
+                }
+            }
+            searchUnits = units;
+            searchUnitsGeneration = generation;
+        }
+        return searchUnits;
+    }
+    
     protected abstract boolean isAffectingOtherFiles();
 
     protected int countDeclarationOccurrences() {
         int count = 0;
         if (isAffectingOtherFiles()) {
-            for (PhasedUnit pu: getAllUnits()) {
+            for (PhasedUnit pu: getSearchUnits()) {
                 if (searchInFile(pu)) {
                     count += countReferences(pu.getCompilationUnit());
                 }
@@ -228,9 +273,12 @@ abstract class AbstractRefactoring extends Refactoring {
         
         int i=0;
         if (isAffectingOtherFiles()) {
-            List<PhasedUnit> units = getAllUnits();
+            List<PhasedUnit> units = getSearchUnits();
             pm.beginTask(getName(), units.size());
             for (PhasedUnit pu: units) {
+                if (pm.isCanceled()) {
+                    throw new OperationCanceledException();
+                }
                 if (searchInFile(pu)) {
                     ProjectPhasedUnit ppu = 
                             (ProjectPhasedUnit) pu;
@@ -276,6 +276,11 @@ public class ChangeParametersRefactoring extends AbstractRefactoring {
                 0 : countDeclarationOccurrences();
     }
 
+    @Override
+    Declaration getRefactoredDeclaration() {
+        return declaration;
+    }
+    
     @Override
     int countReferences(Tree.CompilationUnit cu) {
         FindInvocationsVisitor frv = 
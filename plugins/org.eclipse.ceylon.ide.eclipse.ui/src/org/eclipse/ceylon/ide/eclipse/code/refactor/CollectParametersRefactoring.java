@@ -176,6 +176,11 @@ public class CollectParametersRefactoring extends AbstractRefactoring {
                 !parameters.isEmpty();
     }
     
+    @Override
+    Declaration getRefactoredDeclaration() {
+        return declaration;
+    }
+    
     @Override
     int countReferences(Tree.CompilationUnit cu) {
         FindInvocationsVisitor frv = 
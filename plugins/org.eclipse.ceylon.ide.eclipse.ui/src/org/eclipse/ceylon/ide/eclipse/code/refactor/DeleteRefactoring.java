@@ -259,10 +259,15 @@ public class DeleteRefactoring extends AbstractRefactoring {
                 0 : countDeclarationOccurrences();
     }
     
+    @Override
+    Declaration getRefactoredDeclaration() {
+        return declarationToDelete;
+    }
+    
     int countRefinements() {
         int count = 0;
         if (isAffectingOtherFiles()) {
-            for (PhasedUnit pu: getAllUnits()) {
+            for (PhasedUnit pu: getSearchUnits()) {
                 if (searchInFile(pu)) {
                     count += countRefinements(pu.getCompilationUnit());
                 }
@@ -284,7 +289,7 @@ public class DeleteRefactoring extends AbstractRefactoring {
     int countUsages() {
         int count = 0;
         if (isAffectingOtherFiles()) {
-            for (PhasedUnit pu: getAllUnits()) {
+            for (PhasedUnit pu: getSearchUnits()) {
                 if (searchInFile(pu)) {
                     count += countUsages(pu.getCompilationUnit());
                 }
@@ -518,7 +523,7 @@ public class DeleteRefactoring extends AbstractRefactoring {
         List<CeylonSearchMatch> list = 
                 new ArrayList<CeylonSearchMatch>();
         if (isAffectingOtherFiles()) {
-            for (PhasedUnit pu: getAllUnits()) {
+            for (PhasedUnit pu: getSearchUnits()) {
                 if (searchInFile(pu)) {
                     addReferences(pu.getCompilationUnit(), list, pu);
                 }
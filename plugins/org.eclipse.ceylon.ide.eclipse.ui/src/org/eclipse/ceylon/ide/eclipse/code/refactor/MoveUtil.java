@@ -11,6 +11,8 @@ package org.eclipse.ceylon.ide.eclipse.code.refactor;
 
 import static org.eclipse.ceylon.ide.eclipse.code.correct.ImportProposals.importProposals;
 import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.getUnits;
+import static org.eclipse.ceylon.ide.eclipse.core.builder.IdentifierIndex.getSearchIdentifier;
+import static org.eclipse.ceylon.ide.eclipse.core.builder.IdentifierIndex.mayMention;
 import static org.eclipse.ceylon.ide.eclipse.java2ceylon.Java2CeylonProxies.utilJ2C;
 import static org.eclipse.ceylon.ide.eclipse.java2ceylon.Java2CeylonProxies.vfsJ2C;
 import static org.eclipse.ceylon.ide.eclipse.util.EditorUtil.getCurrentEditor;
@@ -176,7 +178,8 @@ public class MoveUtil {
             String originalPackage, String targetPackage) {
         if (!originalPackage.equals(targetPackage)) {
             List<PhasedUnit> units = 
-                    getAllUnits(originalFile.getProject());
+                    getAllUnits(originalFile.getProject(),
+                            node.getDeclarationModel());
             for (PhasedUnit pu: units) {
 //                if (!node.getUnit().equals(pu.getUnit())) {
                     IFile file = 
@@ -212,7 +215,7 @@ public class MoveUtil {
         if (!dec.isShared() 
                 && !originalPackage.equals(targetPackage)) {
             List<PhasedUnit> units = 
-                    getAllUnits(originalFile.getProject());
+                    getAllUnits(originalFile.getProject(), dec);
             for (PhasedUnit pu: units) {
                 Tree.CompilationUnit cu = 
                         pu.getCompilationUnit();
@@ -494,6 +497,23 @@ public class MoveUtil {
         return units;
     }
 
+    /**
+     * Returns the units of the given project and its 
+     * referencing projects which might mention the given 
+     * declaration, according to the identifier index.
+     */
+    static List<PhasedUnit> getAllUnits(IProject project, 
+            Declaration dec) {
+        String identifier = getSearchIdentifier(dec);
+        List<PhasedUnit> units = new ArrayList<PhasedUnit>();
+        for (PhasedUnit pu: getAllUnits(project)) {
+            if (mayMention(pu, identifier)) {
+                units.add(pu);
+            }
+        }
+        return units;
+    }
+
     static IStructuredSelection getSelection() {
         IEditorPart ed = getCurrentEditor();
         if (ed!=null) {
@@ -291,6 +291,11 @@ public class RenameRefactoring extends AbstractRefactoring {
             countDeclarationOccurrences();
     }
     
+    @Override
+    Declaration getRefactoredDeclaration() {
+        return declaration;
+    }
+    
     @Override
     int countReferences(Tree.CompilationUnit cu) {
         FindRenamedReferencesVisitor frv = 
@@ -12,6 +12,7 @@ package org.eclipse.ceylon.ide.eclipse.code.search;
 import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.getCeylonClassesOutputFolder;
 import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.getProjectTypeChecker;
 import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.getUnit;
+import static org.eclipse.ceylon.ide.eclipse.core.builder.IdentifierIndex.getSearchIdentifier;
 import static org.eclipse.ceylon.ide.eclipse.util.DocLinks.nameRegion;
 import static org.eclipse.ceylon.ide.eclipse.util.EditorUtil.getActivePage;
 import static org.eclipse.ceylon.ide.eclipse.util.JavaSearch.createSearchPattern;
@@ -20,7 +21,10 @@ import static org.eclipse.ceylon.ide.eclipse.util.JavaSearch.runSearch;
 import static org.eclipse.ceylon.ide.eclipse.util.InteropUtils.toJavaString;
 import static java.util.Arrays.asList;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -52,6 +56,7 @@ import org.eclipse.ceylon.compiler.typechecker.tree.Tree;
 import org.eclipse.ceylon.ide.eclipse.code.editor.CeylonEditor;
 import org.eclipse.ceylon.ide.eclipse.code.parse.CeylonParseController;
 import org.eclipse.ceylon.ide.eclipse.core.builder.CeylonNature;
+import org.eclipse.ceylon.ide.eclipse.core.builder.IdentifierIndex;
 import org.eclipse.ceylon.ide.eclipse.util.Filters;
 import org.eclipse.ceylon.ide.common.model.CeylonBinaryUnit;
 import org.eclipse.ceylon.ide.common.model.CeylonProject;
@@ -74,6 +79,7 @@ abstract class FindSearchQuery implements ISearchQuery {
     private IWorkbenchPage page;
     private String name;
     private IProject project;
+    private Set<String> searchIdentifiers;
     
     FindSearchQuery(Referenceable referencedDeclaration, 
             IProject project) {
@@ -131,7 +137,9 @@ abstract class FindSearchQuery implements ISearchQuery {
                 List<PhasedUnit> phasedUnits = 
                         typeChecker.getPhasedUnits()
                             .getPhasedUnits();
-                findInUnits(phasedUnits, monitor);
+                findInUnits(
+                        getCandidateUnits(project, phasedUnits), 
+                        monitor);
                 monitor.worked(1);
                 if (monitor.isCanceled()) {
                     throw new OperationCanceledException();
@@ -164,7 +172,8 @@ abstract class FindSearchQuery implements ISearchQuery {
                                     mod.getAllReachablePackages()
                                         .contains(pack)) {
                                 findInUnits(
-                                        module.getPhasedUnitsAsJavaList(), 
+                                        getCandidateUnits(null,
+                                                module.getPhasedUnitsAsJavaList()), 
                                         monitor);
                                 monitor.worked(1);
                                 if (monitor.isCanceled()) {
@@ -178,6 +187,75 @@ abstract class FindSearchQuery implements ISearchQuery {
         }
     }
 
+    /**
+     * Returns the units which might mention the searched
+     * declaration, according to the identifier index, 
+     * along with the units open in dirty editors.
+     * 
+     * @param project the project of the units, or null
+     *        for the units of an archive
+     */
+    private List<? extends PhasedUnit> getCandidateUnits(
+            IProject project, 
+            List<? extends PhasedUnit> units) {
+        if (searchIdentifiers==null) {
+            searchIdentifiers = 
+                    getSearchIdentifiers(referencedDeclaration);
+        }
+        if (searchIdentifiers.isEmpty()) {
+            return units;
+        }
+        Set<PhasedUnit> candidates = 
+                new LinkedHashSet<PhasedUnit>();
+        for (String identifier: searchIdentifiers) {
+            candidates.addAll(
+                    IdentifierIndex.getCandidateUnits(
+                            project, units, identifier));
+        }
+        List<PhasedUnit> result = 
+                new ArrayList<PhasedUnit>(candidates);
+        Set<Unit> dirtyUnits = getDirtyEditorUnits();
+        if (!dirtyUnits.isEmpty()) {
+            for (PhasedUnit pu: units) {
+                if (dirtyUnits.contains(pu.getUnit()) &&
+                        !candidates.contains(pu)) {
+                    result.add(pu);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the identifiers of which every unit with a
+     * match must mention at least one, or an empty set if 
+     * every unit must be searched.
+     */
+    Set<String> getSearchIdentifiers(
+            Referenceable referencedDeclaration) {
+        String identifier = 
+                getSearchIdentifier(referencedDeclaration);
+        return identifier==null ? 
+                Collections.<String>emptySet() :
+                Collections.singleton(identifier);
+    }
+    
+    private Set<Unit> getDirtyEditorUnits() {
+        Set<Unit> result = new HashSet<Unit>();
+        for (IEditorPart editor: page.getDirtyEditors()) {
+            if (editor instanceof CeylonEditor) {
+                CeylonEditor ce = (CeylonEditor) editor;
+                Tree.CompilationUnit rootNode = 
+                        ce.getParseController()
+                            .getLastCompilationUnit();
+                if (rootNode!=null) {
+                    result.add(rootNode.getUnit());
+                }
+            }
+        }
+        return result;
+    }
+
     private Package getPackage() {
         if (referencedDeclaration instanceof Declaration) {
             return referencedDeclaration.getUnit()
@@ -12,6 +12,7 @@ package org.eclipse.ceylon.ide.eclipse.code.search;
 import static org.eclipse.ceylon.ide.eclipse.ui.CeylonPlugin.PLUGIN_ID;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 
 import org.eclipse.core.resources.IProject;
@@ -25,6 +26,7 @@ import org.eclipse.ceylon.model.typechecker.model.TypeDeclaration;
 import org.eclipse.ceylon.model.typechecker.model.TypeParameter;
 import org.eclipse.ceylon.compiler.typechecker.tree.Node;
 import org.eclipse.ceylon.compiler.typechecker.tree.Tree;
+import org.eclipse.ceylon.ide.eclipse.core.builder.SubtypeIndex;
 import org.eclipse.ceylon.ide.common.util.FindSubtypesVisitor;
 
 public class FindSubtypesAction extends AbstractFindAction {
@@ -46,6 +48,30 @@ public class FindSubtypesAction extends AbstractFindAction {
             return Collections.<Node>unmodifiableSet(nodes);
         }
 
+        @Override
+        Set<String> getSearchIdentifiers(
+                Referenceable referencedDeclaration) {
+            //a unit declaring an indirect subtype only 
+            //needs to mention the name of its direct
+            //supertype, which is itself a subtype
+            Set<String> identifiers = 
+                    super.getSearchIdentifiers(
+                            referencedDeclaration);
+            if (!identifiers.isEmpty()) {
+                TypeDeclaration type = 
+                        (TypeDeclaration) 
+                            referencedDeclaration;
+                identifiers = 
+                        new HashSet<String>(identifiers);
+                for (TypeDeclaration subtype: 
+                        SubtypeIndex.getSubtypes(type,
+                                SubtypeIndex.getPackagesSeeing(type))) {
+                    identifiers.add(subtype.getName());
+                }
+            }
+            return identifiers;
+        }
+
         @Override
         int limitTo() {
             return IJavaSearchConstants.IMPLEMENTORS;
@@ -12,6 +12,8 @@ package org.eclipse.ceylon.ide.eclipse.code.search;
 import static org.eclipse.ceylon.ide.eclipse.code.editor.Navigation.gotoFile;
 import static org.eclipse.ceylon.ide.eclipse.code.open.OpenDeclarationDialog.isMatchingGlob;
 import static org.eclipse.ceylon.ide.eclipse.code.preferences.CeylonPreferenceInitializer.FULL_LOC_SEARCH_RESULTS;
+import static org.eclipse.ceylon.ide.eclipse.core.builder.IdentifierIndex.getSearchIdentifier;
+import static org.eclipse.ceylon.ide.eclipse.core.builder.IdentifierIndex.mayMention;
 import static org.eclipse.ceylon.ide.eclipse.ui.CeylonPlugin.PLUGIN_ID;
 import static org.eclipse.ceylon.ide.eclipse.ui.CeylonPlugin.imageRegistry;
 import static org.eclipse.ceylon.ide.eclipse.ui.CeylonResources.CEYLON_DECS;
@@ -958,6 +960,10 @@ public final class ReferencesPopup extends PopupDialog
                 pc.getTypeChecker()
                     .getPhasedUnits()
                     .getPhasedUnits();
+        String identifier = 
+                showingRefinements && type ? 
+                        null : //subtypes have their own names
+                        getSearchIdentifier(declaration);
         for (PhasedUnit pu: phasedUnits) {
             Tree.CompilationUnit cu = 
                     pu.getCompilationUnit();
@@ -966,6 +972,9 @@ public final class ReferencesPopup extends PopupDialog
                 //search in the current dirty editor
                 cu = pc.getLastCompilationUnit();
             }
+            else if (!mayMention(pu, identifier)) {
+                continue;
+            }
             Unit u = cu.getUnit();
             TreeNode unitNode = new TreeNode(u);
             List<TreeNode> unitList = 
@@ -47,6 +47,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -103,6 +104,7 @@ import org.eclipse.ui.console.IConsoleManager;
 import org.eclipse.ui.console.MessageConsole;
 import org.eclipse.ui.console.MessageConsoleStream;
 import org.eclipse.ui.editors.text.TextFileDocumentProvider;
+import org.osgi.framework.Bundle;
 
 import org.eclipse.ceylon.cmr.api.ArtifactContext;
 import org.eclipse.ceylon.cmr.api.ArtifactCreator;
@@ -162,7 +164,6 @@ import org.eclipse.ceylon.ide.common.model.CeylonUnit;
 import org.eclipse.ceylon.ide.common.model.IJavaModelAware;
 import org.eclipse.ceylon.ide.common.model.IResourceAware;
 import org.eclipse.ceylon.ide.common.model.IdeModelLoader;
-import org.eclipse.ceylon.ide.common.model.JavaCompilationUnit;
 import org.eclipse.ceylon.ide.common.model.JavaUnit;
 import org.eclipse.ceylon.ide.common.model.ModuleDependencies;
 import org.eclipse.ceylon.ide.common.model.ProjectSourceFile;
@@ -343,14 +344,15 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
 
     private static class BuildFileManager extends CeyloncFileManager {
         private final IProject project;
-        final boolean explodeModules;
+        private final ExplodedClassWriter explodedClassWriter;
         private Map<RegularFileObject, Set<String>> inputFilesToGenerate = null;
         
         private BuildFileManager(org.eclipse.ceylon.langtools.tools.javac.util.Context context,
-                boolean register, Charset charset, IProject project, Map<RegularFileObject, Set<String>> inputFilesToGenerate) {
+                boolean register, Charset charset, IProject project, Map<RegularFileObject, Set<String>> inputFilesToGenerate,
+                ExplodedClassWriter explodedClassWriter) {
             super(context, register, charset);
             this.project = project;
-            explodeModules = isExplodeModulesEnabled(project);
+            this.explodedClassWriter = explodedClassWriter;
             this.inputFilesToGenerate = inputFilesToGenerate;
         }
 
@@ -393,14 +395,13 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                 }
             }
             JavaFileObject javaFileObject = super.getFileForOutput(location, fileName, sibling);
-            if (explodeModules && 
+            if (explodedClassWriter != null && 
                     javaFileObject instanceof JarEntryFileObject && 
                     sibling instanceof CeylonFileObject) {
                 final File ceylonOutputDirectory = getCeylonClassesOutputDirectory(project);
                 final File classFile = fileName.getFile(ceylonOutputDirectory);
-                classFile.getParentFile().mkdirs();
                 return new ExplodingJavaFileObject(classFile, fileName,
-                        javaFileObject);
+                        javaFileObject, explodedClassWriter);
             }
             return javaFileObject;
         }
@@ -476,9 +477,27 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
 
     private static Set<IProject> containersInitialized = new HashSet<IProject>();
 
+    private static final AtomicLong modelGeneration = new AtomicLong();
+
+    /**
+     * The writer of the exploded class files during the
+     * generation of binaries, if modules are exploded.
+     */
+    private ExplodedClassWriter explodedClassWriter;
+
     public static final String CEYLON_CONSOLE= "Ceylon Build";
     //private long startTime;
 
+    /**
+     * A counter incremented each time the builder has
+     * typechecked some units, or removed a project, so that
+     * information derived from the model, like rendered
+     * documentation, can tell when it might be outdated.
+     */
+    public static long getModelGeneration() {
+        return modelGeneration.get();
+    }
+
     public static boolean isModelTypeChecked(IProject project) {
         BaseCeylonProject ceylonProject = modelJ2C().ceylonModel().getProject(project);
         if (ceylonProject != null) {
@@ -863,6 +882,8 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                     throw new OperationCanceledException();
                 }
                 
+                MarkerSnapshot.buildStarted(project);
+                
                 if (mustResolveClasspathContainer.value) {
                     if (cpContainers != null) {
                         buildHook.resolvingClasspathContainer(cpContainers);
@@ -888,8 +909,10 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                     throw new OperationCanceledException();
                 }
                 
+                final String buildEnvironment = getBuildEnvironment(project, javaProject);
                 final TypeChecker typeChecker;
                 Collection<IFile> filesForBinaryGeneration = Collections.emptyList();
+                Collection<IFile> filesTypechecked = Collections.emptyList();
     
                 if (mustDoFullBuild.value) {
                     ceylonMonitor.changeTaskName("Full Ceylon build of project " + project.getName());
@@ -933,6 +956,7 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                     ceylonMonitor.subTask("Typechecking all source  files of project " + project.getName());
                     builtPhasedUnits = fullTypeCheck(ceylonProject, typeChecker, 
                             ceylonMonitor.newChild(300));
+                    modelGeneration.incrementAndGet();
     
                     if (ceylonMonitor.isCancelled()) {
                         throw new OperationCanceledException();
@@ -967,15 +991,26 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                             throw new OperationCanceledException();
                         }
     
+                        //the markers of the files which didn't
+                        //change since the last build of the 
+                        //previous session are still correct
+                        Set<IFile> upToDateFiles = 
+                                MarkerSnapshot.getUpToDateFiles(project, 
+                                        getFiles(phasedUnits.getPhasedUnits()), 
+                                        buildEnvironment);
+                        
                         ceylonMonitor.subTask("Clearing existing markers of project (except backend errors)" + project.getName());
                         clearProjectMarkers(project, true, false);
-                        clearMarkersOn(project, false);
+                        if (upToDateFiles.isEmpty()) {
+                            clearMarkersOn(project, false);
+                        }
                         ceylonMonitor.worked(1);
     
                         ceylonMonitor.subTask("Initial typechecking all source files of project " + project.getName());
                         
                         builtPhasedUnits = fullTypeCheck(ceylonProject, typeChecker, 
                                         ceylonMonitor.newChild(170));
+                        modelGeneration.incrementAndGet();
     
                         if (ceylonMonitor.isCancelled()) {
                             throw new OperationCanceledException();
@@ -984,11 +1019,26 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                         ceylonMonitor.subTask("Collecting dependencies of project " + project.getName());
     //                  getConsoleStream().println(timedMessage("Collecting dependencies"));
                         collectDependencies(project, typeChecker, builtPhasedUnits);
+                        MarkerSnapshot.recordDependencies(project, getFiles(builtPhasedUnits));
+                        SubtypeIndex.update(builtPhasedUnits);
+                        PackageNameIndex.update(builtPhasedUnits);
                         ceylonMonitor.worked(17);
                         
                         ceylonMonitor.subTask("Collecting problems for project " 
                                 + project.getName());
-                        addProblemAndTaskMarkers(builtPhasedUnits, project);
+                        if (upToDateFiles.isEmpty()) {
+                            addProblemAndTaskMarkers(builtPhasedUnits, project);
+                        }
+                        else {
+                            List<PhasedUnit> outdatedPhasedUnits = 
+                                    new ArrayList<PhasedUnit>();
+                            for (PhasedUnit pu: builtPhasedUnits) {
+                                if (!upToDateFiles.contains(getFile(pu))) {
+                                    outdatedPhasedUnits.add(pu);
+                                }
+                            }
+                            addProblemAndTaskMarkers(outdatedPhasedUnits, project);
+                        }
                         ceylonMonitor.worked(3);
                     }
                     
@@ -1008,6 +1058,7 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                         
                     ceylonMonitor.subTask("Cleaning files and markers for project " + project.getName());
                     cleanRemovedFilesFromCeylonModel(filesToRemove, phasedUnits, ceylonProject);
+                    MarkerSnapshot.removeFiles(project, filesToRemove);
                     ceylonMonitor.worked(3);
                     cleanRemovedFilesFromOutputs(filesToRemove, ceylonProject);
                     ceylonMonitor.worked(4);
@@ -1020,7 +1071,10 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                     
                     clearProjectMarkers(project, true, false);
                     ceylonMonitor.worked(1);
-                    clearMarkersOn(filesToTypecheck, true);
+                    //the problem and task markers of the files
+                    //to typecheck are replaced when collecting
+                    //problems, only touching those that changed
+                    clearMarkersOn(filesToTypecheck, true, true);
                     ceylonMonitor.worked(1);
                     clearMarkersOn(filesToCompile, true, true);
                     ceylonMonitor.worked(1);
@@ -1036,7 +1090,10 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                         }
                     });
                     
+                    modelGeneration.incrementAndGet();
+                    
                     if (builtPhasedUnits.isEmpty() && filesToTypecheck.isEmpty() && filesToCompile.isEmpty()) {
+                        MarkerSnapshot.buildFinished(project, buildEnvironment);
                         return project.getReferencedProjects();
                     }
                     
@@ -1047,6 +1104,7 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                     buildHook.incrementalBuildResult(builtPhasedUnits);
     
                     filesForBinaryGeneration = filesToCompile;
+                    filesTypechecked = filesToTypecheck;
                 
                 }
                 
@@ -1056,7 +1114,8 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                 
                 ceylonMonitor.subTask("Collecting problems for project " 
                         + project.getName());
-                addProblemAndTaskMarkers(builtPhasedUnits, project);
+                addProblemAndTaskMarkers(builtPhasedUnits, project, 
+                        filesTypechecked);
                 ceylonMonitor.worked(3);
     
                 if (ceylonMonitor.isCancelled()) {
@@ -1066,6 +1125,13 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                 ceylonMonitor.subTask("Collecting dependencies of project " + project.getName());
     //            getConsoleStream().println(timedMessage("Collecting dependencies"));
                 collectDependencies(project, typeChecker, builtPhasedUnits);
+                MarkerSnapshot.recordFiles(project, getFiles(builtPhasedUnits));
+                IdentifierIndex.update(project, 
+                        typeChecker.getPhasedUnits().getPhasedUnits());
+                DeclarationNameIndex.update(project, 
+                        typeChecker.getPhasedUnits().getPhasedUnits());
+                SubtypeIndex.update(builtPhasedUnits);
+                PackageNameIndex.update(builtPhasedUnits);
                 ceylonMonitor.worked(17);
         
                 if (ceylonMonitor.isCancelled()) {
@@ -1077,21 +1143,41 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                 
                 final Collection<IFile> filesToProcess = filesForBinaryGeneration;
                 final Collection<PhasedUnit> unitsTypecheckedIncrementally = mustDoFullBuild.value ? Collections.<PhasedUnit>emptyList() : builtPhasedUnits;
-                cleanChangedFilesFromExplodedDirectory(filesToProcess, ceylonProject);
-                doWithCeylonModelCaching(new Callable<Boolean>() {
-                    @Override
-                    public Boolean call() throws CoreException {
-                        return generateBinaries(javaProject, unitsTypecheckedIncrementally,
-                                filesToProcess, typeChecker, 
-                                ceylonMonitor.newChild(370));
+                final ExplodedClassWriter explodedClassWriter = 
+                        isExplodeModulesEnabled(project) ? 
+                                new ExplodedClassWriter(
+                                        getExplodedClassFiles(filesToProcess, ceylonProject)) : 
+                                null;
+                this.explodedClassWriter = explodedClassWriter;
+                try {
+                    doWithCeylonModelCaching(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws CoreException {
+                            return generateBinaries(javaProject, unitsTypecheckedIncrementally,
+                                    filesToProcess, typeChecker, 
+                                    ceylonMonitor.newChild(370));
+                        }
+                    });
+                }
+                finally {
+                    this.explodedClassWriter = null;
+                    if (explodedClassWriter != null) {
+                        explodedClassWriter.finish(project);
+                        if (getVerbose(project)!=null) {
+                            getConsoleStream().println("Wrote " + explodedClassWriter.getRewritten() 
+                                    + " and skipped " + explodedClassWriter.getSkipped() 
+                                    + " unchanged exploded class files of project " + project.getName());
+                        }
                     }
-                });
+                }
                 buildHook.afterGeneratingBinaries();
               
                 if (ceylonMonitor.isCancelled()) {
                     throw new OperationCanceledException();
                 }
     
+                MarkerSnapshot.buildFinished(project, buildEnvironment);
+                
                 if (isExplodeModulesEnabled(project)) {
                     ceylonMonitor.subTask("Rebuilding using exploded modules directory of " + project.getName());
                     sheduleIncrementalRebuild(args, project, ceylonMonitor.newChild(10));
@@ -1286,9 +1372,94 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
         }
     }
 
+    private static IFile getFile(PhasedUnit phasedUnit) {
+        return ((ProjectPhasedUnit<IProject,IResource,IFolder,IFile>) phasedUnit)
+                .getResourceFile();
+    }
+
+    private static List<IFile> getFiles(List<PhasedUnit> phasedUnits) {
+        List<IFile> files = new ArrayList<IFile>(phasedUnits.size());
+        for (PhasedUnit phasedUnit: phasedUnits) {
+            files.add(getFile(phasedUnit));
+        }
+        return files;
+    }
+
+    /**
+     * The bundles whose code decides which problems a build
+     * reports.
+     */
+    private static final String[] BUILD_BUNDLES = {
+        PLUGIN_ID,
+        "org.eclipse.ceylon.ide.common",
+        "org.eclipse.ceylon.typechecker",
+        "org.eclipse.ceylon.model",
+        "org.eclipse.ceylon.compiler.java"
+    };
+    
+    /**
+     * A description of the plugin versions, classpath and 
+     * settings which affect the problems reported by a 
+     * build, used to tell if the marker snapshot of the 
+     * previous build is still valid.
+     */
+    private static String getBuildEnvironment(IProject project, 
+            IJavaProject javaProject) {
+        StringBuilder environment = new StringBuilder();
+        for (String id: BUILD_BUNDLES) {
+            Bundle bundle = Platform.getBundle(id);
+            environment.append(id).append(' ')
+                .append(bundle==null ? null : bundle.getVersion())
+                .append('\n');
+        }
+        environment.append(getSuppressedWarnings(project));
+        CeylonProject<IProject,IResource,IFolder,IFile> ceylonProject = 
+                modelJ2C().ceylonModel().getProject(project);
+        if (ceylonProject!=null) {
+            CeylonProjectConfig config = 
+                    ceylonProject.getConfiguration();
+            environment
+                .append('\n').append(toJavaString(config.getOverrides()))
+                .append('\n').append(toJavaString(config.getJdkProvider()))
+                .append('\n').append(config.getFlatClasspath())
+                .append('\n').append(config.getAutoExportMavenDependencies())
+                .append('\n').append(config.getFullyExportMavenDependencies());
+        }
+        //the other compiler and IDE settings of the project
+        IFolder configFolder = project.getFolder(".ceylon");
+        try {
+            if (configFolder.exists()) {
+                for (IResource member: configFolder.members()) {
+                    environment.append('\n')
+                        .append(member.getFullPath()).append(' ')
+                        .append(member.getLocalTimeStamp());
+                }
+            }
+        }
+        catch (CoreException e) {
+            e.printStackTrace();
+        }
+        try {
+            for (IClasspathEntry entry: javaProject.getResolvedClasspath(true)) {
+                IPath path = entry.getPath();
+                environment.append('\n').append(path);
+                File file = path.toFile();
+                if (file.exists()) {
+                    environment.append(' ').append(file.lastModified());
+                }
+            }
+        }
+        catch (JavaModelException e) {
+            e.printStackTrace();
+        }
+        return environment.toString();
+    }
+
     private void collectDependencies(IProject project, TypeChecker typeChecker,
             List<PhasedUnit> builtPhasedUnits) throws CoreException {
         for (PhasedUnit pu : builtPhasedUnits) {
+            UnitDependencyGraph.clearDependencies(
+                    UnitDependencyGraph.getFile(pu.getUnit()));
             new UnitDependencyVisitor(pu).visit(pu.getCompilationUnit());
         }
     }
@@ -1296,6 +1467,7 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
     private void cleanRemovedFilesFromCeylonModel(Collection<IFile> filesToRemove,
             PhasedUnits phasedUnits, CeylonProject<IProject, IResource, IFolder, IFile> project) {
         for (IFile fileToRemove: filesToRemove) {
+            UnitDependencyGraph.removeFile(fileToRemove);
             if(isCeylon(fileToRemove)) {
                 // Remove the ceylon phasedUnit (which will also remove the unit from the package)
                 PhasedUnit phasedUnitToDelete = phasedUnits.getPhasedUnit(vfsJ2C().createVirtualResource(fileToRemove, project.getIdeArtifact()));
@@ -1332,15 +1504,13 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
 
         if (!changedFiles.isEmpty()) {
             Set<IFile> allTransitivelyDependingFiles = searchForDependantFiles(
-                    project, changedFiles, typeChecker, cancellable,
-                    false);
+                    changedFiles, cancellable, false);
 
             Set<IFile> dependingFilesAccordingToStructureDelta;
             boolean astAwareIncrementalBuild = areAstAwareIncrementalBuildsEnabled(project);
             if (astAwareIncrementalBuild) {
                 dependingFilesAccordingToStructureDelta = searchForDependantFiles(
-                        project, changedFiles, typeChecker, cancellable,
-                        true);
+                        changedFiles, cancellable, true);
             } else {
                 dependingFilesAccordingToStructureDelta = allTransitivelyDependingFiles;
             }
@@ -1446,81 +1616,52 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
         filesToCompile.addAll(filesToAddInCompile);
     }
 
-    private Set<IFile> searchForDependantFiles(IProject project,
-            Collection<IFile> changedFiles, TypeChecker typeChecker,
+    private Set<IFile> searchForDependantFiles(Collection<IFile> changedFiles,
             Cancellable cancellable, boolean filterAccordingToStructureDelta) {
         Set<IFile> changeDependents= new HashSet<IFile>();
-        Set<IFile> analyzedFiles= new HashSet<IFile>();
         changeDependents.addAll(changedFiles);
+        //when filtering according to the structure delta,
+        //only the direct dependents of the changed files
+        //are searched
+        LinkedList<IFile> worklist = new LinkedList<IFile>(changeDependents);
       
-        boolean changed = false;
-        do {
-            Collection<IFile> additions= new HashSet<IFile>();
-            for (Iterator<IFile> iter=changeDependents.iterator(); iter.hasNext();) {
-                final IFile srcFile= iter.next();
-                if (analyzedFiles.contains(srcFile)) {
-                    continue;
-                }
-                analyzedFiles.add(srcFile);
-                IProject currentFileProject = srcFile.getProject();
-                CeylonProject<IProject, IResource, IFolder, IFile> currentFileCeylonProject = modelJ2C().ceylonModel().getProject(currentFileProject);
-                TypeChecker currentFileTypeChecker = null;
-                if (currentFileProject == project) {
-                    currentFileTypeChecker = typeChecker;
-                } 
-                else {
-                    currentFileTypeChecker = getProjectTypeChecker(currentFileProject);
-                }
-                
-                if (! CeylonBuilder.isInSourceFolder(srcFile)) {
-                    // Don't search dependencies inside resource folders.
-                    continue;
-                }
-                
-                if (filterAccordingToStructureDelta) {
-                    IResourceAware unit = getUnit(srcFile);
-                    if (unit instanceof ProjectSourceFile) {
-                        ProjectSourceFile projectSourceFile = (ProjectSourceFile) unit;
-                        if (projectSourceFile.getDependentsOf().size() > 0) {
-                            CompilationUnitDelta delta = projectSourceFile.buildDeltaAgainstModel();
-                            if (delta != null 
-                                    && delta.getChanges().getSize() == 0
-                                    && delta.getChildrenDeltas().getSize() == 0) {
-                                    continue;
-                                }
-                        }
+        while (!worklist.isEmpty()) {
+            final IFile srcFile= worklist.removeFirst();
+            
+            if (! CeylonBuilder.isInSourceFolder(srcFile)) {
+                // Don't search dependencies inside resource folders.
+                continue;
+            }
+            
+            List<IFile> dependents = UnitDependencyGraph.getDependents(srcFile);
+            if (dependents.isEmpty()) {
+                continue;
+            }
+            
+            if (filterAccordingToStructureDelta) {
+                IResourceAware unit = getUnit(srcFile);
+                if (unit instanceof ProjectSourceFile) {
+                    ProjectSourceFile projectSourceFile = (ProjectSourceFile) unit;
+                    CompilationUnitDelta delta = projectSourceFile.buildDeltaAgainstModel();
+                    if (delta != null 
+                            && delta.getChanges().getSize() == 0
+                            && delta.getChildrenDeltas().getSize() == 0) {
+                        continue;
                     }
                 }
-                
-                Set<String> filesDependingOn = getDependentsOf(srcFile,
-                        currentFileTypeChecker, currentFileCeylonProject);
-   
-                for (String dependingFile: filesDependingOn) {
-                    if (cancellable.isCancelled()) {
-                        throw new OperationCanceledException();
-                    }
-                    
-                    //TODO: note that the following is slightly
-                    //      fragile - it depends on the format 
-                    //      of the path that we use to track
-                    //      dependents!
-                    IPath pathRelativeToProject = new Path(dependingFile);
-                            //.makeRelativeTo(project.getLocation());
-                    IFile depFile= (IFile) project.findMember(pathRelativeToProject);
-                    if (depFile == null) {
-                        depFile= (IFile) currentFileProject.findMember(dependingFile);
-                    }
-                    if (depFile != null) {
-                        additions.add(depFile);
-                    }
-                    else {
-                        System.err.println("could not resolve dependent unit: " + 
-                                    dependingFile);
-                    }
+            }
+            
+            if (cancellable.isCancelled()) {
+                throw new OperationCanceledException();
+            }
+            
+            for (IFile depFile: dependents) {
+                if (changeDependents.add(depFile) 
+                        && !filterAccordingToStructureDelta) {
+                    worklist.add(depFile);
                 }
             }
-            changed = changeDependents.addAll(additions);
-        } while (changed && !filterAccordingToStructureDelta);
+        }
         return changeDependents;
     }
 
@@ -1644,27 +1785,6 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
 //                "...binary generation succeeded" : "...binary generation FAILED");
 //    }
 
-    private Set<String> getDependentsOf(IFile srcFile,
-            TypeChecker currentFileTypeChecker,
-            CeylonProject<IProject, IResource, IFolder, IFile> currentFileCeylonProject) {
-        
-        if (isCeylon(srcFile)) {
-            PhasedUnit phasedUnit = currentFileTypeChecker.getPhasedUnits()
-                    .getPhasedUnit(vfsJ2C().createVirtualResource(srcFile, currentFileCeylonProject.getIdeArtifact()));
-            if (phasedUnit != null && phasedUnit.getUnit() != null) {
-                return phasedUnit.getUnit().getDependentsOf();
-            }
-        } 
-        else {
-            Unit unit = getJavaUnit(currentFileCeylonProject.getIdeArtifact(), srcFile);
-            if (unit instanceof JavaCompilationUnit) {
-                return unit.getDependentsOf();
-            }
-        }
-        
-        return Collections.emptySet();
-    }
-    
     @SuppressWarnings("unchecked")
     static ProjectPhasedUnit<IProject, IResource, IFolder, IFile> parseFileToPhasedUnit(final ModuleManager moduleManager, final ModuleSourceMapper moduleSourceMapper,
             final TypeChecker typeChecker,
@@ -2120,15 +2240,32 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
 
     private static void addProblemAndTaskMarkers(final List<PhasedUnit> units, 
             final IProject project) {
+        addProblemAndTaskMarkers(units, project, 
+                Collections.<IFile>emptySet());
+    }
+
+    /**
+     * Replace the problem and task markers of the given 
+     * units, and remove those of the other given files, in
+     * a single workspace operation.
+     */
+    private static void addProblemAndTaskMarkers(final List<PhasedUnit> units, 
+            final IProject project, Collection<IFile> otherFiles) {
+        MarkerBatch batch = new MarkerBatch();
+        for (IFile file: otherFiles) {
+            batch.addFile(file);
+        }
         for (PhasedUnit phasedUnit: units) {
             ProjectPhasedUnit<IProject,IResource,IFolder,IFile> projectPhasedUnit = (ProjectPhasedUnit<IProject,IResource,IFolder,IFile>)phasedUnit;
             IFile file = projectPhasedUnit.getResourceFile();
+            batch.addFile(file);
             CompilationUnit compilationUnit = phasedUnit.getCompilationUnit();
             compilationUnit.visit(new WarningSuppressionVisitor<Warning>(Warning.class,
                     getSuppressedWarnings(project)));
-            compilationUnit.visit(new MarkerCreator(file));
-            addTaskMarkers(file, phasedUnit.getTokens());
+            compilationUnit.visit(new MarkerCreator(file, batch));
+            addTaskMarkers(file, phasedUnit.getTokens(), batch);
         }
+        batch.apply();
     }
 
     private boolean generateBinaries(IJavaProject javaProject,
@@ -2643,7 +2780,8 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                 }
             };
 
-            BuildFileManager fileManager = new BuildFileManager(context, true, null, project, inputFilesToGenerate) {
+            BuildFileManager fileManager = new BuildFileManager(context, true, null, project, inputFilesToGenerate,
+                    explodedClassWriter) {
                 @Override
                 public void setContext(Context context) {
                     super.setContext(context);
@@ -2969,7 +3107,7 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
         }
     }*/
 
-    private static MessageConsoleStream getConsoleStream() {
+    static MessageConsoleStream getConsoleStream() {
         return findConsole().newMessageStream();
     }
 //    
@@ -3024,13 +3162,16 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
         return myConsole;
     }
 
-    private static void addTaskMarkers(IFile file, List<CommonToken> tokens) {
-        // clearTaskMarkersOn(file);
+    private static void addTaskMarkers(IFile file, List<CommonToken> tokens, 
+            MarkerBatch batch) {
         for (CommonToken token : tokens) {
             int tt = token.getType();
             if (tt == CeylonLexer.LINE_COMMENT || 
                 tt == CeylonLexer.MULTI_COMMENT) {
-                CeylonTaskUtil.addTaskMarkers(token, file);
+                for (Map<String, Object> attributes: 
+                        CeylonTaskUtil.getTaskMarkerAttributes(token)) {
+                    batch.addMarker(file, TASK_MARKER_ID, attributes);
+                }
             }
         }
     }
@@ -3476,9 +3617,22 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
         return typeCheckers;
     }
     
+    /**
+     * Write the marker snapshots of the projects, so that
+     * the next session can reuse their markers.
+     */
+    public static void saveMarkerSnapshots() {
+        MarkerSnapshot.saveAll();
+    }
+    
     public static void removeProject(IProject project) {
+        MarkerSnapshot.remove(project);
+        modelGeneration.incrementAndGet();
         containersInitialized.remove(project);
         JavaProjectStateMirror.cleanup(project);
+        IdentifierIndex.remove(project);
+        DeclarationNameIndex.remove(project);
+        UnitDependencyGraph.removeProject(project);
     }
     
   public static List<IFolder> getSourceFolders(IProject project) {
@@ -4103,27 +4257,34 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
         }
     }
 
-    private void cleanChangedFilesFromExplodedDirectory(
+    /**
+     * Returns the class files of the exploded directory 
+     * which were generated for the given changed files, 
+     * and which have to be deleted unless they're 
+     * generated again.
+     */
+    private Set<File> getExplodedClassFiles(
             Collection<IFile> changedFiles, 
             CeylonProject<IProject, IResource, IFolder, IFile> ceylonProject) {
+        Set<File> classFiles = new HashSet<File>();
         if (changedFiles.size() == 0) {
-            return;
+            return classFiles;
         }
         
         IProject project = ceylonProject.getIdeArtifact();
         
         if (! isExplodeModulesEnabled(project)) {
-            return;
+            return classFiles;
         }
         
         for (IFile file : changedFiles) {
             IFolder rootFolder = getRootFolder(file);
             if (rootFolder == null) {
-                return;
+                return classFiles;
             }
 
             if (isResourceFile(file)) {
-                return;
+                return classFiles;
             }
             
             IPath projectRelativePath = 
@@ -4134,12 +4295,12 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                         .toString();
             Package pkg = getPackage((IFolder)file.getParent());
             if (pkg == null) {
-                return;
+                return classFiles;
             }
             Module module = pkg.getModule();
             TypeChecker typeChecker = ceylonProject.getTypechecker();
             if (typeChecker == null) {
-                return;
+                return classFiles;
             }
             
             final File modulesOutputDirectory = 
@@ -4148,8 +4309,8 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                     getCeylonClassesOutputDirectory(project);
             File moduleDir = getModulePath(modulesOutputDirectory, module);
             
-            //Remove the classes belonging to the source file from the
-            //from the .exploded directory
+            //Collect the classes belonging to the source file in 
+            //the .exploded directory
             File moduleJar = 
                     new File(moduleDir, 
                             getModuleArchiveName(module));
@@ -4170,16 +4331,16 @@ public class CeylonBuilder extends IncrementalProjectBuilder {
                     }
 
                     for (String entryToDelete : entriesToDelete) {
-                        new File(ceylonOutputDirectory, 
+                        classFiles.add(new File(ceylonOutputDirectory, 
                                 entryToDelete.replace('/', 
-                                        File.separatorChar))
-                                .delete();
+                                        File.separatorChar)));
                     }
                 } catch (ZipException e) {
                     e.printStackTrace();
                 }
             }
         }
+        return classFiles;
     }    
     public static File getCeylonClassesOutputDirectory(IProject project) {
         return getCeylonClassesOutputFolder(project)
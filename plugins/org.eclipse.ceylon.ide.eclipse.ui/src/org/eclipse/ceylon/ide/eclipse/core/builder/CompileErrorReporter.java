@@ -17,8 +17,10 @@ import static org.eclipse.jdt.core.IJavaModelMarker.JAVA_MODEL_PROBLEM_MARKER;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
@@ -41,6 +43,67 @@ final class CompileErrorReporter implements
     private IProject project;
     private boolean errorReported;
     private List<IFolder> sourceDirectories;
+    private Map<IFile, MarkerSeverities> ceylonSeverities = 
+            new HashMap<IFile, MarkerSeverities>();
+    private Map<IFile, MarkerSeverities> javaSeverities = 
+            new HashMap<IFile, MarkerSeverities>();
+    
+    /**
+     * The highest severity of the existing problem markers
+     * of a file, on each line, so that the markers of the
+     * file are only queried once per compilation.
+     */
+    private static class MarkerSeverities {
+        final Map<Integer, Integer> byLine = 
+                new HashMap<Integer, Integer>();
+        int highest = -1;
+        
+        MarkerSeverities(IFile file, String markerId, 
+                boolean includeSubtypes) {
+            try {
+                for (IMarker m: file.findMarkers(markerId, 
+                        includeSubtypes, DEPTH_ZERO)) {
+                    int severity = 
+                            m.getAttribute(IMarker.SEVERITY, -1);
+                    add(m.getAttribute(IMarker.LINE_NUMBER, -1), 
+                            severity);
+                    if (m.getType().equals(markerId)) {
+                        highest = Math.max(highest, severity);
+                    }
+                }
+            }
+            catch (CoreException e) {
+                e.printStackTrace();
+            }
+        }
+        
+        void add(int line, int severity) {
+            Integer existing = byLine.get(line);
+            if (existing==null || existing<severity) {
+                byLine.put(line, severity);
+            }
+        }
+        
+        int onLine(long line) {
+            Integer severity = byLine.get((int) line);
+            return severity==null ? -1 : severity;
+        }
+    }
+    
+    private MarkerSeverities getSeverities(IFile file, boolean java) {
+        Map<IFile, MarkerSeverities> cache = 
+                java ? javaSeverities : ceylonSeverities;
+        MarkerSeverities severities = cache.get(file);
+        if (severities==null) {
+            severities = java ?
+                    new MarkerSeverities(file, 
+                            JAVA_MODEL_PROBLEM_MARKER, false) :
+                    new MarkerSeverities(file, 
+                            PROBLEM_MARKER_ID, true);
+            cache.put(file, severities);
+        }
+        return severities;
+    }
 
     public CompileErrorReporter(IProject project) {
         this.project = project;
@@ -148,34 +211,16 @@ final class CompileErrorReporter implements
                 long diagnosticLineNumber = diagnostic.getLineNumber();
                 if (CeylonBuilder.isCeylon(file)){
                     int backendErrorSeverity = kindToSeverity(diagnostic.getKind());
-                    try {
-                        for (IMarker m: file.findMarkers(PROBLEM_MARKER_ID, true, DEPTH_ZERO)) {
-                            if (m.getAttribute(IMarker.LINE_NUMBER, -1) == diagnosticLineNumber) {
-                                int existingSeverity = ((Integer) m.getAttribute(IMarker.SEVERITY)).intValue();
-                                if (existingSeverity >= backendErrorSeverity) {
-                                    return;
-                                }
-                            }
-                        }
-                    } 
-                    catch (CoreException e) {
-                        e.printStackTrace();
+                    if (getSeverities(file, false).onLine(diagnosticLineNumber) 
+                            >= backendErrorSeverity) {
+                        return;
                     }
                     setupMarker(file, diagnostic);
                 }
                 if (CeylonBuilder.isJava(file)){
-                    try {
-                        for (IMarker m: file.findMarkers(JAVA_MODEL_PROBLEM_MARKER, false, DEPTH_ZERO)) {
-                            if (m.getAttribute(IMarker.LINE_NUMBER, -1) == diagnosticLineNumber) {
-                                int sev = ((Integer) m.getAttribute(IMarker.SEVERITY)).intValue();
-                                if (sev==IMarker.SEVERITY_ERROR) {
-                                    return;
-                                }
-                            }
-                        }
-                    } 
-                    catch (CoreException e) {
-                        e.printStackTrace();
+                    if (getSeverities(file, true).onLine(diagnosticLineNumber) 
+                            == IMarker.SEVERITY_ERROR) {
+                        return;
                     }
                     setupMarker(file, diagnostic);
                 }
@@ -208,16 +253,9 @@ final class CompileErrorReporter implements
                     markerId = JAVA_MODEL_PROBLEM_MARKER;
                 }
                 else if (CeylonBuilder.isCeylon(file)) {
-                    for (IMarker marker: 
-                        file.findMarkers(PROBLEM_MARKER_ID, 
-                                false, DEPTH_ZERO)) {
-                        Integer severity = (Integer) 
-                                marker.getAttribute(IMarker.SEVERITY);
-                        if (severity!=null &&
-                                severity.intValue() 
-                                >= IMarker.SEVERITY_ERROR) {
-                            return;
-                        }
+                    if (getSeverities(file, false).highest 
+                            >= IMarker.SEVERITY_ERROR) {
+                        return;
                     }
                 }
 //                if (line<0) {
@@ -249,6 +287,14 @@ final class CompileErrorReporter implements
             marker.setAttribute(IMarker.PRIORITY, IMarker.PRIORITY_HIGH);
             int severity = kindToSeverity(diagnostic==null ? Diagnostic.Kind.ERROR : diagnostic.getKind());
             marker.setAttribute(IMarker.SEVERITY, severity);
+            //later diagnostics on the same line must
+            //see the new marker too
+            if (markerId.equals(JAVA_MODEL_PROBLEM_MARKER)) {
+                getSeverities((IFile) resource, true).add((int) line, severity);
+            }
+            else if (resource instanceof IFile) {
+                getSeverities((IFile) resource, false).add((int) line, severity);
+            }
         }
         catch (CoreException ce) {
             ce.printStackTrace();
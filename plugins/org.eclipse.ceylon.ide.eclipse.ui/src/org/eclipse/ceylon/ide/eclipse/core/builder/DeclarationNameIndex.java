@@ -0,0 +1,215 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.core.builder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+
+import org.eclipse.ceylon.compiler.typechecker.context.PhasedUnit;
+import org.eclipse.ceylon.model.typechecker.model.Declaration;
+
+/**
+ * An index from names to the declarations of the phased
+ * units of a project, used to map Java elements back to
+ * the Ceylon declarations they were generated from
+ * without comparing the Java element to every declaration
+ * of the model.
+ *
+ * The index of a project is only updated by the builder,
+ * after it typechecks the project, since the declarations
+ * of a unit are only known once the unit has been
+ * scanned. A unit is indexed again if the number of its
+ * declarations changed since it was indexed. Queries never
+ * update the index: the declarations of units which aren't
+ * indexed yet, or whose declarations changed since, are
+ * filtered by name each time they're queried, as are the
+ * declarations of the units of Ceylon archives, since the
+ * index of an archive would keep its phased units alive
+ * after the archive's module is unloaded.
+ */
+public class DeclarationNameIndex {
+
+    private static final Map<IProject, Scope> scopes =
+            new HashMap<IProject, Scope>();
+
+    private static class Entry {
+        final PhasedUnit unit;
+        final Declaration declaration;
+
+        Entry(PhasedUnit unit, Declaration declaration) {
+            this.unit = unit;
+            this.declaration = declaration;
+        }
+    }
+
+    private static class Scope {
+        Map<PhasedUnit, List<Declaration>> units =
+                new IdentityHashMap<PhasedUnit, List<Declaration>>();
+        Map<String, List<Entry>> entriesByName =
+                new HashMap<String, List<Entry>>();
+
+        void update(Collection<? extends PhasedUnit> current) {
+            Map<PhasedUnit, List<Declaration>> remaining =
+                    new IdentityHashMap<PhasedUnit, List<Declaration>>(units);
+            for (PhasedUnit pu: current) {
+                List<Declaration> indexed = remaining.remove(pu);
+                if (indexed==null || !isCurrent(pu, indexed)) {
+                    if (indexed!=null) {
+                        remove(pu, indexed);
+                    }
+                    add(pu);
+                }
+            }
+            for (Map.Entry<PhasedUnit, List<Declaration>> entry:
+                    remaining.entrySet()) {
+                remove(entry.getKey(), entry.getValue());
+            }
+        }
+
+        /**
+         * Returns true if the given unit is indexed, and
+         * has the same declarations as when it was indexed.
+         */
+        boolean isIndexed(PhasedUnit pu) {
+            List<Declaration> indexed = units.get(pu);
+            return indexed!=null && isCurrent(pu, indexed);
+        }
+
+        private static boolean isCurrent(PhasedUnit pu,
+                List<Declaration> indexed) {
+            return pu.getDeclarations().size()==indexed.size();
+        }
+
+        private void add(PhasedUnit pu) {
+            List<Declaration> declarations =
+                    new ArrayList<Declaration>(
+                            pu.getDeclarations());
+            units.put(pu, declarations);
+            for (Declaration d: declarations) {
+                String name = nameOf(d);
+                List<Entry> list = entriesByName.get(name);
+                if (list==null) {
+                    list = new ArrayList<Entry>(2);
+                    entriesByName.put(name, list);
+                }
+                list.add(new Entry(pu, d));
+            }
+        }
+
+        private void remove(PhasedUnit pu,
+                List<Declaration> declarations) {
+            units.remove(pu);
+            for (Declaration d: declarations) {
+                String name = nameOf(d);
+                List<Entry> list = entriesByName.get(name);
+                if (list!=null) {
+                    for (Iterator<Entry> it = list.iterator();
+                            it.hasNext();) {
+                        if (it.next().declaration==d) {
+                            it.remove();
+                        }
+                    }
+                    if (list.isEmpty()) {
+                        entriesByName.remove(name);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String nameOf(Declaration d) {
+        String name = d.getName();
+        return name==null ? "" : name;
+    }
+
+    /**
+     * Update the index of the given project with its
+     * current phased units, after they have been
+     * typechecked.
+     */
+    public static void update(IProject project,
+            Collection<? extends PhasedUnit> units) {
+        synchronized (scopes) {
+            Scope scope = scopes.get(project);
+            if (scope==null) {
+                scope = new Scope();
+                scopes.put(project, scope);
+            }
+            scope.update(units);
+        }
+    }
+
+    /**
+     * Forget the index of the given project.
+     */
+    public static void remove(IProject project) {
+        synchronized (scopes) {
+            scopes.remove(project);
+        }
+    }
+
+    /**
+     * Returns the declarations with the given name among
+     * the declarations of the given current units of a
+     * project, or of an archive if the given project is
+     * null.
+     */
+    public static List<Declaration> getDeclarations(
+            IProject project,
+            Collection<? extends PhasedUnit> units,
+            String name) {
+        List<Declaration> result =
+                new ArrayList<Declaration>();
+        synchronized (scopes) {
+            Scope scope =
+                    project==null ? null :
+                        scopes.get(project);
+            Set<PhasedUnit> indexed =
+                    Collections.newSetFromMap(
+                            new IdentityHashMap<PhasedUnit, Boolean>());
+            for (PhasedUnit pu: units) {
+                if (scope!=null && scope.isIndexed(pu)) {
+                    indexed.add(pu);
+                }
+                else {
+                    for (Declaration d: pu.getDeclarations()) {
+                        if (name.equals(d.getName())) {
+                            result.add(d);
+                        }
+                    }
+                }
+            }
+            if (scope!=null) {
+                List<Entry> list =
+                        scope.entriesByName.get(name);
+                if (list!=null) {
+                    for (Entry entry: list) {
+                        //skip units which were removed
+                        //since the last build
+                        if (indexed.contains(entry.unit)) {
+                            result.add(entry.declaration);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,185 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.core.builder;
+
+import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.PROBLEM_MARKER_ID;
+import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.getConsoleStream;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Writes the class files of the exploded classes directory
+ * of a project during a build, in the background, so that
+ * the Java backend doesn't wait for the file system.
+ *
+ * A class file whose content didn't change isn't written
+ * again, so that the build doesn't trigger resource and
+ * JDT deltas for classes that didn't change. For this to
+ * work, the class files of the changed source files are
+ * not deleted before the build, but given as the stale
+ * class files, which are deleted at the end of the build
+ * if they weren't generated again.
+ *
+ * Pending writes are bounded, and once the bound is
+ * reached, the Java backend writes the class files itself.
+ *
+ * The class files which couldn't be written or deleted
+ * are reported at the end of the build, on the project
+ * and in the console.
+ */
+class ExplodedClassWriter {
+
+    private static final int MAX_PENDING_WRITES = 64;
+
+    private final ThreadPoolExecutor executor =
+            new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(MAX_PENDING_WRITES),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable,
+                                    "Ceylon exploded classes writer");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private final Set<File> staleClassFiles;
+    private final AtomicInteger rewritten = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final List<String> failures =
+            Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * @param staleClassFiles the class files of the changed
+     *        source files
+     */
+    ExplodedClassWriter(Set<File> staleClassFiles) {
+        this.staleClassFiles =
+                Collections.synchronizedSet(
+                        new HashSet<File>(staleClassFiles));
+    }
+
+    /**
+     * Write the given content to the given class file,
+     * unless it's already its content.
+     */
+    void write(final File classFile, final byte[] bytes) {
+        staleClassFiles.remove(classFile);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (hasContent(classFile, bytes)) {
+                        skipped.incrementAndGet();
+                    }
+                    else {
+                        classFile.getParentFile().mkdirs();
+                        try (OutputStream out =
+                                new FileOutputStream(classFile)) {
+                            out.write(bytes);
+                        }
+                        rewritten.incrementAndGet();
+                    }
+                }
+                catch (IOException e) {
+                    failures.add("could not write " + classFile + 
+                            ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static boolean hasContent(File file, byte[] bytes)
+            throws IOException {
+        return file.isFile() &&
+                file.length()==bytes.length &&
+                Arrays.equals(Files.readAllBytes(file.toPath()),
+                        bytes);
+    }
+
+    /**
+     * Wait for the pending writes, delete the stale class
+     * files which weren't generated again, and report the
+     * class files which couldn't be written or deleted on
+     * the given project.
+     */
+    void finish(IProject project) {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (staleClassFiles) {
+            for (File classFile: staleClassFiles) {
+                if (!classFile.delete() && classFile.exists()) {
+                    failures.add("could not delete " + classFile);
+                }
+            }
+            staleClassFiles.clear();
+        }
+        synchronized (failures) {
+            if (!failures.isEmpty()) {
+                reportFailures(project);
+            }
+        }
+    }
+
+    private void reportFailures(IProject project) {
+        for (String failure: failures) {
+            getConsoleStream().println("Exploded classes of project " 
+                    + project.getName() + ": " + failure);
+        }
+        try {
+            String message = "Some exploded class files could not be written or deleted (" 
+                    + failures.get(0) + ").\n"
+                    + "The " + failures.size() + " failures are listed in the Ceylon build console.";
+            IMarker marker = 
+                    project.createMarker(PROBLEM_MARKER_ID + ".backend");
+            marker.setAttribute(IMarker.MESSAGE, message);
+            marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
+            marker.setAttribute(IMarker.PRIORITY, IMarker.PRIORITY_HIGH);
+        }
+        catch (CoreException ce) {
+            ce.printStackTrace();
+        }
+    }
+
+    int getRewritten() {
+        return rewritten.get();
+    }
+
+    int getSkipped() {
+        return skipped.get();
+    }
+
+}
@@ -9,9 +9,8 @@
  ********************************************************************************/
 package org.eclipse.ceylon.ide.eclipse.core.builder;
 
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -30,12 +29,14 @@ final class ExplodingJavaFileObject implements
     private final File classFile;
     private final RelativeFile fileName;
     private final JavaFileObject javaFileObject;
+    private final ExplodedClassWriter writer;
 
     ExplodingJavaFileObject(File classFile, RelativeFile fileName,
-            JavaFileObject javaFileObject) {
+            JavaFileObject javaFileObject, ExplodedClassWriter writer) {
         this.classFile = classFile;
         this.fileName = fileName;
         this.javaFileObject = javaFileObject;
+        this.writer = writer;
     }
 
     @Override
@@ -43,7 +44,7 @@ final class ExplodingJavaFileObject implements
             throws IOException {
         return new OutputStream() {
             final OutputStream jarStream = javaFileObject.openOutputStream();
-            final OutputStream classFileStream = new BufferedOutputStream(new FileOutputStream(classFile));
+            final ByteArrayOutputStream classFileStream = new ByteArrayOutputStream();
             @Override
             public void write(int b) throws IOException {
                 jarStream.write(b);
@@ -62,8 +63,8 @@ final class ExplodingJavaFileObject implements
             }
             @Override
             public void close() throws IOException {
-                classFileStream.close();
                 jarStream.close();
+                writer.write(classFile, classFileStream.toByteArray());
             }
             @Override
             public void flush() throws IOException {
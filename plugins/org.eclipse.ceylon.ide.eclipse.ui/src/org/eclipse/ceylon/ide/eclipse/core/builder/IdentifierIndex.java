@@ -0,0 +1,290 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.core.builder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.antlr.runtime.CommonToken;
+import org.eclipse.core.resources.IProject;
+
+import org.eclipse.ceylon.compiler.typechecker.context.PhasedUnit;
+import org.eclipse.ceylon.compiler.typechecker.parser.CeylonParser;
+import org.eclipse.ceylon.model.typechecker.model.Constructor;
+import org.eclipse.ceylon.model.typechecker.model.Declaration;
+import org.eclipse.ceylon.model.typechecker.model.Referenceable;
+
+/**
+ * An inverted index from identifiers to the phased units
+ * that mention them, used to avoid visiting the AST of
+ * units that can't possibly contain a reference to, an
+ * assignment to, or a refinement of a declaration.
+ *
+ * A unit is considered to mention an identifier if one
+ * of its identifier tokens has that name, or if the name
+ * occurs as a word in one of its string literals, where
+ * it might be the target of a doc link. Since references,
+ * assignments and refinements of a declaration all use
+ * its name, the candidate units returned by the index
+ * are a superset of the units that need to be visited,
+ * and searches must still verify each candidate.
+ *
+ * The builder updates the index of a project after each
+ * build. The units of Ceylon archives aren't indexed by
+ * identifier, since the index of an archive would keep
+ * its phased units alive after the archive's module is
+ * unloaded. Instead, the identifiers of each archive unit
+ * are collected the first time it's searched, and kept
+ * for as long as the unit is alive.
+ */
+public class IdentifierIndex {
+
+    private static final Map<PhasedUnit, Set<String>> identifiersByUnit =
+            new WeakHashMap<PhasedUnit, Set<String>>();
+
+    private static final Map<IProject, Scope> scopes =
+            new HashMap<IProject, Scope>();
+
+    private static class Scope {
+        Map<PhasedUnit, Set<String>> units =
+                new IdentityHashMap<PhasedUnit, Set<String>>();
+        Map<String, Set<PhasedUnit>> unitsByIdentifier =
+                new HashMap<String, Set<PhasedUnit>>();
+        Set<PhasedUnit> unindexed =
+                Collections.newSetFromMap(
+                        new IdentityHashMap<PhasedUnit, Boolean>());
+
+        /**
+         * Bring the scope up to date with the given units,
+         * indexing new units and dropping the units which
+         * were removed or replaced.
+         */
+        void update(Collection<? extends PhasedUnit> current) {
+            Map<PhasedUnit, Set<String>> remaining =
+                    new IdentityHashMap<PhasedUnit, Set<String>>(units);
+            for (PhasedUnit pu: current) {
+                if (remaining.remove(pu)==null
+                        && !units.containsKey(pu)) {
+                    Set<String> identifiers = getIdentifiers(pu);
+                    units.put(pu, identifiers);
+                    if (identifiers==null) {
+                        unindexed.add(pu);
+                    }
+                    else {
+                        for (String identifier: identifiers) {
+                            Set<PhasedUnit> set =
+                                    unitsByIdentifier.get(identifier);
+                            if (set==null) {
+                                set = Collections.newSetFromMap(
+                                        new IdentityHashMap<PhasedUnit, Boolean>());
+                                unitsByIdentifier.put(identifier, set);
+                            }
+                            set.add(pu);
+                        }
+                    }
+                }
+            }
+            for (Map.Entry<PhasedUnit, Set<String>> entry:
+                    remaining.entrySet()) {
+                PhasedUnit pu = entry.getKey();
+                units.remove(pu);
+                unindexed.remove(pu);
+                Set<String> identifiers = entry.getValue();
+                if (identifiers!=null) {
+                    for (String identifier: identifiers) {
+                        Set<PhasedUnit> set =
+                                unitsByIdentifier.get(identifier);
+                        if (set!=null) {
+                            set.remove(pu);
+                            if (set.isEmpty()) {
+                                unitsByIdentifier.remove(identifier);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        List<PhasedUnit> getCandidates(String identifier) {
+            List<PhasedUnit> result = new ArrayList<PhasedUnit>();
+            Set<PhasedUnit> set = unitsByIdentifier.get(identifier);
+            if (set!=null) {
+                result.addAll(set);
+            }
+            //units without tokens could not be indexed
+            result.addAll(unindexed);
+            return result;
+        }
+    }
+
+    /**
+     * Update the index of the given project with its
+     * current phased units.
+     */
+    public static void update(IProject project,
+            Collection<? extends PhasedUnit> units) {
+        synchronized (scopes) {
+            Scope scope = scopes.get(project);
+            if (scope==null) {
+                scope = new Scope();
+                scopes.put(project, scope);
+            }
+            scope.update(units);
+        }
+    }
+
+    /**
+     * Forget the index of the given project.
+     */
+    public static void remove(IProject project) {
+        synchronized (scopes) {
+            scopes.remove(project);
+        }
+    }
+
+    /**
+     * Returns the units among the given current units of
+     * a project, or of an archive if the given project is
+     * null, which might mention the given identifier, or
+     * all the given units if the identifier is null.
+     */
+    public static List<? extends PhasedUnit> getCandidateUnits(
+            IProject project,
+            List<? extends PhasedUnit> units,
+            String identifier) {
+        if (identifier==null) {
+            return units;
+        }
+        if (project==null) {
+            List<PhasedUnit> result = new ArrayList<PhasedUnit>();
+            for (PhasedUnit pu: units) {
+                if (mayMention(pu, identifier)) {
+                    result.add(pu);
+                }
+            }
+            return result;
+        }
+        synchronized (scopes) {
+            Scope scope = scopes.get(project);
+            if (scope==null) {
+                scope = new Scope();
+                scopes.put(project, scope);
+            }
+            scope.update(units);
+            return scope.getCandidates(identifier);
+        }
+    }
+
+    /**
+     * Determines if the given unit might mention the given
+     * identifier.
+     */
+    public static boolean mayMention(PhasedUnit pu,
+            String identifier) {
+        if (identifier==null) {
+            return true;
+        }
+        Set<String> identifiers = getIdentifiers(pu);
+        return identifiers==null ||
+                identifiers.contains(identifier);
+    }
+
+    /**
+     * Returns the identifier that every reference to,
+     * assignment to, or refinement of the given model
+     * element must mention, or null if there is no such
+     * identifier, in which case every unit has to be
+     * searched.
+     */
+    public static String getSearchIdentifier(
+            Referenceable referenceable) {
+        if (referenceable instanceof Declaration
+                && !(referenceable instanceof Constructor)) {
+            return ((Declaration) referenceable).getName();
+        }
+        else {
+            //packages and modules are mentioned by
+            //path, and the default constructor by the
+            //name of its class
+            return null;
+        }
+    }
+
+    private static Set<String> getIdentifiers(PhasedUnit pu) {
+        synchronized (identifiersByUnit) {
+            if (identifiersByUnit.containsKey(pu)) {
+                return identifiersByUnit.get(pu);
+            }
+        }
+        List<CommonToken> tokens = pu.getTokens();
+        Set<String> identifiers = tokens==null ?
+                null : collectIdentifiers(tokens);
+        synchronized (identifiersByUnit) {
+            identifiersByUnit.put(pu, identifiers);
+        }
+        return identifiers;
+    }
+
+    private static Set<String> collectIdentifiers(
+            List<CommonToken> tokens) {
+        Set<String> identifiers = new HashSet<String>();
+        for (CommonToken token: tokens) {
+            switch (token.getType()) {
+            case CeylonParser.LIDENTIFIER:
+            case CeylonParser.UIDENTIFIER:
+            case CeylonParser.AIDENTIFIER:
+            case CeylonParser.PIDENTIFIER:
+                String text = token.getText();
+                if (text.startsWith("\\i") ||
+                        text.startsWith("\\I")) {
+                    text = text.substring(2);
+                }
+                identifiers.add(text);
+                break;
+            case CeylonParser.STRING_LITERAL:
+            case CeylonParser.ASTRING_LITERAL:
+            case CeylonParser.VERBATIM_STRING:
+            case CeylonParser.AVERBATIM_STRING:
+            case CeylonParser.STRING_START:
+            case CeylonParser.STRING_MID:
+            case CeylonParser.STRING_END:
+                addWords(token.getText(), identifiers);
+                break;
+            }
+        }
+        return identifiers;
+    }
+
+    private static void addWords(String text,
+            Set<String> identifiers) {
+        int length = text.length();
+        int start = -1;
+        for (int i=0; i<=length; i++) {
+            boolean part = i<length &&
+                    Character.isJavaIdentifierPart(text.charAt(i));
+            if (part && start<0) {
+                start = i;
+            }
+            else if (!part && start>=0) {
+                identifiers.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.core.builder;
+
+import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.MODULE_DEPENDENCY_PROBLEM_MARKER_ID;
+import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.PROBLEM_MARKER_ID;
+import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.TASK_MARKER_ID;
+import static org.eclipse.core.resources.IResource.DEPTH_ZERO;
+import static org.eclipse.core.resources.ResourcesPlugin.getWorkspace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Collects the problem and task markers produced by a
+ * build, and applies them to the workspace all at once.
+ *
+ * For each file taking part in the batch, the markers
+ * of the types managed by the batch are replaced by the
+ * collected ones. Existing markers which are identical
+ * to a collected marker are left alone, so that only
+ * the markers which were actually added or removed
+ * produce resource deltas.
+ */
+class MarkerBatch {
+
+    private static final String[] MANAGED_TYPES = {
+        PROBLEM_MARKER_ID,
+        MODULE_DEPENDENCY_PROBLEM_MARKER_ID,
+        TASK_MARKER_ID
+    };
+
+    private static class PendingMarker {
+        final String type;
+        final Map<String, Object> attributes;
+        PendingMarker(String type,
+                Map<String, Object> attributes) {
+            this.type = type;
+            this.attributes = attributes;
+        }
+    }
+
+    private final Map<IFile, List<PendingMarker>> markers =
+            new LinkedHashMap<IFile, List<PendingMarker>>();
+
+    private List<PendingMarker> markersOf(IFile file) {
+        List<PendingMarker> list = markers.get(file);
+        if (list==null) {
+            list = new ArrayList<PendingMarker>();
+            markers.put(file, list);
+        }
+        return list;
+    }
+
+    /**
+     * Include the given file in the batch, so that its
+     * existing markers are removed even if no marker gets
+     * added to it.
+     */
+    void addFile(IFile file) {
+        markersOf(file);
+    }
+
+    /**
+     * Add a marker of one of the managed types to the
+     * given file.
+     */
+    void addMarker(IFile file, String type,
+            Map<String, Object> attributes) {
+        markersOf(file).add(new PendingMarker(type, attributes));
+    }
+
+    /**
+     * Apply the collected markers to the workspace in a
+     * single workspace operation.
+     */
+    void apply() {
+        if (markers.isEmpty()) {
+            return;
+        }
+        try {
+            getWorkspace().run(new IWorkspaceRunnable() {
+                @Override
+                public void run(IProgressMonitor monitor)
+                        throws CoreException {
+                    for (Map.Entry<IFile, List<PendingMarker>> entry:
+                            markers.entrySet()) {
+                        IFile file = entry.getKey();
+                        if (file.exists()) {
+                            update(file, entry.getValue());
+                        }
+                    }
+                }
+            },
+            null, IWorkspace.AVOID_UPDATE, null);
+        }
+        catch (CoreException e) {
+            e.printStackTrace();
+        }
+        markers.clear();
+    }
+
+    private static void update(IFile file,
+            List<PendingMarker> pending)
+                    throws CoreException {
+        //index the collected markers by type and 
+        //attributes, so that identical markers can be
+        //matched up quickly
+        Map<List<Object>, List<PendingMarker>> added =
+                new HashMap<List<Object>, List<PendingMarker>>();
+        for (PendingMarker marker: pending) {
+            List<Object> key = 
+                    Arrays.<Object>asList(marker.type, 
+                            marker.attributes);
+            List<PendingMarker> list = added.get(key);
+            if (list==null) {
+                list = new ArrayList<PendingMarker>(1);
+                added.put(key, list);
+            }
+            list.add(marker);
+        }
+        for (String type: MANAGED_TYPES) {
+            for (IMarker marker:
+                    file.findMarkers(type, false, DEPTH_ZERO)) {
+                List<Object> key = 
+                        Arrays.<Object>asList(type, 
+                                marker.getAttributes());
+                List<PendingMarker> list = added.get(key);
+                if (list==null || list.isEmpty()) {
+                    marker.delete();
+                }
+                else {
+                    //identical marker already exists
+                    list.remove(list.size()-1);
+                }
+            }
+        }
+        for (PendingMarker marker: pending) {
+            List<PendingMarker> list = 
+                    added.get(Arrays.<Object>asList(marker.type, 
+                            marker.attributes));
+            if (list.remove(marker)) {
+                file.createMarker(marker.type)
+                    .setAttributes(marker.attributes);
+            }
+        }
+    }
+
+}
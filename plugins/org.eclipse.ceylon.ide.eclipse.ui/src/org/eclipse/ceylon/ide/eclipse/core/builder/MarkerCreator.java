@@ -12,6 +12,9 @@ package org.eclipse.ceylon.ide.eclipse.core.builder;
 import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.MODULE_DEPENDENCY_PROBLEM_MARKER_ID;
 import static org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder.PROBLEM_MARKER_ID;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 
@@ -35,40 +38,48 @@ import org.eclipse.ceylon.ide.eclipse.util.ErrorVisitor;
 public class MarkerCreator extends ErrorVisitor {
     
     protected IFile file;
+    private MarkerBatch batch;
     public static final String ERROR_CODE_KEY= "errorCode";
 
     public MarkerCreator(IFile file) {
         this.file = file;
     }
 
+    /**
+     * Create a MarkerCreator which adds its markers to the
+     * given batch instead of creating them immediately.
+     */
+    MarkerCreator(IFile file, MarkerBatch batch) {
+        this.file = file;
+        this.batch = batch;
+    }
+
     @Override
     public void handleMessage(int startOffset, int endOffset,
             int startCol, int startLine, Message message) {
         
-        String[] attributeNames= new String[] {
-                IMarker.LINE_NUMBER, 
-                IMarker.CHAR_START, IMarker.CHAR_END, 
-                IMarker.MESSAGE, 
-                IMarker.PRIORITY, 
-                IMarker.SEVERITY,
-                ERROR_CODE_KEY,
-                IMarker.SOURCE_ID
-            };
-        Object[] values = new Object[] {
-                startLine, 
-                startOffset, endOffset, 
-                message.getMessage(), 
-                IMarker.PRIORITY_HIGH, 
-                getSeverity(message, getWarnForErrors()),
-                message.getCode(),
-                CeylonBuilder.SOURCE
-            };
+        Map<String, Object> attributes = 
+                new HashMap<String, Object>();
+        attributes.put(IMarker.LINE_NUMBER, startLine);
+        attributes.put(IMarker.CHAR_START, startOffset);
+        attributes.put(IMarker.CHAR_END, endOffset);
+        attributes.put(IMarker.MESSAGE, message.getMessage());
+        attributes.put(IMarker.PRIORITY, IMarker.PRIORITY_HIGH);
+        attributes.put(IMarker.SEVERITY, 
+                getSeverity(message, getWarnForErrors()));
+        attributes.put(ERROR_CODE_KEY, message.getCode());
+        attributes.put(IMarker.SOURCE_ID, CeylonBuilder.SOURCE);
+        String markerId = 
+                message instanceof ModuleSourceMapper.ModuleDependencyAnalysisError ?
+                        MODULE_DEPENDENCY_PROBLEM_MARKER_ID :
+                        PROBLEM_MARKER_ID;
+        if (batch!=null) {
+            batch.addMarker(file, markerId, attributes);
+            return;
+        }
         try {
-            file.createMarker(
-                    message instanceof ModuleSourceMapper.ModuleDependencyAnalysisError ?
-                            MODULE_DEPENDENCY_PROBLEM_MARKER_ID :
-                            PROBLEM_MARKER_ID)
-                .setAttributes(attributeNames, values);
+            file.createMarker(markerId)
+                .setAttributes(attributes);
         } 
         catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,558 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.core.builder;
+
+import static org.eclipse.ceylon.ide.eclipse.ui.CeylonPlugin.PLUGIN_ID;
+import static org.eclipse.core.resources.ResourcesPlugin.getWorkspace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+
+import org.eclipse.ceylon.ide.eclipse.ui.CeylonPlugin;
+
+/**
+ * A record of which problem and task markers of a project
+ * are still valid after an IDE restart, so that the first
+ * build of a session doesn't have to recreate the markers
+ * of the source files which didn't change since the last
+ * build of the previous session.
+ *
+ * This is not a snapshot of the model: the typechecker
+ * model can't be restored without typechecking, so the
+ * first build of a session still typechecks every source
+ * file, and takes as long as it did before. It only spares
+ * that build the collection of problems and the
+ * replacement of the markers of the files which didn't
+ * change.
+ *
+ * The snapshot records a hash of the content of each
+ * source file, and of each other file they depended on,
+ * as it was built, the files depending on each file, the
+ * same dependents the builder uses to find the files to
+ * rebuild after a change, and a fingerprint of everything
+ * else the problems depend on: the versions of the Ceylon
+ * plugins, the project's Ceylon configuration, and the
+ * classpath. It's only written when the IDE shuts down,
+ * and only if the last build of the project completed,
+ * since the markers, which are persisted by the workspace,
+ * then match the recorded hashes. It's read, and deleted,
+ * by the first build of the next session, so that a
+ * session which doesn't shut down cleanly leaves no stale
+ * snapshot behind.
+ *
+ * A file is considered up to date if neither it nor any
+ * of the files it depended on, directly or indirectly,
+ * changed. If files were added or removed, or the
+ * fingerprint changed, no file is up to date.
+ */
+public class MarkerSnapshot {
+
+    private static final int VERSION = 3;
+    private static final String FILE_NAME = "markers.snapshot";
+
+    private static final Map<IProject, MarkerSnapshot> snapshots =
+            new HashMap<IProject, MarkerSnapshot>();
+
+    private final File location;
+    /**
+     * The hashes of the source files of the project, by
+     * full path, as of their last build.
+     */
+    private final Map<String, String> hashes =
+            new HashMap<String, String>();
+    /**
+     * The hashes of the other files the source files of
+     * the project depended on, by full path, as of the
+     * last build of their dependents.
+     */
+    private final Map<String, String> externalHashes =
+            new HashMap<String, String>();
+    private String environment;
+    private boolean settled;
+    private boolean loaded;
+    private Saved saved;
+
+    /**
+     * The content of a snapshot file.
+     */
+    private static class Saved {
+        String environment;
+        final Map<String, String> hashes =
+                new HashMap<String, String>();
+        final Map<String, String> externalHashes =
+                new HashMap<String, String>();
+        final Map<String, List<String>> dependents =
+                new HashMap<String, List<String>>();
+    }
+
+    private MarkerSnapshot(File location) {
+        this.location = location;
+    }
+
+    private static MarkerSnapshot get(IProject project) {
+        synchronized (snapshots) {
+            MarkerSnapshot snapshot = snapshots.get(project);
+            if (snapshot==null) {
+                File location =
+                        new File(project.getWorkingLocation(PLUGIN_ID)
+                                .toFile(), FILE_NAME);
+                snapshot = new MarkerSnapshot(location);
+                snapshots.put(project, snapshot);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Called at the start of a build of the given project,
+     * reading the snapshot left by the previous session,
+     * if this is the first build of the session.
+     */
+    static void buildStarted(IProject project) {
+        MarkerSnapshot snapshot = get(project);
+        synchronized (snapshot) {
+            snapshot.settled = false;
+            if (!snapshot.loaded) {
+                snapshot.loaded = true;
+                snapshot.saved = read(snapshot.location);
+                snapshot.location.delete();
+            }
+        }
+    }
+
+    /**
+     * Called when a build of the given project completed,
+     * with the fingerprint of its classpath and settings.
+     */
+    static void buildFinished(IProject project,
+            String environment) {
+        MarkerSnapshot snapshot = get(project);
+        synchronized (snapshot) {
+            snapshot.environment = environment;
+            snapshot.settled = true;
+            //too late to be of any use
+            snapshot.saved = null;
+        }
+    }
+
+    /**
+     * Returns the given source files of the project which
+     * are unchanged since the last build of the previous
+     * session, along with everything they depend on, and
+     * record their current hashes.
+     */
+    static Set<IFile> getUpToDateFiles(IProject project,
+            Collection<IFile> files, String environment) {
+        MarkerSnapshot snapshot = get(project);
+        synchronized (snapshot) {
+            Saved saved = snapshot.saved;
+            snapshot.saved = null;
+            Map<String, IFile> current =
+                    new HashMap<String, IFile>();
+            for (IFile file: files) {
+                String path = file.getFullPath().toString();
+                current.put(path, file);
+                snapshot.hashes.put(path, hash(file));
+            }
+            if (saved==null ||
+                    !saved.environment.equals(hash(environment)) ||
+                    !saved.hashes.keySet().equals(current.keySet())) {
+                return Collections.emptySet();
+            }
+
+            Map<String, String> savedHashes =
+                    new HashMap<String, String>(saved.hashes);
+            savedHashes.putAll(saved.externalHashes);
+            Map<String, String> currentHashes =
+                    new HashMap<String, String>();
+            for (String path: saved.hashes.keySet()) {
+                currentHashes.put(path, snapshot.hashes.get(path));
+            }
+            for (String path: saved.externalHashes.keySet()) {
+                IFile file = getWorkspace().getRoot()
+                        .getFile(new Path(path));
+                currentHashes.put(path,
+                        file.exists() ? hash(file) : null);
+            }
+            Set<String> stale =
+                    getStalePaths(savedHashes, currentHashes,
+                            saved.dependents);
+
+            Set<IFile> result = new HashSet<IFile>();
+            for (Map.Entry<String, IFile> entry:
+                    current.entrySet()) {
+                if (!stale.contains(entry.getKey())) {
+                    result.add(entry.getValue());
+                }
+            }
+            if (CeylonPlugin.getInstance().isDebugging()) {
+                CeylonPlugin.log(IStatus.INFO,
+                        "Marker snapshot of project " + project.getName()
+                        + ": " + result.size() + " of "
+                        + current.size() + " source files up to date");
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns the paths of the files whose current hash
+     * differs from their saved hash, or which have no
+     * current hash, along with the paths of the files
+     * depending on them, directly or indirectly, according
+     * to the given dependents of each file.
+     */
+    public static Set<String> getStalePaths(
+            Map<String, String> savedHashes,
+            Map<String, String> currentHashes,
+            Map<String, List<String>> dependents) {
+        Set<String> stale = new HashSet<String>();
+        for (Map.Entry<String, String> entry:
+                savedHashes.entrySet()) {
+            String path = entry.getKey();
+            String hash = currentHashes.get(path);
+            if (hash==null || !hash.equals(entry.getValue())) {
+                stale.add(path);
+            }
+        }
+
+        //propagate staleness to the dependent files
+        LinkedList<String> worklist =
+                new LinkedList<String>(stale);
+        while (!worklist.isEmpty()) {
+            List<String> list =
+                    dependents.get(worklist.removeFirst());
+            if (list!=null) {
+                for (String dependent: list) {
+                    if (stale.add(dependent)) {
+                        worklist.add(dependent);
+                    }
+                }
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Record the current hashes of the given source files
+     * of the project, and of the files they depend on,
+     * after they have been built and their dependencies
+     * have been collected.
+     */
+    static void recordFiles(IProject project,
+            Collection<IFile> files) {
+        MarkerSnapshot snapshot = get(project);
+        synchronized (snapshot) {
+            for (IFile file: files) {
+                snapshot.hashes.put(file.getFullPath().toString(),
+                        hash(file));
+            }
+            snapshot.recordDependencies(files);
+        }
+    }
+
+    /**
+     * Record the current hashes of the files the given
+     * source files of the project depend on, after their
+     * dependencies have been collected.
+     */
+    static void recordDependencies(IProject project,
+            Collection<IFile> files) {
+        MarkerSnapshot snapshot = get(project);
+        synchronized (snapshot) {
+            snapshot.recordDependencies(files);
+        }
+    }
+
+    private void recordDependencies(Collection<IFile> files) {
+        for (IFile file: files) {
+            for (IFile dependency:
+                    UnitDependencyGraph.getDependencies(file)) {
+                String path = dependency.getFullPath().toString();
+                if (!hashes.containsKey(path)) {
+                    externalHashes.put(path, hash(dependency));
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget the given source files of the project, after
+     * they have been removed.
+     */
+    static void removeFiles(IProject project,
+            Collection<IFile> files) {
+        MarkerSnapshot snapshot = get(project);
+        synchronized (snapshot) {
+            for (IFile file: files) {
+                snapshot.hashes.remove(file.getFullPath().toString());
+            }
+        }
+    }
+
+    /**
+     * Forget the snapshot of the given project, when it's
+     * closed or deleted, writing it if the project was
+     * just closed.
+     */
+    static void remove(IProject project) {
+        MarkerSnapshot snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.remove(project);
+        }
+        if (snapshot!=null) {
+            synchronized (snapshot) {
+                if (snapshot.settled && project.exists()) {
+                    snapshot.save();
+                }
+                else {
+                    snapshot.location.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the snapshots of the projects whose last build
+     * completed, when the IDE shuts down.
+     */
+    static void saveAll() {
+        List<MarkerSnapshot> list;
+        synchronized (snapshots) {
+            list = new ArrayList<MarkerSnapshot>(snapshots.values());
+        }
+        for (MarkerSnapshot snapshot: list) {
+            synchronized (snapshot) {
+                if (snapshot.settled) {
+                    snapshot.save();
+                }
+            }
+        }
+    }
+
+    private void save() {
+        try {
+            write();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            location.delete();
+        }
+    }
+
+    private void write() throws IOException {
+        //the files depending on each file, as the builder
+        //sees them when it looks for the files to rebuild
+        Map<String, String> external =
+                new HashMap<String, String>();
+        Map<String, List<String>> dependents =
+                new HashMap<String, List<String>>();
+        for (String path: hashes.keySet()) {
+            IFile file = getWorkspace().getRoot()
+                    .getFile(new Path(path));
+            for (IFile dependency:
+                    UnitDependencyGraph.getDependencies(file)) {
+                String dependencyPath =
+                        dependency.getFullPath().toString();
+                if (!hashes.containsKey(dependencyPath) &&
+                        !external.containsKey(dependencyPath)) {
+                    //a file we don't know the hash of is
+                    //always considered changed
+                    String hash = externalHashes.get(dependencyPath);
+                    external.put(dependencyPath, hash);
+                }
+            }
+        }
+        for (String path: concat(hashes.keySet(), external.keySet())) {
+            IFile file = getWorkspace().getRoot()
+                    .getFile(new Path(path));
+            List<String> list = new ArrayList<String>();
+            for (IFile dependent:
+                    UnitDependencyGraph.getDependents(file)) {
+                String dependentPath =
+                        dependent.getFullPath().toString();
+                if (hashes.containsKey(dependentPath)) {
+                    list.add(dependentPath);
+                }
+            }
+            if (!list.isEmpty()) {
+                dependents.put(path, list);
+            }
+        }
+
+        location.getParentFile().mkdirs();
+        DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(location)));
+        try {
+            out.writeInt(VERSION);
+            out.writeUTF(hash(environment));
+            writeHashes(out, hashes);
+            writeHashes(out, external);
+            out.writeInt(dependents.size());
+            for (Map.Entry<String, List<String>> entry:
+                    dependents.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (String dependent: entry.getValue()) {
+                    out.writeUTF(dependent);
+                }
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private static List<String> concat(Collection<String> first,
+            Collection<String> second) {
+        List<String> result =
+                new ArrayList<String>(first.size()+second.size());
+        result.addAll(first);
+        result.addAll(second);
+        return result;
+    }
+
+    private static void writeHashes(DataOutputStream out,
+            Map<String, String> hashes)
+                    throws IOException {
+        out.writeInt(hashes.size());
+        for (Map.Entry<String, String> entry:
+                hashes.entrySet()) {
+            String hash = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeUTF(hash==null ? "" : hash);
+        }
+    }
+
+    private static Saved read(File location) {
+        if (!location.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream in =
+                    new DataInputStream(new BufferedInputStream(
+                            new FileInputStream(location)));
+            try {
+                if (in.readInt()!=VERSION) {
+                    return null;
+                }
+                Saved saved = new Saved();
+                saved.environment = in.readUTF();
+                readHashes(in, saved.hashes);
+                readHashes(in, saved.externalHashes);
+                for (int i=0, size=in.readInt(); i<size; i++) {
+                    String path = in.readUTF();
+                    int count = in.readInt();
+                    List<String> list = new ArrayList<String>(count);
+                    for (int j=0; j<count; j++) {
+                        list.add(in.readUTF());
+                    }
+                    saved.dependents.put(path, list);
+                }
+                return saved;
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException e) {
+            //a corrupt snapshot is just ignored
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static void readHashes(DataInputStream in,
+            Map<String, String> hashes)
+                    throws IOException {
+        int size = in.readInt();
+        for (int i=0; i<size; i++) {
+            hashes.put(in.readUTF(), in.readUTF());
+        }
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length*2);
+        for (byte b: bytes) {
+            result.append(Character.forDigit((b>>4)&0xF, 16))
+                  .append(Character.forDigit(b&0xF, 16));
+        }
+        return result.toString();
+    }
+
+    private static String hash(String text) {
+        try {
+            return toHex(digest().digest(text.getBytes("UTF-8")));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns a hash of the content of the given file, or
+     * null if it can't be read.
+     */
+    private static String hash(IFile file) {
+        MessageDigest digest = digest();
+        byte[] buffer = new byte[8192];
+        try {
+            InputStream in = file.getContents(true);
+            try {
+                int read;
+                while ((read = in.read(buffer))>=0) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            finally {
+                in.close();
+            }
+            return toHex(digest.digest());
+        }
+        catch (CoreException | IOException e) {
+            return null;
+        }
+    }
+
+}
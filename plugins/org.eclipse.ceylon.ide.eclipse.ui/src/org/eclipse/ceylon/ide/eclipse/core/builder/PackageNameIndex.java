@@ -0,0 +1,260 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.core.builder;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.eclipse.ceylon.compiler.typechecker.context.PhasedUnit;
+import org.eclipse.ceylon.model.typechecker.model.ClassOrInterface;
+import org.eclipse.ceylon.model.typechecker.model.Declaration;
+import org.eclipse.ceylon.model.typechecker.model.Package;
+import org.eclipse.ceylon.model.typechecker.model.Unit;
+
+/**
+ * An index of the names of the declarations of each
+ * package, used by Open Declaration, Open in Hierarchy and
+ * import proposals to find the declarations with a name,
+ * or with a name prefix, without walking every package of
+ * every module.
+ *
+ * The index of a package holds the toplevel declarations
+ * of the package, and, once they're asked for, the shared
+ * members of its classes and interfaces, recursively,
+ * sorted by lowercase name. Building the index of a
+ * package loads all its members. The index of a package is
+ * kept until the package is released, or until the units
+ * of the package change, in which case it's built again
+ * the next time it's used. The builder updates the index
+ * of the packages of the units it typechecks.
+ *
+ * Callers must still check the declarations they get from
+ * the index against their own criteria, since the index
+ * doesn't know about visibility or filters.
+ */
+public class PackageNameIndex {
+
+    private static final Map<Package, PackageIndex> indexes =
+            new WeakHashMap<Package, PackageIndex>();
+
+    /**
+     * Declarations sorted by lowercase name. The
+     * declarations are held weakly, since they refer to the
+     * package, which would otherwise never be released by
+     * the weak map.
+     */
+    private static class Names {
+        final String[] names;
+        final List<WeakReference<Declaration>> declarations;
+
+        Names(List<Declaration> list) {
+            Declaration[] sorted =
+                    list.toArray(new Declaration[list.size()]);
+            Arrays.sort(sorted, new Comparator<Declaration>() {
+                @Override
+                public int compare(Declaration x, Declaration y) {
+                    return fold(x).compareTo(fold(y));
+                }
+            });
+            names = new String[sorted.length];
+            declarations =
+                    new ArrayList<WeakReference<Declaration>>
+                        (sorted.length);
+            for (int i=0; i<sorted.length; i++) {
+                names[i] = fold(sorted[i]);
+                declarations.add(
+                        new WeakReference<Declaration>(sorted[i]));
+            }
+        }
+
+        void collect(String prefix, List<Declaration> result) {
+            int i = Arrays.binarySearch(names, prefix);
+            if (i<0) {
+                i = -i-1;
+            }
+            else {
+                //back up to the first of equal names
+                while (i>0 && names[i-1].equals(prefix)) {
+                    i--;
+                }
+            }
+            for (; i<names.length &&
+                    names[i].startsWith(prefix); i++) {
+                Declaration dec = declarations.get(i).get();
+                if (dec!=null) {
+                    result.add(dec);
+                }
+            }
+        }
+    }
+
+    private static class PackageIndex {
+        final List<WeakReference<Unit>> units =
+                new ArrayList<WeakReference<Unit>>();
+        Names toplevels;
+        Names members;
+
+        PackageIndex(Package pack) {
+            List<Declaration> list =
+                    new ArrayList<Declaration>();
+            for (Declaration dec:
+                    new ArrayList<Declaration>(pack.getMembers())) {
+                if (dec.getName()!=null) {
+                    list.add(dec);
+                }
+            }
+            //the units are recorded after the members are
+            //loaded, since a lazy package adds a unit for
+            //each member it loads
+            for (Unit unit: new ArrayList<Unit>(pack.getUnits())) {
+                units.add(new WeakReference<Unit>(unit));
+            }
+            toplevels = new Names(list);
+        }
+
+        boolean isCurrent(List<Unit> current) {
+            if (current.size()!=units.size()) {
+                return false;
+            }
+            for (int i=0; i<units.size(); i++) {
+                if (current.get(i)!=units.get(i).get()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Names getMembers() {
+            if (members==null) {
+                List<Declaration> list =
+                        new ArrayList<Declaration>();
+                List<Declaration> toplevelList =
+                        new ArrayList<Declaration>();
+                toplevels.collect("", toplevelList);
+                for (Declaration dec: toplevelList) {
+                    addMembers(dec, list);
+                }
+                members = new Names(list);
+            }
+            return members;
+        }
+
+        private static void addMembers(Declaration dec,
+                List<Declaration> list) {
+            if (dec instanceof ClassOrInterface) {
+                try {
+                    for (Declaration member:
+                            new ArrayList<Declaration>
+                                (dec.getMembers())) {
+                        if (member.isShared() &&
+                                member.getName()!=null) {
+                            list.add(member);
+                            addMembers(member, list);
+                        }
+                    }
+                }
+                catch (Exception e) {
+                    //a broken binary type
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static String fold(Declaration dec) {
+        return dec.getName().toLowerCase();
+    }
+
+    /**
+     * Returns the index of the given package, built again
+     * if the units of the package changed since it was
+     * built.
+     */
+    private static PackageIndex getIndex(Package pack) {
+        synchronized (indexes) {
+            PackageIndex index = indexes.get(pack);
+            if (index!=null &&
+                    index.isCurrent(
+                            new ArrayList<Unit>(pack.getUnits()))) {
+                return index;
+            }
+        }
+        PackageIndex index = new PackageIndex(pack);
+        synchronized (indexes) {
+            indexes.put(pack, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the toplevel declarations of the given
+     * package whose lowercase names start with the given
+     * lowercase prefix, along with the shared members of
+     * its classes and interfaces whose names start with
+     * the prefix, if members are requested.
+     */
+    public static List<Declaration> getDeclarations(
+            Package pack, String prefix, boolean members) {
+        List<Declaration> result =
+                new ArrayList<Declaration>();
+        PackageIndex index = getIndex(pack);
+        synchronized (index) {
+            index.toplevels.collect(prefix, result);
+            if (members) {
+                index.getMembers().collect(prefix, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the toplevel declarations of the given
+     * package with the given name.
+     */
+    public static List<Declaration> getDeclarations(
+            Package pack, String name) {
+        List<Declaration> result =
+                new ArrayList<Declaration>();
+        for (Declaration dec:
+                getDeclarations(pack, name.toLowerCase(), false)) {
+            if (name.equals(dec.getName())) {
+                result.add(dec);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Update the index of the packages of the given units,
+     * after they have been typechecked.
+     */
+    public static void update(
+            Collection<? extends PhasedUnit> units) {
+        Set<Package> packages = new LinkedHashSet<Package>();
+        for (PhasedUnit pu: units) {
+            Package pack = pu.getPackage();
+            if (pack!=null) {
+                packages.add(pack);
+            }
+        }
+        for (Package pack: packages) {
+            getIndex(pack);
+        }
+    }
+
+}
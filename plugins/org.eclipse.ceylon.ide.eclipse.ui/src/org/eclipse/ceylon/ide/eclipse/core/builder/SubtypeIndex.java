@@ -0,0 +1,282 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.core.builder;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.eclipse.ceylon.compiler.typechecker.context.PhasedUnit;
+import org.eclipse.ceylon.ide.common.model.BaseIdeModule;
+import org.eclipse.ceylon.model.typechecker.model.ClassOrInterface;
+import org.eclipse.ceylon.model.typechecker.model.Declaration;
+import org.eclipse.ceylon.model.typechecker.model.Module;
+import org.eclipse.ceylon.model.typechecker.model.Package;
+import org.eclipse.ceylon.model.typechecker.model.Type;
+import org.eclipse.ceylon.model.typechecker.model.TypeDeclaration;
+import org.eclipse.ceylon.model.typechecker.model.TypeParameter;
+import org.eclipse.ceylon.model.typechecker.model.Unit;
+
+/**
+ * A reverse inheritance index, mapping each type to the
+ * classes, interfaces and type parameters which directly
+ * extend or satisfy it, used by the type hierarchy and by
+ * Find Subtypes to avoid checking every type of the model.
+ *
+ * The index is kept per package, for source, binary and
+ * Java packages alike. It covers only the units and
+ * declarations the package has already loaded, and never
+ * forces a package to load its members. Each time the
+ * index of a package is used, the units and declarations
+ * loaded since it was built are added to it, and it is
+ * rebuilt only if units of the package were removed or
+ * replaced. The builder updates the index of the packages
+ * of the units it typechecks.
+ */
+public class SubtypeIndex {
+
+    private static final Map<Package, PackageIndex> indexes =
+            new WeakHashMap<Package, PackageIndex>();
+
+    /**
+     * The index of a package. The units and types are held
+     * weakly, since they refer to the package, which would
+     * otherwise never be released by the weak map. They
+     * can't be released before the package is.
+     */
+    private static class PackageIndex {
+        final List<WeakReference<Unit>> units =
+                new ArrayList<WeakReference<Unit>>();
+        final List<Integer> declarationCounts =
+                new ArrayList<Integer>();
+        final Map<String, List<WeakReference<TypeDeclaration>>> subtypes =
+                new HashMap<String, List<WeakReference<TypeDeclaration>>>();
+
+        /**
+         * Add the units and declarations loaded since the
+         * last update, returning false if some indexed
+         * unit is gone, in which case the index must be
+         * built again. The declarations of the units are
+         * iterated, rather than the members of the package,
+         * in order to pick up nested declarations.
+         */
+        boolean update(List<Unit> current) {
+            int indexed = units.size();
+            if (current.size()<indexed) {
+                return false;
+            }
+            for (int i=0; i<indexed; i++) {
+                Unit unit = current.get(i);
+                if (unit!=units.get(i).get()) {
+                    return false;
+                }
+                List<Declaration> declarations =
+                        unit.getDeclarations();
+                int count = declarationCounts.get(i);
+                if (declarations.size()<count) {
+                    return false;
+                }
+                if (declarations.size()>count) {
+                    declarationCounts.set(i,
+                            addDeclarations(declarations, count));
+                }
+            }
+            for (int i=indexed; i<current.size(); i++) {
+                Unit unit = current.get(i);
+                units.add(new WeakReference<Unit>(unit));
+                declarationCounts.add(
+                        addDeclarations(unit.getDeclarations(), 0));
+            }
+            return true;
+        }
+
+        private int addDeclarations(List<Declaration> declarations,
+                int from) {
+            //copy, since declarations may be loaded
+            //concurrently
+            List<Declaration> list =
+                    new ArrayList<Declaration>(declarations);
+            for (int i=from; i<list.size(); i++) {
+                Declaration d = list.get(i);
+                if (d instanceof ClassOrInterface ||
+                        d instanceof TypeParameter) {
+                    TypeDeclaration td = (TypeDeclaration) d;
+                    try {
+                        Type et = td.getExtendedType();
+                        if (et!=null) {
+                            add(et.getDeclaration(), td);
+                        }
+                        for (Type st: td.getSatisfiedTypes()) {
+                            if (st!=null) {
+                                add(st.getDeclaration(), td);
+                            }
+                        }
+                    }
+                    catch (Exception e) {
+                        //a broken binary type
+                        e.printStackTrace();
+                    }
+                }
+            }
+            return list.size();
+        }
+
+        private void add(TypeDeclaration supertype,
+                TypeDeclaration subtype) {
+            if (supertype!=null) {
+                String key = supertype.getQualifiedNameString();
+                List<WeakReference<TypeDeclaration>> list =
+                        subtypes.get(key);
+                if (list==null) {
+                    list = new ArrayList<WeakReference<TypeDeclaration>>(2);
+                    subtypes.put(key, list);
+                }
+                list.add(new WeakReference<TypeDeclaration>(subtype));
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the given package, brought up to
+     * date with the units it has loaded so far.
+     */
+    private static PackageIndex getIndex(Package pack) {
+        PackageIndex index;
+        synchronized (indexes) {
+            index = indexes.get(pack);
+            if (index==null) {
+                index = new PackageIndex();
+                indexes.put(pack, index);
+            }
+        }
+        synchronized (index) {
+            if (!index.update(new ArrayList<Unit>(pack.getUnits()))) {
+                PackageIndex rebuilt = new PackageIndex();
+                rebuilt.update(new ArrayList<Unit>(pack.getUnits()));
+                synchronized (indexes) {
+                    indexes.put(pack, rebuilt);
+                }
+                return rebuilt;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the classes, interfaces and type parameters
+     * of the given packages which directly extend or
+     * satisfy the given type.
+     */
+    public static List<TypeDeclaration> getDirectSubtypes(
+            TypeDeclaration type,
+            Collection<Package> packages) {
+        String key = type.getQualifiedNameString();
+        List<TypeDeclaration> result =
+                new ArrayList<TypeDeclaration>();
+        for (Package pack: packages) {
+            PackageIndex index = getIndex(pack);
+            synchronized (index) {
+                List<WeakReference<TypeDeclaration>> list =
+                        index.subtypes.get(key);
+                if (list!=null) {
+                    for (WeakReference<TypeDeclaration> ref: list) {
+                        TypeDeclaration subtype = ref.get();
+                        if (subtype!=null) {
+                            result.add(subtype);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the classes, interfaces and type parameters
+     * of the given packages which directly or indirectly
+     * inherit the given type, through types which also
+     * belong to the given packages.
+     */
+    public static Set<TypeDeclaration> getSubtypes(
+            TypeDeclaration type,
+            Collection<Package> packages) {
+        Set<TypeDeclaration> result =
+                new LinkedHashSet<TypeDeclaration>();
+        LinkedList<TypeDeclaration> worklist =
+                new LinkedList<TypeDeclaration>();
+        worklist.add(type);
+        while (!worklist.isEmpty()) {
+            TypeDeclaration td = worklist.removeFirst();
+            for (TypeDeclaration subtype:
+                    getDirectSubtypes(td, packages)) {
+                if (result.add(subtype)) {
+                    worklist.add(subtype);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the packages which may contain subtypes of
+     * the given type, that is, the packages of its module,
+     * and of the modules which depend on its module, in
+     * every project.
+     */
+    public static Set<Package> getPackagesSeeing(
+            TypeDeclaration type) {
+        Set<Package> packages = new LinkedHashSet<Package>();
+        Module module = type.getUnit().getPackage().getModule();
+        if (module instanceof BaseIdeModule) {
+            BaseIdeModule ideModule = (BaseIdeModule) module;
+            List<BaseIdeModule> modules =
+                    new ArrayList<BaseIdeModule>();
+            modules.add(ideModule);
+            modules.addAll(ideModule.getModuleInReferencingProjectsAsJavaList());
+            for (BaseIdeModule m: modules) {
+                packages.addAll(m.getPackages());
+                for (Module referencing:
+                        m.getReferencingModulesAsJavaList()) {
+                    packages.addAll(referencing.getPackages());
+                }
+            }
+        }
+        else if (module!=null) {
+            packages.addAll(module.getPackages());
+        }
+        return packages;
+    }
+
+    /**
+     * Update the index of the packages of the given units,
+     * after they have been typechecked.
+     */
+    public static void update(
+            Collection<? extends PhasedUnit> units) {
+        Set<Package> packages = new LinkedHashSet<Package>();
+        for (PhasedUnit pu: units) {
+            Package pack = pu.getPackage();
+            if (pack!=null) {
+                packages.add(pack);
+            }
+        }
+        for (Package pack: packages) {
+            getIndex(pack);
+        }
+    }
+
+}
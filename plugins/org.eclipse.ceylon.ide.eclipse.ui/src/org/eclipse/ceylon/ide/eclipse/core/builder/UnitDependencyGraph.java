@@ -0,0 +1,281 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.core.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+
+import org.eclipse.ceylon.ide.common.model.ICrossProjectReference;
+import org.eclipse.ceylon.ide.common.model.IResourceAware;
+import org.eclipse.ceylon.model.typechecker.model.Unit;
+
+/**
+ * The dependencies between the source files of the
+ * workspace, as collected by the
+ * {@link UnitDependencyVisitor}.
+ *
+ * Each file is interned as an integer id the first time
+ * it takes part in a dependency, and the dependencies
+ * are kept in both directions as arrays of ids, so that
+ * the files depending on a changed file are found
+ * without resolving any path. Unlike the dependents
+ * recorded in the units of the model, which live only as
+ * long as the unit does, the graph is keyed by file and
+ * survives the replacement of units by an incremental
+ * build. The dependencies of a file are replaced each
+ * time it is visited again. The ids of removed files are
+ * reused for new files.
+ */
+public class UnitDependencyGraph {
+
+    private static final Map<IFile, Integer> ids =
+            new HashMap<IFile, Integer>();
+    private static IFile[] files = new IFile[256];
+    private static IntList[] dependents = new IntList[256];
+    private static IntList[] dependencies = new IntList[256];
+    private static int size = 0;
+    private static final IntList freeIds = new IntList();
+
+    /**
+     * A growable list of ids.
+     */
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        boolean contains(int value) {
+            for (int i=0; i<size; i++) {
+                if (values[i]==value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean add(int value) {
+            if (contains(value)) {
+                return false;
+            }
+            append(value);
+            return true;
+        }
+
+        void append(int value) {
+            if (size==values.length) {
+                values = Arrays.copyOf(values, size*2);
+            }
+            values[size++] = value;
+        }
+
+        void remove(int value) {
+            for (int i=0; i<size; i++) {
+                if (values[i]==value) {
+                    values[i] = values[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private static int intern(IFile file) {
+        Integer id = ids.get(file);
+        if (id!=null) {
+            return id;
+        }
+        if (freeIds.size>0) {
+            int free = freeIds.values[--freeIds.size];
+            files[free] = file;
+            ids.put(file, free);
+            return free;
+        }
+        if (size==files.length) {
+            int capacity = size*2;
+            files = Arrays.copyOf(files, capacity);
+            dependents = Arrays.copyOf(dependents, capacity);
+            dependencies = Arrays.copyOf(dependencies, capacity);
+        }
+        files[size] = file;
+        ids.put(file, size);
+        return size++;
+    }
+
+    private static int lookup(IFile file) {
+        Integer id = ids.get(file);
+        return id==null ? -1 : id;
+    }
+
+    /**
+     * Returns the source file of the given unit, or null
+     * if it's not a unit of a source file in the workspace.
+     */
+    @SuppressWarnings("unchecked")
+    public static IFile getFile(Unit unit) {
+        if (unit instanceof ICrossProjectReference) {
+            unit = ((ICrossProjectReference) unit)
+                    .getOriginalSourceFile();
+        }
+        if (unit instanceof IResourceAware) {
+            return ((IResourceAware<IProject,IFolder,IFile>) unit)
+                    .getResourceFile();
+        }
+        else {
+            return null;
+        }
+    }
+
+    /**
+     * Record that the given dependent file depends on the
+     * given file.
+     */
+    public static void addDependency(IFile dependent,
+            IFile dependedOn) {
+        if (dependent==null || dependedOn==null ||
+                dependent.equals(dependedOn)) {
+            return;
+        }
+        synchronized (ids) {
+            int from = intern(dependent);
+            int to = intern(dependedOn);
+            if (dependencies[from]==null) {
+                dependencies[from] = new IntList();
+            }
+            if (dependencies[from].add(to)) {
+                if (dependents[to]==null) {
+                    dependents[to] = new IntList();
+                }
+                //the edge is new, no need to check
+                dependents[to].append(from);
+            }
+        }
+    }
+
+    /**
+     * Forget the dependencies of the given file, before
+     * they get collected again.
+     */
+    public static void clearDependencies(IFile dependent) {
+        if (dependent==null) {
+            return;
+        }
+        synchronized (ids) {
+            int id = lookup(dependent);
+            if (id>=0) {
+                clearDependencies(id);
+            }
+        }
+    }
+
+    private static void clearDependencies(int id) {
+        IntList list = dependencies[id];
+        if (list!=null) {
+            for (int i=0; i<list.size; i++) {
+                dependents[list.values[i]].remove(id);
+            }
+            dependencies[id] = null;
+        }
+    }
+
+    /**
+     * Forget the given file, which was removed, and its
+     * dependencies in both directions. The files which
+     * depended on it record their dependencies again when
+     * they are typechecked.
+     */
+    public static void removeFile(IFile file) {
+        if (file==null) {
+            return;
+        }
+        synchronized (ids) {
+            int id = lookup(file);
+            if (id>=0) {
+                remove(id);
+            }
+        }
+    }
+
+    /**
+     * Forget the files of the given project and their
+     * dependencies.
+     */
+    public static void removeProject(IProject project) {
+        synchronized (ids) {
+            for (int id=0; id<size; id++) {
+                IFile file = files[id];
+                if (file!=null &&
+                        project.equals(file.getProject())) {
+                    remove(id);
+                }
+            }
+        }
+    }
+
+    private static void remove(int id) {
+        clearDependencies(id);
+        IntList list = dependents[id];
+        if (list!=null) {
+            for (int i=0; i<list.size; i++) {
+                dependencies[list.values[i]].remove(id);
+            }
+            dependents[id] = null;
+        }
+        ids.remove(files[id]);
+        files[id] = null;
+        freeIds.append(id);
+    }
+
+    /**
+     * Returns the files which directly depend on the given
+     * file.
+     */
+    public static List<IFile> getDependents(IFile file) {
+        synchronized (ids) {
+            int id = lookup(file);
+            return id<0 ?
+                    new ArrayList<IFile>() :
+                    toFiles(dependents[id]);
+        }
+    }
+
+    /**
+     * Returns the files on which the given file directly
+     * depends.
+     */
+    public static List<IFile> getDependencies(IFile file) {
+        synchronized (ids) {
+            int id = lookup(file);
+            return id<0 ?
+                    new ArrayList<IFile>() :
+                    toFiles(dependencies[id]);
+        }
+    }
+
+    private static int count(IntList list) {
+        return list==null ? 0 : list.size;
+    }
+
+    private static List<IFile> toFiles(IntList list) {
+        List<IFile> result =
+                new ArrayList<IFile>(count(list));
+        if (list!=null) {
+            for (int i=0; i<list.size; i++) {
+                result.add(files[list.values[i]]);
+            }
+        }
+        return result;
+    }
+
+}
@@ -151,6 +151,10 @@ public class UnitDependencyVisitor extends Visitor {
         if (!dependedOnUnitName.equals(currentUnitName) ||
                 !dependedOnPackage.equals(currentUnitPackage)) {
             
+            UnitDependencyGraph.addDependency(
+                    UnitDependencyGraph.getFile(currentUnit), 
+                    UnitDependencyGraph.getFile(declarationUnit));
+            
             // WOW : Ceylon Abstract Data types and swith case would be cool here ;) 
             if (declarationUnit instanceof ProjectSourceFile) {
                 declarationUnit.getDependentsOf()
@@ -67,6 +67,7 @@ import org.eclipse.ceylon.ide.eclipse.core.debug.model.CeylonJDIDebugTarget;
 import org.eclipse.ceylon.ide.eclipse.core.debug.model.CeylonJDIDebugTarget.EvaluationListener;
 import org.eclipse.ceylon.ide.eclipse.core.debug.model.CeylonJDIDebugTarget.EvaluationRunner;
 import org.eclipse.ceylon.ide.eclipse.core.debug.model.CeylonJDIDebugTarget.EvaluationWaiter;
+import org.eclipse.ceylon.ide.eclipse.core.debug.StepFilterCache.StepThrough;
 import org.eclipse.ceylon.ide.eclipse.util.JavaSearch;
 import org.eclipse.ceylon.ide.eclipse.util.JavaSearch.DefaultArgumentMethodSearch;
 import org.eclipse.ceylon.ide.common.model.BaseIdeModelLoader;
@@ -822,12 +823,31 @@ public class DebugUtils {
     }
     
     public static boolean isCeylonGeneratedMethodToStepThrough(Method method) {
+        StepThrough stepThrough = StepFilterCache.getStepThrough(method);
+        if (stepThrough == null) {
+            stepThrough = classifyStepThrough(method);
+            StepFilterCache.putStepThrough(method, stepThrough);
+        }
+        switch (stepThrough) {
+        case ALWAYS:
+            return true;
+        case DEFAULT_ARGUMENT_CODE:
+            CeylonJDIDebugTarget debugTarget = getDebugTarget();
+            return debugTarget != null 
+                    && debugTarget.isStepFiltersEnabled() 
+                    && debugTarget.isFiltersDefaultArgumentsCode();
+        default:
+            return false;
+        }
+    }
+
+    private static StepThrough classifyStepThrough(Method method) {
         Location location = method.location();
         ReferenceType declaringType = location.declaringType();
         final String methodName = method.name();
 
         if (declaringType.name().startsWith(CEYLON_BASE_PACKAGE) && ! method.isConstructor()) {
-            return true;
+            return StepThrough.ALWAYS;
         }
 
         if (methodName.equals(Naming.Unfix.$evaluate$.name())) {
@@ -835,7 +855,7 @@ public class DebugUtils {
                 ClassType classType = (ClassType) declaringType;
                 String superClassName = classType.superclass().name();
                 if (LAZY_ITERABLE.equals(superClassName)) {
-                    return true;
+                    return StepThrough.ALWAYS;
                 }
             }
         }
@@ -849,14 +869,14 @@ public class DebugUtils {
                 if (ABSTRACT_CALLABLE.equals(superClassName)) {
                     if (method.isSynthetic()) {
                         // some synthetic methods are generated by Javac apparently
-                        return true;
+                        return StepThrough.ALWAYS;
                     }
                     List<Method> methods = classType.methodsByName(Naming.Unfix.$calltyped$.name());
                     if (methods != null && ! methods.isEmpty()) {
                         if (methodName.equals(Naming.Unfix.$call$.name())
                                 || methodName.equals(Naming.Unfix.$callvariadic$.name())) {
                             // they only delegate to $callTyped$
-                            return true;
+                            return StepThrough.ALWAYS;
                         }
                     }
                 }
@@ -864,26 +884,20 @@ public class DebugUtils {
         }
 
         if (methodName.startsWith(Naming.Prefix.$default$.name())) {
-            CeylonJDIDebugTarget debugTarget = getDebugTarget();
-            return debugTarget != null 
-                    && debugTarget.isStepFiltersEnabled() 
-                    && debugTarget.isFiltersDefaultArgumentsCode();
+            return StepThrough.DEFAULT_ARGUMENT_CODE;
         }
         
         JdiDefaultArgumentMethodSearch.Result searchResult = 
                 new JdiDefaultArgumentMethodSearch().search(method);
         
         if (searchResult.overloadedMethod != null) {
-            return true;
+            return StepThrough.ALWAYS;
         }
         
         if (searchResult.defaultArgumentMethod != null) {
-            CeylonJDIDebugTarget debugTarget = getDebugTarget();
-            return debugTarget != null 
-                    && debugTarget.isStepFiltersEnabled() 
-                    && debugTarget.isFiltersDefaultArgumentsCode();
+            return StepThrough.DEFAULT_ARGUMENT_CODE;
         }
-        return false;
+        return StepThrough.NEVER;
     }
     
     public static boolean isJavaGeneratedMethodToStepThrough(Method method) {
@@ -906,6 +920,15 @@ public class DebugUtils {
     }
     
     public static boolean isCeylonGeneratedMethodToSkipCompletely(Method method) {
+        Boolean skip = StepFilterCache.getSkipCompletely(method);
+        if (skip == null) {
+            skip = classifySkipCompletely(method);
+            StepFilterCache.putSkipCompletely(method, skip);
+        }
+        return skip;
+    }
+
+    private static boolean classifySkipCompletely(Method method) {
         Location location = method.location();
         ReferenceType declaringType = location.declaringType();
         String declaringTypeName = declaringType.name();
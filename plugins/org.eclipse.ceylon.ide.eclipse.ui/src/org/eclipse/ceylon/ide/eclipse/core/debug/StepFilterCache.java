@@ -0,0 +1,146 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.core.debug;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.sun.jdi.Method;
+import com.sun.jdi.VirtualMachine;
+
+/**
+ * Caches the step filter classification of the methods
+ * of a debugged virtual machine, which otherwise requires
+ * several JDWP round trips each time a step ends in a
+ * method.
+ *
+ * The classification only depends on the loaded classes,
+ * so it has to be discarded when classes are redefined.
+ * The classification of default argument methods also
+ * depends on the preferences of the debug target, so it's
+ * cached as a separate kind, and the preferences are
+ * checked on every lookup.
+ */
+public class StepFilterCache {
+
+    public static enum StepThrough {
+        NEVER,
+        ALWAYS,
+        DEFAULT_ARGUMENT_CODE
+    }
+
+    private static final Map<VirtualMachine, StepFilterCache> caches =
+            new WeakHashMap<VirtualMachine, StepFilterCache>();
+
+    private final Map<Method, StepThrough> stepThrough =
+            new HashMap<Method, StepThrough>();
+    private final Map<Method, Boolean> skipCompletely =
+            new HashMap<Method, Boolean>();
+    private long hits;
+    private long misses;
+
+    private static StepFilterCache get(VirtualMachine vm) {
+        synchronized (caches) {
+            StepFilterCache cache = caches.get(vm);
+            if (cache == null) {
+                cache = new StepFilterCache();
+                caches.put(vm, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Returns the cached step-through classification of
+     * the given method, or null if it's not classified
+     * yet.
+     */
+    static StepThrough getStepThrough(Method method) {
+        StepFilterCache cache = get(method.virtualMachine());
+        synchronized (cache) {
+            return cache.count(cache.stepThrough.get(method));
+        }
+    }
+
+    static void putStepThrough(Method method, StepThrough value) {
+        StepFilterCache cache = get(method.virtualMachine());
+        synchronized (cache) {
+            cache.stepThrough.put(method, value);
+        }
+    }
+
+    /**
+     * Returns whether the given method is to be skipped
+     * completely, or null if it's not classified yet.
+     */
+    static Boolean getSkipCompletely(Method method) {
+        StepFilterCache cache = get(method.virtualMachine());
+        synchronized (cache) {
+            return cache.count(cache.skipCompletely.get(method));
+        }
+    }
+
+    static void putSkipCompletely(Method method, boolean value) {
+        StepFilterCache cache = get(method.virtualMachine());
+        synchronized (cache) {
+            cache.skipCompletely.put(method, value);
+        }
+    }
+
+    private <T> T count(T value) {
+        if (value == null) {
+            misses++;
+        }
+        else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Forget the classifications of the methods of the
+     * given virtual machine, after classes have been
+     * redefined.
+     */
+    public static void invalidate(VirtualMachine vm) {
+        StepFilterCache cache;
+        synchronized (caches) {
+            cache = caches.get(vm);
+        }
+        if (cache != null) {
+            synchronized (cache) {
+                cache.stepThrough.clear();
+                cache.skipCompletely.clear();
+            }
+        }
+    }
+
+    /**
+     * Discard the cache of the given virtual machine,
+     * returning a description of its hit and miss counts,
+     * or null if there was no cache.
+     */
+    public static String dispose(VirtualMachine vm) {
+        StepFilterCache cache;
+        synchronized (caches) {
+            cache = caches.remove(vm);
+        }
+        if (cache == null) {
+            return null;
+        }
+        synchronized (cache) {
+            return "step filter classification cache: "
+                    + cache.hits + " hits, "
+                    + cache.misses + " misses";
+        }
+    }
+
+}
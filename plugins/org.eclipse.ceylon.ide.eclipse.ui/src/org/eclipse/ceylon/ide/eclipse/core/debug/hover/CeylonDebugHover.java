@@ -508,7 +508,7 @@ public class CeylonDebugHover extends SourceInfoHover {
             String text = null;
             Referenceable model = getReferencedDeclaration(node);
             if (model!=null) {
-                text = getDocumentationHoverText(model, editor, node, null);
+                text = getDocumentationHoverText(model, editor, node, newHoverMonitor());
             }
             return new DebugHoverInput(var, text);
         }
@@ -15,6 +15,8 @@ import static org.eclipse.ceylon.ide.eclipse.code.hover.DocumentationHover.getLi
 import static org.eclipse.ceylon.ide.eclipse.util.Nodes.findNode;
 import static java.lang.Integer.parseInt;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.swt.browser.LocationEvent;
 import org.eclipse.swt.browser.LocationListener;
@@ -34,6 +36,8 @@ final class CeylonLocationListener implements LocationListener {
     
     private final CeylonEditor editor;
     private final ExpressionInformationControl control;
+    private final IProgressMonitor monitor = 
+            new NullProgressMonitor();
     
     CeylonLocationListener(CeylonEditor editor, 
             ExpressionInformationControl control) {
@@ -88,6 +92,7 @@ final class CeylonLocationListener implements LocationListener {
     }
     
     private void close(ExpressionInformationControl control) {
+        monitor.setCanceled(true);
         control.dispose();
     }
     
@@ -106,7 +111,7 @@ final class CeylonLocationListener implements LocationListener {
             if (target!=null) {
                 String text = 
                         getDocumentationHoverText(target, 
-                                editor, null, null);
+                                editor, null, monitor);
                 DebugHoverInput input = 
                         new DebugHoverInput(
                                 control.getVariable(), 
@@ -18,6 +18,7 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.debug.core.DebugEvent;
 import org.eclipse.debug.core.DebugException;
 import org.eclipse.debug.core.ILaunch;
@@ -34,7 +35,9 @@ import org.eclipse.jdt.debug.core.IEvaluationRunnable;
 import org.eclipse.jdt.debug.core.IJavaArray;
 import org.eclipse.jdt.debug.core.IJavaBreakpoint;
 import org.eclipse.jdt.debug.core.IJavaClassObject;
+import org.eclipse.jdt.debug.core.IJavaDebugTarget;
 import org.eclipse.jdt.debug.core.IJavaFieldVariable;
+import org.eclipse.jdt.debug.core.IJavaHotCodeReplaceListener;
 import org.eclipse.jdt.debug.core.IJavaMethodBreakpoint;
 import org.eclipse.jdt.debug.core.IJavaObject;
 import org.eclipse.jdt.debug.core.IJavaReferenceType;
@@ -47,7 +50,9 @@ import org.eclipse.jdt.internal.debug.core.model.JDINullValue;
 import org.eclipse.jdt.internal.debug.core.model.JDIObjectValue;
 import org.eclipse.jdt.internal.debug.core.model.JDIThread;
 
+import org.eclipse.ceylon.ide.eclipse.core.debug.StepFilterCache;
 import org.eclipse.ceylon.ide.eclipse.core.launch.LaunchHelper;
+import org.eclipse.ceylon.ide.eclipse.ui.CeylonPlugin;
 import org.eclipse.ceylon.ide.common.debug.agent.CeylonDebugEvaluationThread;
 import com.sun.jdi.ObjectCollectedException;
 import com.sun.jdi.ThreadReference;
@@ -112,6 +117,35 @@ public class CeylonJDIDebugTarget extends JDIDebugTarget {
             }
         }
         breakpointAdded(ceylonDebugEvaluationBreakpoint);
+        
+        addHotCodeReplaceListener(new IJavaHotCodeReplaceListener() {
+            @Override
+            public void hotCodeReplaceSucceeded(IJavaDebugTarget target) {
+                // redefined classes may have different methods
+                StepFilterCache.invalidate(getVM());
+            }
+            @Override
+            public void hotCodeReplaceFailed(IJavaDebugTarget target,
+                    DebugException exception) {
+                StepFilterCache.invalidate(getVM());
+            }
+            @Override
+            public void obsoleteMethods(IJavaDebugTarget target) {
+                StepFilterCache.invalidate(getVM());
+            }
+        });
+    }
+
+    @Override
+    protected void cleanup() {
+        VirtualMachine vm = getVM();
+        super.cleanup();
+        if (vm != null) {
+            String statistics = StepFilterCache.dispose(vm);
+            if (statistics != null && CeylonPlugin.getInstance().isDebugging()) {
+                CeylonPlugin.log(IStatus.INFO, "Ceylon debug target " + statistics);
+            }
+        }
     }
 
     private IJavaObject mainThread = null;
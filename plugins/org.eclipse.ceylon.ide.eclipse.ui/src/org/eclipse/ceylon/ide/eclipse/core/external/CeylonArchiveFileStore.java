@@ -12,9 +12,8 @@ package org.eclipse.ceylon.ide.eclipse.core.external;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileInfo;
@@ -55,35 +54,22 @@ public class CeylonArchiveFileStore extends FileStore {
         this.path = path.makeRelative();
     }
 
-    private ZipEntry[] childEntries(IProgressMonitor monitor) throws CoreException {
-        HashMap entries = new HashMap();
-        ZipInputStream in = new ZipInputStream(rootStore.openInputStream(EFS.NONE, monitor));
-        String myName = path.toString();
+    /**
+     * Returns the shared index of the zip file.
+     */
+    private CeylonArchiveIndex getIndex(IProgressMonitor monitor) throws CoreException {
         try {
-            ZipEntry current;
-            while ((current = in.getNextEntry()) != null) {
-                final String currentPath = current.getName();
-                if (isParent(myName, currentPath))
-                    entries.put(currentPath, current);
-                else if (isAncestor(myName, currentPath)) {
-                    int myNameLength = myName.length() + 1;
-                    int nameEnd = currentPath.indexOf('/', myNameLength);
-                    String dirName = nameEnd == -1 ? currentPath : currentPath.substring(0, nameEnd + 1);
-                    if (!entries.containsKey(dirName))
-                        entries.put(dirName, new ZipEntry(dirName));
-                }
-            }
+            return CeylonArchiveIndex.get(rootStore, monitor);
         } catch (IOException e) {
             Policy.error(EFS.ERROR_READ, NLS.bind(Messages.couldNotRead, rootStore.toString()), e);
-        } finally {
-            try {
-                if (in != null)
-                    in.close();
-            } catch (IOException e) {
-                //ignore
-            }
         }
-        return (ZipEntry[]) entries.values().toArray(new ZipEntry[entries.size()]);
+        //can't get here
+        return null;
+    }
+
+    private ZipEntry[] childEntries(IProgressMonitor monitor) throws CoreException {
+        Collection<ZipEntry> entries = getIndex(monitor).getChildren(path.toString());
+        return entries.toArray(new ZipEntry[entries.size()]);
     }
 
     public IFileInfo[] childInfos(int options, IProgressMonitor monitor) throws CoreException {
@@ -134,28 +120,14 @@ public class CeylonArchiveFileStore extends FileStore {
     }
 
     public IFileInfo fetchInfo(int options, IProgressMonitor monitor) throws CoreException {
-        ZipInputStream in = new ZipInputStream(rootStore.openInputStream(EFS.NONE, monitor));
-        try {
-            String myPath = path.toString();
-            ZipEntry current;
-            while ((current = in.getNextEntry()) != null) {
-                String currentPath = current.getName();
-                if (myPath.equals(currentPath))
-                    return convertZipEntryToFileInfo(current);
-                //directories don't always have their own entry, but it is implied by the existence of a child
-                if (isAncestor(myPath, currentPath))
-                    return createDirectoryInfo(getName());
-            }
-        } catch (IOException e) {
-            Policy.error(EFS.ERROR_READ, NLS.bind(Messages.couldNotRead, rootStore.toString()), e);
-        } finally {
-            try {
-                if (in != null)
-                    in.close();
-            } catch (IOException e) {
-                //ignore
-            }
-        }
+        CeylonArchiveIndex index = getIndex(monitor);
+        String myPath = path.toString();
+        //directories don't always have their own entry, but it is implied by the existence of a child
+        if (index.isDirectory(myPath))
+            return createDirectoryInfo(getName());
+        ZipEntry entry = index.getEntry(myPath);
+        if (entry != null)
+            return convertZipEntryToFileInfo(entry);
         //does not exist
         return new FileInfo(getName());
     }
@@ -170,20 +142,6 @@ public class CeylonArchiveFileStore extends FileStore {
         return result;
     }
 
-    /**
-     * Finds the zip entry with the given name in this zip file.  Returns the
-     * entry and leaves the input stream open positioned at the beginning of
-     * the bytes of that entry.  Returns null if the entry could not be found.
-     */
-    private ZipEntry findEntry(String name, ZipInputStream in) throws IOException {
-        ZipEntry current;
-        while ((current = in.getNextEntry()) != null) {
-            if (current.getName().equals(name))
-                return current;
-        }
-        return null;
-    }
-
     public IFileStore getChild(String name) {
         return new CeylonArchiveFileStore(rootStore, path.append(name));
     }
@@ -200,53 +158,19 @@ public class CeylonArchiveFileStore extends FileStore {
         return null;
     }
 
-    /**
-     * Returns whether ancestor is a parent of child.
-     * @param ancestor the potential ancestor
-     * @param child the potential child
-     * @return <code>true</code> or <code>false</code>
-     */
-    private boolean isAncestor(String ancestor, String child) {
-        //children will start with myName and have no child path
-        int ancestorLength = ancestor.length();
-        if (ancestorLength == 0)
-            return true;
-        return child.startsWith(ancestor) && child.length() > (ancestorLength + 1) && child.charAt(ancestorLength) == '/';
-    }
-
-    /**
-     * Returns whether parent is the immediate parent of child.
-     * @param parent the potential parent
-     * @param child the potential child
-     * @return <code>true</code> or <code>false</code>
-     */
-    private boolean isParent(String parent, String child) {
-        //children will start with myName and have no child path
-        int chop = parent.length() + 1;
-        if (parent.isEmpty()) {
-            chop = 0;
-        } else {
-            chop = parent.length() + 1;
-        }
-        return child.startsWith(parent) && child.length() > chop && child.substring(chop).indexOf('/') == -1;
-    }
-
     public InputStream openInputStream(int options, IProgressMonitor monitor) throws CoreException {
-        ZipInputStream in = new ZipInputStream(rootStore.openInputStream(EFS.NONE, monitor));
+        CeylonArchiveIndex index = getIndex(monitor);
+        String myPath = path.toString();
+        if (index.getEntry(myPath) == null)
+            Policy.error(EFS.ERROR_READ, NLS.bind(Messages.fileNotFound, toString()), null);
+        if (index.isDirectory(myPath))
+            Policy.error(EFS.ERROR_READ, NLS.bind(Messages.notAFile, toString()), null);
         try {
-            ZipEntry entry = findEntry(path.toString(), in);
-            if (entry == null)
+            InputStream in = index.openInputStream(myPath, monitor);
+            if (in == null)
                 Policy.error(EFS.ERROR_READ, NLS.bind(Messages.fileNotFound, toString()), null);
-            if (entry.isDirectory())
-                Policy.error(EFS.ERROR_READ, NLS.bind(Messages.notAFile, toString()), null);
             return in;
         } catch (IOException e) {
-            try {
-                if (in != null)
-                    in.close();
-            } catch (IOException e1) {
-                //ignore secondary failure
-            }
             Policy.error(EFS.ERROR_READ, NLS.bind(Messages.couldNotRead, rootStore.toString()), e);
         }
         //can't get here
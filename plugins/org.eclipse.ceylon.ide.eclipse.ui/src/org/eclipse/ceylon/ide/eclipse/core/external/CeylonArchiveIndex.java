@@ -0,0 +1,419 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.core.external;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * An index of the entries of a source archive. It maps
+ * each entry path to its entry, and each directory to its
+ * immediate children.
+ *
+ * The index of an archive of the local file system is
+ * read from its central directory by {@link ZipFile},
+ * which is kept open to open its entries directly. Archives
+ * of other file systems are still streamed through a
+ * {@link ZipInputStream}, to build the index and to find
+ * an entry to open.
+ *
+ * Indexes are shared by all {@link CeylonArchiveFileStore}s
+ * of an archive, and cached by archive URI. A cached index
+ * is discarded as soon as the modification time or the
+ * size of the archive changes, or when it's the least
+ * recently used of too many cached indexes. A discarded
+ * index closes its zip file once the last stream it
+ * opened is closed.
+ */
+class CeylonArchiveIndex {
+
+    private static final int MAX_CACHED_ARCHIVES = 32;
+
+    private static final Map<URI, CeylonArchiveIndex> cache =
+            new LinkedHashMap<URI, CeylonArchiveIndex>
+                (16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<URI, CeylonArchiveIndex> eldest) {
+                    if (size() > MAX_CACHED_ARCHIVES) {
+                        eldest.getValue().close();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    /**
+     * Returns the index of the given archive, reading its
+     * entries if the archive was not already indexed, or
+     * changed since it was indexed.
+     */
+    static CeylonArchiveIndex get(IFileStore rootStore,
+            IProgressMonitor monitor)
+                    throws CoreException, IOException {
+        URI key = rootStore.toURI();
+        IFileInfo info = rootStore.fetchInfo(EFS.NONE, monitor);
+        long lastModified = info.getLastModified();
+        long length = info.getLength();
+        synchronized (cache) {
+            CeylonArchiveIndex index = cache.get(key);
+            if (index != null
+                    && index.lastModified == lastModified
+                    && index.length == length) {
+                return index;
+            }
+        }
+        CeylonArchiveIndex index =
+                new CeylonArchiveIndex(rootStore,
+                        rootStore.toLocalFile(EFS.NONE, monitor),
+                        lastModified, length, monitor);
+        CeylonArchiveIndex previous;
+        synchronized (cache) {
+            previous = cache.put(key, index);
+        }
+        if (previous != null) {
+            previous.close();
+        }
+        return index;
+    }
+
+    private final IFileStore rootStore;
+    private final File archive;
+    private final long lastModified;
+    private final long length;
+
+    /**
+     * The open zip file of a local archive, or null if the
+     * archive isn't local, or the zip file was closed.
+     */
+    private ZipFile zip;
+    private int openStreams;
+    private boolean closed;
+
+    /**
+     * Entries by path, without trailing separator.
+     */
+    private final Map<String, ZipEntry> entries =
+            new HashMap<String, ZipEntry>();
+
+    /**
+     * Immediate children by path of the parent directory,
+     * without trailing separator. The root directory is
+     * the empty path.
+     */
+    private final Map<String, Map<String, ZipEntry>> children =
+            new HashMap<String, Map<String, ZipEntry>>();
+
+    /**
+     * @param archive the archive in the local file system,
+     *        or null if the archive isn't local
+     */
+    private CeylonArchiveIndex(IFileStore rootStore, File archive,
+            long lastModified, long length,
+            IProgressMonitor monitor)
+                    throws CoreException, IOException {
+        this.rootStore = rootStore;
+        this.archive = archive;
+        this.lastModified = lastModified;
+        this.length = length;
+        if (archive != null) {
+            zip = new ZipFile(archive);
+            try {
+                Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+                while (zipEntries.hasMoreElements()) {
+                    addEntry(zipEntries.nextElement());
+                }
+            }
+            catch (RuntimeException e) {
+                zip.close();
+                throw e;
+            }
+        }
+        else {
+            ZipInputStream in =
+                    new ZipInputStream(rootStore.openInputStream(EFS.NONE, monitor));
+            try {
+                ZipEntry current;
+                while ((current = in.getNextEntry()) != null) {
+                    addEntry(current);
+                }
+            }
+            finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the entry with the given path, or null if
+     * there is no such entry. Directories don't always
+     * have their own entry.
+     */
+    ZipEntry getEntry(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * Returns whether the given path is a directory of
+     * the archive, either explicitly or because it has
+     * children.
+     */
+    boolean isDirectory(String path) {
+        if (children.containsKey(path)) {
+            return true;
+        }
+        ZipEntry entry = entries.get(path);
+        return entry != null && entry.isDirectory();
+    }
+
+    /**
+     * Returns the immediate children of the given
+     * directory, including implied subdirectories.
+     */
+    Collection<ZipEntry> getChildren(String path) {
+        Map<String, ZipEntry> result = children.get(path);
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableCollection(result.values());
+    }
+
+    /**
+     * Opens the data of the given file entry, or returns
+     * null if there is no such file entry.
+     */
+    InputStream openInputStream(String path,
+            IProgressMonitor monitor)
+                    throws CoreException, IOException {
+        ZipEntry entry = entries.get(path);
+        if (entry == null || entry.isDirectory()) {
+            return null;
+        }
+        if (archive != null) {
+            ZipFile zip = acquireZip();
+            //a discarded index may still be in use, in
+            //which case the stream gets its own zip file
+            boolean shared = zip != null;
+            if (!shared) {
+                zip = new ZipFile(archive);
+            }
+            try {
+                ZipEntry zipEntry = zip.getEntry(entry.getName());
+                if (zipEntry == null) {
+                    throw new ZipException("missing entry " + path + " in " + archive);
+                }
+                return new EntryInputStream(zip, zipEntry, 
+                        shared ? this : null);
+            }
+            catch (IOException e) {
+                if (shared) {
+                    releaseZip();
+                }
+                else {
+                    zip.close();
+                }
+                throw e;
+            }
+        }
+        else {
+            //leave the stream positioned at the
+            //beginning of the bytes of the entry
+            ZipInputStream in =
+                    new ZipInputStream(rootStore.openInputStream(EFS.NONE, monitor));
+            try {
+                ZipEntry current;
+                while ((current = in.getNextEntry()) != null) {
+                    if (current.getName().equals(entry.getName()))
+                        return in;
+                }
+            }
+            catch (IOException e) {
+                in.close();
+                throw e;
+            }
+            in.close();
+            return null;
+        }
+    }
+
+    /**
+     * Returns the open zip file, counting one more stream
+     * reading from it, or null if the index was closed.
+     */
+    private synchronized ZipFile acquireZip() {
+        if (closed) {
+            return null;
+        }
+        openStreams++;
+        return zip;
+    }
+
+    private synchronized void releaseZip() {
+        openStreams--;
+        if (closed && openStreams == 0) {
+            closeZip();
+        }
+    }
+
+    /**
+     * Discards this index, closing its zip file now, or
+     * when the last stream reading from it is closed.
+     */
+    private synchronized void close() {
+        closed = true;
+        if (openStreams == 0) {
+            closeZip();
+        }
+    }
+
+    private void closeZip() {
+        if (zip != null) {
+            try {
+                zip.close();
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+            zip = null;
+        }
+    }
+
+    private void addEntry(ZipEntry zipEntry) {
+        String path = stripSeparator(zipEntry.getName());
+        if (path.isEmpty()) {
+            return;
+        }
+        entries.put(path, zipEntry);
+        addChild(path, zipEntry);
+    }
+
+    /**
+     * Registers the given entry with its parent directory,
+     * creating the entries of implied ancestor directories
+     * as needed.
+     */
+    private void addChild(String path, ZipEntry zipEntry) {
+        boolean implied = false;
+        while (true) {
+            int slash = path.lastIndexOf('/');
+            String parent = slash < 0 ? "" : path.substring(0, slash);
+            Map<String, ZipEntry> siblings = children.get(parent);
+            boolean newParent = siblings == null;
+            if (newParent) {
+                siblings = new LinkedHashMap<String, ZipEntry>();
+                children.put(parent, siblings);
+            }
+            String name = path.substring(slash + 1);
+            if (!implied || !siblings.containsKey(name)) {
+                siblings.put(name, zipEntry);
+            }
+            if (!newParent || parent.isEmpty()) {
+                return;
+            }
+            path = parent;
+            zipEntry = new ZipEntry(parent + '/');
+            implied = true;
+        }
+    }
+
+    private static String stripSeparator(String name) {
+        return name.endsWith("/") ?
+                name.substring(0, name.length() - 1) : name;
+    }
+
+    /**
+     * The data of an entry of a {@link ZipFile}, checked
+     * against the CRC of the entry once it has been read
+     * completely, like {@link ZipInputStream} does. Closing
+     * the stream releases the shared zip file of the index,
+     * or closes the zip file if it isn't shared.
+     */
+    private static class EntryInputStream extends CheckedInputStream {
+        private final ZipFile zip;
+        private final ZipEntry entry;
+        private final CeylonArchiveIndex index;
+        private boolean released;
+
+        /**
+         * @param index the index sharing the zip file, or
+         *        null if the zip file belongs to the stream
+         */
+        EntryInputStream(ZipFile zip, ZipEntry entry,
+                CeylonArchiveIndex index)
+                throws IOException {
+            super(zip.getInputStream(entry), new CRC32());
+            this.zip = zip;
+            this.entry = entry;
+            this.index = index;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result < 0) {
+                checkCrc();
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = super.read(b, off, len);
+            if (result < 0) {
+                checkCrc();
+            }
+            return result;
+        }
+
+        private void checkCrc() throws ZipException {
+            long crc = entry.getCrc();
+            if (crc != -1 && crc != getChecksum().getValue()) {
+                throw new ZipException("invalid entry CRC for " + entry.getName() + " in " + zip.getName());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            }
+            finally {
+                if (index == null) {
+                    zip.close();
+                }
+                else if (!released) {
+                    released = true;
+                    index.releaseZip();
+                }
+            }
+        }
+    }
+
+}
@@ -123,6 +123,33 @@ public class ModelLoaderNameEnvironment extends SearchableEnvironment {
     }
     
     public IType findTypeInNameLookup(String typeName, String packageName) {
+        TypeLookupCache cache = TypeLookupCache.get(project);
+        Object cached = cache.lookup(packageName, typeName);
+        if (cached == TypeLookupCache.MISSING) {
+            return null;
+        }
+        if (cached != null) {
+            return (IType) cached;
+        }
+        
+        long stamp = cache.stamp(packageName);
+        IType type = doFindTypeInNameLookup(typeName, packageName);
+        if (type == null) {
+            if (LookupEnvironmentUtilities.isSettingInterfaceCompanionClass() && typeName.endsWith("$impl")) {
+                // The secondary types were not searched
+                return null;
+            }
+            IProgressMonitor currentMonitor = getProgressMonitor(Job.getJobManager().currentJob());
+            if (currentMonitor != null && currentMonitor.isCanceled()) {
+                // The search for secondary types may have been interrupted
+                return null;
+            }
+        }
+        cache.put(packageName, typeName, type, stamp);
+        return type;
+    }
+    
+    private IType doFindTypeInNameLookup(String typeName, String packageName) {
         JavaElementRequestor packageRequestor = new JavaElementRequestor();
         nameLookup.seekPackageFragments(packageName, false, packageRequestor);
         LinkedList<IPackageFragment> packagesToSearchIn = new LinkedList<>();
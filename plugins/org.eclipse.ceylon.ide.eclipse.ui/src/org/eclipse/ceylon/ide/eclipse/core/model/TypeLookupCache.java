@@ -0,0 +1,235 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.core.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+
+import org.eclipse.ceylon.ide.eclipse.ui.CeylonPlugin;
+
+/**
+ * Remembers the results of the type lookups of the
+ * {@link ModelLoaderNameEnvironment} of each Java project,
+ * including the lookups which found nothing, which are
+ * frequent, since the model loader asks for interface
+ * companions and descriptors which often don't exist,
+ * and expensive, since a miss ends up querying the
+ * secondary types of the JDT index.
+ *
+ * The results for a package are forgotten when a JDT
+ * delta reports a change to a compilation unit or class
+ * file of a package with that name, or the addition or
+ * removal of such a package, in any project. Everything
+ * is forgotten when the classpath of a project, or a
+ * package fragment root, changes.
+ *
+ * A lookup may run concurrently with the change which
+ * invalidates its result, so each package has a stamp,
+ * counting its invalidations. The stamp is taken before
+ * the lookup, and the result isn't remembered if the
+ * package was invalidated since.
+ */
+class TypeLookupCache {
+
+    /**
+     * The cached result of a lookup which found nothing.
+     */
+    static final Object MISSING = new Object();
+
+    private static final Map<IJavaProject, TypeLookupCache> caches =
+            new HashMap<IJavaProject, TypeLookupCache>();
+
+    static {
+        JavaCore.addElementChangedListener(
+                new IElementChangedListener() {
+            @Override
+            public void elementChanged(ElementChangedEvent event) {
+                invalidate(event.getDelta());
+            }
+        },
+        ElementChangedEvent.POST_CHANGE);
+    }
+
+    private final Map<String, Map<String, Object>> packages =
+            new HashMap<String, Map<String, Object>>();
+    private final Map<String, Long> stamps =
+            new HashMap<String, Long>();
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    static TypeLookupCache get(IJavaProject project) {
+        synchronized (caches) {
+            TypeLookupCache cache = caches.get(project);
+            if (cache == null) {
+                cache = new TypeLookupCache();
+                caches.put(project, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Returns the cached result of the lookup of the given
+     * type, {@link #MISSING} if the lookup found nothing,
+     * or null if there's no cached result.
+     */
+    synchronized Object lookup(String packageName,
+            String typeName) {
+        Map<String, Object> types = packages.get(packageName);
+        Object result = types == null ? null : types.get(typeName);
+        if (result == null) {
+            misses++;
+        }
+        else {
+            hits++;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the current stamp of the given package, to be
+     * taken before looking up one of its types, and passed
+     * to {@link #put(String, String, IType, long)}.
+     */
+    synchronized long stamp(String packageName) {
+        Long stamp = stamps.get(packageName);
+        return stamp == null ? 0 : stamp;
+    }
+
+    /**
+     * Remember the result of the lookup of the given type,
+     * which may be null if it found nothing, unless the
+     * package was invalidated since the given stamp was
+     * taken.
+     */
+    synchronized void put(String packageName, String typeName,
+            IType type, long stamp) {
+        if (stamp(packageName) != stamp) {
+            return;
+        }
+        Map<String, Object> types = packages.get(packageName);
+        if (types == null) {
+            types = new HashMap<String, Object>();
+            packages.put(packageName, types);
+        }
+        types.put(typeName, type == null ? MISSING : type);
+    }
+
+    private synchronized void invalidate(String packageName) {
+        stamps.put(packageName, stamp(packageName) + 1);
+        if (packages.remove(packageName) != null) {
+            invalidations++;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "type lookup cache: "
+                + hits + " hits, "
+                + misses + " misses, "
+                + invalidations + " invalidations";
+    }
+
+    private static List<TypeLookupCache> getCaches() {
+        synchronized (caches) {
+            return new ArrayList<TypeLookupCache>(caches.values());
+        }
+    }
+
+    private static void invalidateAll() {
+        Map<IJavaProject, TypeLookupCache> discarded;
+        synchronized (caches) {
+            if (caches.isEmpty()) {
+                return;
+            }
+            discarded = new HashMap<IJavaProject, TypeLookupCache>(caches);
+            caches.clear();
+        }
+        if (CeylonPlugin.getInstance().isDebugging()) {
+            for (Map.Entry<IJavaProject, TypeLookupCache> entry:
+                    discarded.entrySet()) {
+                CeylonPlugin.log(IStatus.INFO,
+                        "Discarding " + entry.getValue()
+                        + " of project "
+                        + entry.getKey().getElementName());
+            }
+        }
+    }
+
+    private static void invalidatePackage(String packageName) {
+        for (TypeLookupCache cache: getCaches()) {
+            cache.invalidate(packageName);
+        }
+    }
+
+    private static void invalidate(IJavaElementDelta delta) {
+        IJavaElement element = delta.getElement();
+        int flags = delta.getFlags();
+        switch (element.getElementType()) {
+        case IJavaElement.JAVA_MODEL:
+            if (delta.getKind() != IJavaElementDelta.CHANGED ||
+                    (flags & ~IJavaElementDelta.F_CHILDREN) != 0) {
+                invalidateAll();
+                return;
+            }
+            break;
+        case IJavaElement.JAVA_PROJECT:
+        case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+            if (delta.getKind() != IJavaElementDelta.CHANGED ||
+                    (flags & (IJavaElementDelta.F_CLASSPATH_CHANGED
+                            | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+                            | IJavaElementDelta.F_ADDED_TO_CLASSPATH
+                            | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+                            | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+                            | IJavaElementDelta.F_REORDER
+                            | IJavaElementDelta.F_OPENED
+                            | IJavaElementDelta.F_CLOSED)) != 0) {
+                invalidateAll();
+                return;
+            }
+            break;
+        case IJavaElement.PACKAGE_FRAGMENT:
+            if (delta.getKind() != IJavaElementDelta.CHANGED) {
+                invalidatePackage(element.getElementName());
+                return;
+            }
+            break;
+        case IJavaElement.COMPILATION_UNIT:
+        case IJavaElement.CLASS_FILE:
+            //a change to the content of a unit may add or
+            //remove secondary types
+            IJavaElement pack = element.getAncestor(
+                    IJavaElement.PACKAGE_FRAGMENT);
+            if (pack instanceof IPackageFragment) {
+                invalidatePackage(pack.getElementName());
+            }
+            return;
+        default:
+            return;
+        }
+        for (IJavaElementDelta child: delta.getAffectedChildren()) {
+            invalidate(child);
+        }
+    }
+
+}
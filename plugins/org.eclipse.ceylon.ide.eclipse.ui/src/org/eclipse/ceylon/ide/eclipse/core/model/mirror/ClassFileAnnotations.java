@@ -0,0 +1,258 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.core.model.mirror;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.Signature;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+import org.eclipse.jdt.internal.compiler.env.EnumConstantSignature;
+import org.eclipse.jdt.internal.compiler.env.IBinaryAnnotation;
+import org.eclipse.jdt.internal.compiler.env.IBinaryElementValuePair;
+import org.eclipse.jdt.internal.compiler.impl.Constant;
+import org.eclipse.jdt.internal.compiler.lookup.TagBits;
+import org.eclipse.jdt.internal.core.BinaryType;
+
+import org.eclipse.ceylon.model.loader.mirror.AnnotationMirror;
+
+/**
+ * Reads the annotations of a {@link JDTClass} straight
+ * from the class file of a class of an archive, without
+ * resolving its binding through the JDT lookup
+ * environment, which is serialized and expensive once the
+ * binding kept by the mirror has been collected.
+ *
+ * The annotations are converted exactly as
+ * {@link JDTAnnotation} does for an annotation binding.
+ * Annotations which can't be converted without bindings,
+ * those with class literal values, and those whose type
+ * might be a member type, aren't supported, in which case
+ * the binding has to be resolved after all.
+ *
+ * The class file reader doesn't return the standard
+ * annotations, which it folds into the tag bits, like
+ * the binding does. The marker annotations among them,
+ * {@code @Deprecated}, {@code @Documented} and
+ * {@code @Inherited}, are rebuilt from the tag bits, but
+ * the others, {@code @Target} and {@code @Retention} in
+ * particular, aren't supported.
+ */
+public class ClassFileAnnotations {
+
+    /**
+     * Whether the value() member of an annotation type,
+     * by qualified name, has an array type.
+     */
+    private static final Map<String, Boolean> arrayValues =
+            new ConcurrentHashMap<String, Boolean>();
+
+    /**
+     * The standard annotations without members, which are
+     * rebuilt from the tag bits.
+     */
+    private static final long MARKER_ANNOTATIONS =
+            TagBits.AnnotationDeprecated
+            | TagBits.AnnotationDocumented
+            | TagBits.AnnotationInherited;
+
+    private final ClassFileReader reader;
+    private final IJavaProject javaProject;
+
+    private ClassFileAnnotations(ClassFileReader reader,
+            IJavaProject javaProject) {
+        this.reader = reader;
+        this.javaProject = javaProject;
+    }
+
+    /**
+     * Read the class file of the given type, returning
+     * null if it's not a binary type of an archive, or if
+     * the class file can't be read.
+     */
+    public static ClassFileAnnotations read(IType type) {
+        if (!(type instanceof BinaryType)) {
+            return null;
+        }
+        IPackageFragmentRoot root = (IPackageFragmentRoot)
+                type.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+        if (root == null || !root.isArchive()) {
+            return null;
+        }
+        try {
+            byte[] bytes = type.getClassFile().getBytes();
+            ClassFileReader reader =
+                    new ClassFileReader(bytes,
+                            type.getClassFile().getElementName()
+                                .toCharArray(),
+                            true);
+            return new ClassFileAnnotations(reader,
+                    type.getJavaProject());
+        }
+        catch (JavaModelException | ClassFormatException e) {
+            return null;
+        }
+    }
+
+    boolean isMember() {
+        return reader.isMember();
+    }
+
+    /**
+     * Returns the annotations of the class, by qualified
+     * name, or null if some of them aren't supported.
+     */
+    public Map<String, AnnotationMirror> getAnnotations() {
+        long tagBits = reader.getTagBits();
+        if ((tagBits & TagBits.AllStandardAnnotationsMask
+                & ~MARKER_ANNOTATIONS) != 0) {
+            return null;
+        }
+        IBinaryAnnotation[] annotations = reader.getAnnotations();
+        Map<String, AnnotationMirror> result =
+                new HashMap<String, AnnotationMirror>();
+        if ((tagBits & TagBits.AnnotationDeprecated) != 0) {
+            result.put("java.lang.Deprecated", markerAnnotation());
+        }
+        if ((tagBits & TagBits.AnnotationDocumented) != 0) {
+            result.put("java.lang.annotation.Documented", markerAnnotation());
+        }
+        if ((tagBits & TagBits.AnnotationInherited) != 0) {
+            result.put("java.lang.annotation.Inherited", markerAnnotation());
+        }
+        if (annotations != null) {
+            for (IBinaryAnnotation annotation: annotations) {
+                String name = toQualifiedName(annotation.getTypeName());
+                JDTAnnotation mirror = convert(annotation);
+                if (name == null || mirror == null) {
+                    return null;
+                }
+                result.put(name, mirror);
+            }
+        }
+        return result;
+    }
+
+    private static JDTAnnotation markerAnnotation() {
+        return new JDTAnnotation(new HashMap<String, Object>());
+    }
+
+    private JDTAnnotation convert(IBinaryAnnotation annotation) {
+        Map<String, Object> values = new HashMap<String, Object>();
+        IBinaryElementValuePair[] pairs =
+                annotation.getElementValuePairs();
+        if (pairs != null) {
+            for (IBinaryElementValuePair pair: pairs) {
+                Object value = convertValue(pair.getValue());
+                if (value == null) {
+                    return null;
+                }
+                values.put(new String(pair.getName()).intern(), value);
+            }
+        }
+        if (!values.containsKey("value")) {
+            Boolean arrayValue = hasArrayValue(annotation.getTypeName());
+            if (arrayValue == null) {
+                return null;
+            }
+            if (arrayValue) {
+                values.put("value", Collections.emptyList());
+            }
+        }
+        return new JDTAnnotation(values);
+    }
+
+    private Object convertValue(Object value) {
+        if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            List<Object> values = new ArrayList<Object>(array.length);
+            for (Object element: array) {
+                Object converted = convertValue(element);
+                if (converted == null) {
+                    return null;
+                }
+                values.add(converted);
+            }
+            return values;
+        }
+        if (value instanceof IBinaryAnnotation) {
+            return convert((IBinaryAnnotation) value);
+        }
+        if (value instanceof EnumConstantSignature) {
+            return new String(((EnumConstantSignature) value)
+                    .getEnumConstantName());
+        }
+        if (value instanceof Constant) {
+            return JDTUtils.fromConstant((Constant) value);
+        }
+        //a class literal, which needs a binding
+        return null;
+    }
+
+    /**
+     * Converts a type descriptor to the name returned by
+     * {@link JDTUtils#getFullyQualifiedName}, or returns
+     * null if the type might be a member type, since the
+     * descriptor doesn't tell.
+     */
+    private static String toQualifiedName(char[] descriptor) {
+        String name = new String(descriptor, 1, descriptor.length-2)
+                .replace('/', '.');
+        if (name.indexOf('$') >= 0 &&
+                !name.endsWith("$annotation$") &&
+                !name.endsWith("$annotations$")) {
+            //the toplevel Ceylon annotation classes are
+            //the only ones we know aren't member types
+            return null;
+        }
+        return name.intern();
+    }
+
+    /**
+     * Whether the value() member of the given annotation
+     * type has an array type, or null if the annotation
+     * type can't be found.
+     */
+    private Boolean hasArrayValue(char[] descriptor) {
+        String name = toQualifiedName(descriptor);
+        if (name == null) {
+            return null;
+        }
+        Boolean result = arrayValues.get(name);
+        if (result == null) {
+            try {
+                IType type = javaProject.findType(name);
+                if (type == null) {
+                    return null;
+                }
+                IMethod method = type.getMethod("value", new String[0]);
+                result = method.exists() &&
+                        Signature.getArrayCount(method.getReturnType()) > 0;
+            }
+            catch (JavaModelException e) {
+                return null;
+            }
+            arrayValues.put(name, result);
+        }
+        return result;
+    }
+
+}
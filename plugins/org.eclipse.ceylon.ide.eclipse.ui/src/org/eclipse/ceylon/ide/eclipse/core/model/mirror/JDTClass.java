@@ -20,9 +20,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.runtime.Status;
-import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IType;
-import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
@@ -94,9 +92,12 @@ public class JDTClass implements IdeClassMirror, IBindingProvider {
   
     private IType type = null;
     private int modifiers;
-    private String fileName;
+    // the archive path is shared by all the classes of an
+    // archive, and the file name and full path are derived
+    // on demand
+    private String archivePath;
+    private String entryPath;
     private String javaModelPath;
-    private String fullPath;
     private char[] bindingKey;
     private String sourceFileName=null;
     
@@ -119,7 +120,7 @@ public class JDTClass implements IdeClassMirror, IBindingProvider {
     public JDTClass(ReferenceBinding klass, IType type) {
         this.type = type;
         bindingRef = new SoftReference<ReferenceBinding>(klass);
-        pkg = new JDTPackage(klass.getPackage());
+        pkg = JDTPackage.get(klass.getPackage());
         simpleName = new String(klass.sourceName());
         qualifiedName = JDTUtils.getFullyQualifiedName(klass);
         flatName = JDTUtils.getFlatName(klass);
@@ -143,20 +144,13 @@ public class JDTClass implements IdeClassMirror, IBindingProvider {
         bindingKey = klass.computeUniqueKey();
 
         char[] bindingFileName = klass.getFileName();
-        int start = CharOperation.lastIndexOf('/', bindingFileName) + 1;
-        if (start == 0 || start < CharOperation.lastIndexOf('\\', bindingFileName))
-            start = CharOperation.lastIndexOf('\\', bindingFileName) + 1;
-        fileName = new String(CharOperation.subarray(bindingFileName, start, -1));
-        
         int jarFileEntrySeparatorIndex = CharOperation.indexOf(IDependent.JAR_FILE_ENTRY_SEPARATOR, bindingFileName);
         if (jarFileEntrySeparatorIndex > 0) {
             char[] jarPart = CharOperation.subarray(bindingFileName, 0, jarFileEntrySeparatorIndex);
-            IJavaElement jarPackageFragmentRoot = JavaCore.create(new String(jarPart));
-            String jarPath = jarPackageFragmentRoot.getPath().toOSString();
-            char[] entryPart = CharOperation.subarray(bindingFileName, jarFileEntrySeparatorIndex + 1, bindingFileName.length);
-            fullPath = new StringBuilder(jarPath).append("!/").append(entryPart).toString();
+            archivePath = MirrorSymbols.getArchivePath(new String(jarPart));
+            entryPath = new String(CharOperation.subarray(bindingFileName, jarFileEntrySeparatorIndex + 1, bindingFileName.length));
         } else {
-            fullPath = new String(bindingFileName);
+            entryPath = new String(bindingFileName);
         }
 
         ReferenceBinding sourceOrClass = klass;
@@ -189,30 +183,46 @@ public class JDTClass implements IdeClassMirror, IBindingProvider {
 
     private synchronized void retrieveAnnotations() {
         if (annotations == null) {
+            if (bindingRef.get() == null) {
+                //avoid resolving the binding again just
+                //for the annotations, if we can
+                ClassFileAnnotations classFile = ClassFileAnnotations.read(type);
+                if (classFile != null) {
+                    Map<String, AnnotationMirror> annots = classFile.getAnnotations();
+                    if (annots != null) {
+                        setAnnotations(annots, classFile.isMember());
+                        return;
+                    }
+                }
+            }
             doWithBindings(new ActionOnClassBinding() {
                 @Override
                 public void doWithBinding(IType classModel, ReferenceBinding klass) {
-                    Map<String, AnnotationMirror> annots = JDTUtils.getAnnotations(klass.getAnnotations());
-                    if (sourceFileName != null
-                            && qualifiedName.startsWith("ceylon.language") 
-                            && annots.containsKey(org.eclipse.ceylon.compiler.java.metadata.Ceylon.class.getName())
-                            && sourceFileName.endsWith(".java")) {
-                        HashMap<String, Object> values = new HashMap<>();
-                        values.put("backend", "jvm");
-                        annots.put("ceylon.language.NativeAnnotation$annotation$", new JDTAnnotation(values));
-                    }
-                    if (annots.isEmpty()) {
-                        annots = noAnnotations;
-                    }
-                    annotations = annots;
-                    if (getAnnotation(AbstractModelLoader.CEYLON_CONTAINER_ANNOTATION) != null || klass.isMemberType()) {
-                    	set(IS_INNER_TYPE_MASK);
-                    }
+                    setAnnotations(JDTUtils.getAnnotations(klass.getAnnotations()), 
+                            klass.isMemberType());
                 }
             });
         }
     }
 
+    private void setAnnotations(Map<String, AnnotationMirror> annots, boolean isMemberType) {
+        if (sourceFileName != null
+                && qualifiedName.startsWith("ceylon.language") 
+                && annots.containsKey(org.eclipse.ceylon.compiler.java.metadata.Ceylon.class.getName())
+                && sourceFileName.endsWith(".java")) {
+            HashMap<String, Object> values = new HashMap<>();
+            values.put("backend", "jvm");
+            annots.put("ceylon.language.NativeAnnotation$annotation$", new JDTAnnotation(values));
+        }
+        if (annots.isEmpty()) {
+            annots = noAnnotations;
+        }
+        annotations = annots;
+        if (getAnnotation(AbstractModelLoader.CEYLON_CONTAINER_ANNOTATION) != null || isMemberType) {
+            set(IS_INNER_TYPE_MASK);
+        }
+    }
+
     @Override
     public Set<String> getAnnotationNames() {
         retrieveAnnotations();
@@ -482,7 +492,8 @@ public class JDTClass implements IdeClassMirror, IBindingProvider {
 
     @Override
     public String getFileName() {
-        return fileName;
+        int start = Math.max(entryPath.lastIndexOf('/'), entryPath.lastIndexOf('\\')) + 1;
+        return entryPath.substring(start);
     }
 
     @Override
@@ -510,7 +521,10 @@ public class JDTClass implements IdeClassMirror, IBindingProvider {
     }
 
     public String getFullPath() {
-        return fullPath;
+        if (archivePath == null) {
+            return entryPath;
+        }
+        return new StringBuilder(archivePath).append("!/").append(entryPath).toString();
     }
 
     @Override
@@ -544,7 +558,7 @@ public class JDTClass implements IdeClassMirror, IBindingProvider {
     
     @Override
     public String toString() {
-        return "[JDTClass: "+qualifiedName+" ( " + fileName + ")]";
+        return "[JDTClass: "+qualifiedName+" ( " + getFileName() + ")]";
     }
     
     public String isFunctionalInterface() {
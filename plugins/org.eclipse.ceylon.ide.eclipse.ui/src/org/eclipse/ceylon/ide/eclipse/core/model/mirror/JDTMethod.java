@@ -78,15 +78,13 @@ public class JDTMethod implements MethodMirror, IBindingProvider {
     private JDTClass enclosingClass;
     private int modifiers;
     private char[] bindingKey;
-    private String readableName;
     
     private static final Map<String, AnnotationMirror> noAnnotations = Collections.emptyMap();
 
     public JDTMethod(JDTClass enclosingClass, MethodBinding method) {
         this.enclosingClass = enclosingClass;
         bindingRef = new SoftReference<MethodBinding>(method);
-        name = new String(method.selector);
-        readableName = new String(method.readableName());
+        name = MirrorSymbols.intern(method.selector);
         modifiers = method.modifiers;
         if (method.isConstructor()) {
         	set(IS_CONSTRUCTOR_MASK);
@@ -355,7 +353,7 @@ public class JDTMethod implements MethodMirror, IBindingProvider {
                         }
                     }
                     if (method == null) {
-                        throw new ModelResolutionException("Function '" + readableName + "' not found in the binding of class '" + declaringClassModel.getFullyQualifiedName() + "'");
+                        throw new ModelResolutionException("Function '" + name + "' (" + new String(bindingKey) + ") not found in the binding of class '" + declaringClassModel.getFullyQualifiedName() + "'");
                     }
 
                     bindingRef = new SoftReference<MethodBinding>(method);
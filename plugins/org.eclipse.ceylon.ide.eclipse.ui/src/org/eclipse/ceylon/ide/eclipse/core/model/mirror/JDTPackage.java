@@ -18,7 +18,17 @@ public class JDTPackage implements PackageMirror {
     private String name;
 
     public JDTPackage(PackageBinding pkg) {
-        name = pkg == null ? "java.lang" : new String(pkg.readableName());
+        name = pkg == null ? "java.lang" : MirrorSymbols.intern(pkg.readableName());
+    }
+
+    JDTPackage(String name) {
+        this.name = name;
+    }
+
+    // package mirrors only hold a name, so they can be shared
+    public static JDTPackage get(PackageBinding pkg) {
+        String name = pkg == null ? "java.lang" : new String(pkg.readableName());
+        return MirrorSymbols.getPackage(name);
     }
 
     @Override
@@ -0,0 +1,185 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.core.model.mirror;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * The symbol table shared by the mirrors of all the
+ * projects, for the values which many mirrors hold: the
+ * names of packages and methods, the package mirrors, which
+ * only hold a name, and the paths of archives, which all
+ * the classes of an archive share. Names which are mostly
+ * unique to a class, such as its qualified name or its
+ * path, are not worth an entry in the table, and aren't
+ * interned.
+ *
+ * Names and package mirrors are only weakly held, and
+ * disappear along with the last mirror using them. The
+ * archive paths are strongly held, since there are only as
+ * many of them as there are archives.
+ */
+class MirrorSymbols {
+
+    private static final WeakInterner<String> symbols =
+            new WeakInterner<String>() {
+                @Override
+                boolean same(String x, String y) {
+                    return x.equals(y);
+                }
+                @Override
+                int hash(String value) {
+                    return value.hashCode();
+                }
+            };
+
+    private static final WeakInterner<JDTPackage> packages =
+            new WeakInterner<JDTPackage>() {
+                @Override
+                boolean same(JDTPackage x, JDTPackage y) {
+                    return x.getQualifiedName()
+                            .equals(y.getQualifiedName());
+                }
+                @Override
+                int hash(JDTPackage value) {
+                    return value.getQualifiedName().hashCode();
+                }
+            };
+
+    /**
+     * The paths of archives, by the handle identifier of
+     * their package fragment root.
+     */
+    private static final ConcurrentMap<String, String> archivePaths =
+            new ConcurrentHashMap<String, String>();
+
+    /**
+     * Returns the canonical instance of the given name.
+     */
+    static String intern(String symbol) {
+        return symbol == null ? null : symbols.intern(symbol);
+    }
+
+    static String intern(char[] symbol) {
+        return symbol == null ? null : intern(new String(symbol));
+    }
+
+    /**
+     * Returns the shared mirror of the package with the
+     * given name.
+     */
+    static JDTPackage getPackage(String name) {
+        return packages.intern(new JDTPackage(intern(name)));
+    }
+
+    /**
+     * Returns the OS path of the archive with the given
+     * package fragment root handle, as found in the file
+     * names of binary bindings.
+     */
+    static String getArchivePath(String handle) {
+        String result = archivePaths.get(handle);
+        if (result == null) {
+            IJavaElement root = JavaCore.create(handle);
+            result = root.getPath().toOSString();
+            String existing = archivePaths.putIfAbsent(handle, result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A concurrent table of canonical values, which only
+     * holds them weakly. Each entry is a weak reference to
+     * its value, which is removed from the table once the
+     * value has been collected.
+     */
+    private static abstract class WeakInterner<T> {
+
+        private final ConcurrentMap<Entry, Entry> entries =
+                new ConcurrentHashMap<Entry, Entry>();
+        private final ReferenceQueue<T> queue =
+                new ReferenceQueue<T>();
+
+        abstract boolean same(T x, T y);
+
+        abstract int hash(T value);
+
+        /**
+         * Returns the canonical value equal to the given
+         * value, which becomes the canonical value if there
+         * is none.
+         */
+        T intern(T value) {
+            expunge();
+            Entry entry = new Entry(value);
+            while (true) {
+                Entry existing = entries.putIfAbsent(entry, entry);
+                if (existing == null) {
+                    return value;
+                }
+                T result = existing.get();
+                if (result != null) {
+                    return result;
+                }
+                //the existing value was just collected
+                entries.remove(existing, existing);
+            }
+        }
+
+        private void expunge() {
+            Reference<? extends T> collected;
+            while ((collected = queue.poll()) != null) {
+                entries.remove(collected, collected);
+            }
+        }
+
+        private class Entry extends WeakReference<T> {
+
+            private final int hash;
+
+            Entry(T value) {
+                super(value, queue);
+                hash = hash(value);
+            }
+
+            @Override
+            public int hashCode() {
+                return hash;
+            }
+
+            @Override
+            public boolean equals(Object that) {
+                if (this == that) {
+                    return true;
+                }
+                if (!(that instanceof WeakInterner.Entry)) {
+                    return false;
+                }
+                T x = get();
+                @SuppressWarnings("unchecked")
+                T y = ((Entry) that).get();
+                return x != null && y != null && same(x, y);
+            }
+
+        }
+
+    }
+
+}
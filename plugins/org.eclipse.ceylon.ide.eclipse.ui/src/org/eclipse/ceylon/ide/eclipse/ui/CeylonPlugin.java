@@ -67,6 +67,7 @@ import org.osgi.service.prefs.BackingStoreException;
 import org.eclipse.ceylon.common.FileUtil;
 import org.eclipse.ceylon.common.Versions;
 import org.eclipse.ceylon.dist.osgi.Activator;
+import org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder;
 import org.eclipse.ceylon.ide.eclipse.core.builder.CeylonNature;
 import org.eclipse.ceylon.ide.eclipse.core.builder.ProjectChangeListener;
 import org.eclipse.ceylon.ide.eclipse.core.classpath.CeylonClasspathUtil;
@@ -238,6 +239,7 @@ public class CeylonPlugin extends AbstractUIPlugin implements CeylonResources {
     
     @Override
     public void stop(BundleContext context) throws Exception {
+        CeylonBuilder.saveMarkerSnapshots();
         super.stop(context);
         unregisterProjectOpenCloseListener();
         CeylonEncodingSynchronizer.getInstance().uninstall();
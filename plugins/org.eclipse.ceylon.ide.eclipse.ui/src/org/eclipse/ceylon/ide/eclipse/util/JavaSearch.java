@@ -74,6 +74,7 @@ import org.eclipse.ceylon.compiler.typechecker.TypeChecker;
 import org.eclipse.ceylon.compiler.typechecker.context.PhasedUnit;
 import org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder;
 import org.eclipse.ceylon.ide.eclipse.core.builder.CeylonNature;
+import org.eclipse.ceylon.ide.eclipse.core.builder.DeclarationNameIndex;
 import org.eclipse.ceylon.ide.eclipse.core.model.LookupEnvironmentUtilities.ActionOnResolvedGeneratedType;
 import org.eclipse.ceylon.ide.common.model.BaseIdeModelLoader;
 import org.eclipse.ceylon.ide.common.model.BaseIdeModule;
@@ -1070,6 +1071,18 @@ public class JavaSearch {
     public static Declaration toCeylonDeclaration(
             IJavaElement javaElement,
             List<? extends PhasedUnit> phasedUnits) {
+        return toCeylonDeclaration(javaElement, null, 
+                phasedUnits);
+    }
+    
+    /**
+     * Find the Ceylon declaration of the given Java element
+     * among the given phased units, using the declaration
+     * name index of the given project if it isn't null.
+     */
+    private static Declaration toCeylonDeclaration(
+            IJavaElement javaElement, IProject project,
+            List<? extends PhasedUnit> phasedUnits) {
         if (! (javaElement instanceof IMember)) {
             return null;
         }
@@ -1103,18 +1116,36 @@ public class JavaSearch {
                     if (phasedUnit != null) {
                         phasedUnits = 
                                 Arrays.asList(phasedUnit);
+                        project = null;
                     }
                 }
             }
         }
-        for (PhasedUnit pu: phasedUnits) {
-            for (Declaration declaration: 
-                    pu.getDeclarations()) {
-                if (elementEqualsDeclaration(
-                        declarationElement, declaration)) {
-                    return declaration;
+        String name = getCeylonSimpleName(declarationElement);
+        if (name == null) {
+            return null;
+        }
+        if (name.isEmpty()) {
+            //an anonymous function, which doesn't have
+            //the name of its declaration
+            for (PhasedUnit pu: phasedUnits) {
+                for (Declaration declaration: 
+                        pu.getDeclarations()) {
+                    if (elementEqualsDeclaration(
+                            declarationElement, declaration)) {
+                        return declaration;
+                    }
                 }
             }
+            return null;
+        }
+        for (Declaration declaration: 
+                DeclarationNameIndex.getDeclarations(
+                        project, phasedUnits, name)) {
+            if (elementEqualsDeclaration(
+                    declarationElement, declaration)) {
+                return declaration;
+            }
         }
         return null;
     }
@@ -1140,7 +1171,7 @@ public class JavaSearch {
                                 .getPhasedUnits();
                     Declaration result = 
                             toCeylonDeclaration(javaElement, 
-                                    phasedUnits);
+                                    referencedProject, phasedUnits);
                     if (result!=null) return result;
                     Modules modules = 
                             typeChecker.getContext()
@@ -1158,6 +1189,7 @@ public class JavaSearch {
                                         belongsToModule(javaElement, module)) {
                                     result = 
                                             toCeylonDeclaration(javaElement, 
+                                                null, 
                                                 module.getPhasedUnitsAsJavaList());
                                     if (result!=null) {
                                         return result;
@@ -9,13 +9,17 @@
  ********************************************************************************/
 package org.eclipse.ceylon.ide.eclipse.util;
 
+import static org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer.AIDENTIFIER;
 import static org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer.ASTRING_LITERAL;
 import static org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer.AVERBATIM_STRING;
 import static org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer.EOF;
+import static org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer.LIDENTIFIER;
 import static org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer.LINE_COMMENT;
 import static org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer.MULTI_COMMENT;
+import static org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer.PIDENTIFIER;
 import static org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer.STRING_END;
 import static org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer.STRING_LITERAL;
+import static org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer.UIDENTIFIER;
 import static org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer.VERBATIM_STRING;
 import static org.eclipse.ceylon.ide.eclipse.util.CeylonHelper.toJavaStringArray;
 
@@ -256,6 +260,39 @@ public class Nodes {
         return (int) delegate.getTokenLength(token);
     }
 
+    /**
+     * Returns the type the lexer assigned to the given
+     * token, before the parser retyped it as the name of
+     * an annotation or package, or as an annotation string.
+     */
+    public static int getLexerType(CommonToken token) {
+        int type = token.getType();
+        switch (type) {
+        case AIDENTIFIER:
+        case PIDENTIFIER:
+            String text = token.getText();
+            if (text==null || text.isEmpty()) {
+                return LIDENTIFIER;
+            }
+            else if (text.startsWith("\\I")) {
+                return UIDENTIFIER;
+            }
+            else if (text.startsWith("\\i")) {
+                return LIDENTIFIER;
+            }
+            else {
+                return Character.isUpperCase(text.codePointAt(0)) ? 
+                        UIDENTIFIER : LIDENTIFIER;
+            }
+        case ASTRING_LITERAL:
+            return STRING_LITERAL;
+        case AVERBATIM_STRING:
+            return VERBATIM_STRING;
+        default:
+            return type;
+        }
+    }
+
     public static String[] nameProposals(Node node) {
         if (node instanceof Tree.Term || node instanceof Tree.Type) {
             return nameProposals(node, false);
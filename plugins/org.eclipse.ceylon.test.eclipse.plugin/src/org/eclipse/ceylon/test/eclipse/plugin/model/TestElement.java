@@ -168,7 +168,7 @@ public class TestElement implements Serializable {
 
     @Override
     public int hashCode() {
-        return qualifiedName != null ? qualifiedName.hashCode() : 0;
+        return Objects.hash(qualifiedName, variantIndex);
     }
 
     @Override
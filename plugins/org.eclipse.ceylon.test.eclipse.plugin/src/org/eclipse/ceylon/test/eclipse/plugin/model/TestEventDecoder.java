@@ -0,0 +1,426 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.test.eclipse.plugin.model;
+
+import static org.eclipse.ceylon.test.eclipse.plugin.model.TestElement.State.ERROR;
+import static org.eclipse.ceylon.test.eclipse.plugin.model.TestElement.State.FAILURE;
+import static org.eclipse.ceylon.test.eclipse.plugin.model.TestElement.State.RUNNING;
+import static org.eclipse.ceylon.test.eclipse.plugin.model.TestElement.State.SKIPPED_OR_ABORTED;
+import static org.eclipse.ceylon.test.eclipse.plugin.model.TestElement.State.SUCCESS;
+import static org.eclipse.ceylon.test.eclipse.plugin.model.TestElement.State.UNDEFINED;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the test events sent by the test runner
+ * directly from the socket stream, building the
+ * {@link TestElement}s as the JSON text is read, without
+ * an intermediate JSON tree.
+ *
+ * Events are JSON objects, which may be terminated by an
+ * EOT character, as in the original protocol, or by a
+ * newline (NDJSON). Inside strings, the EOT character
+ * escaped by a backslash stands for itself.
+ */
+public class TestEventDecoder {
+
+    private static final int EOT = 0x4;
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private final StringBuilder text = new StringBuilder(128);
+
+    private TestEventType eventType;
+    private TestElement element;
+
+    public TestEventDecoder(Reader reader) {
+        this.reader = reader;
+    }
+
+    public TestEventType getEventType() {
+        return eventType;
+    }
+
+    public TestElement getElement() {
+        return element;
+    }
+
+    /**
+     * Read the next event, returning false at the end of
+     * the stream.
+     */
+    public boolean next() throws IOException {
+        eventType = null;
+        element = null;
+        int ch = skipSeparators();
+        if (ch == -1) {
+            return false;
+        }
+        expect(ch, '{');
+        if (!endOfObject()) {
+            do {
+                String key = readKey();
+                switch (key) {
+                    case "event":
+                        eventType = parseTestEventType(readString());
+                        break;
+                    case "element":
+                        element = readTestElement();
+                        break;
+                    default:
+                        skipValue();
+                        break;
+                }
+            } while (nextMember());
+        }
+        if (eventType == null) {
+            throw new IOException("missing test event type");
+        }
+        return true;
+    }
+
+    private static TestEventType parseTestEventType(String event) {
+        if (event == null) {
+            throw new IllegalArgumentException(event);
+        }
+        switch (event) {
+            case "testRunStarted":
+                return TestEventType.TEST_RUN_STARTED;
+            case "testRunFinished":
+                return TestEventType.TEST_RUN_FINISHED;
+            case "testStarted":
+                return TestEventType.TEST_STARTED;
+            case "testFinished":
+            case "testError":
+            case "testSkipped":
+            case "testAborted":
+                return TestEventType.TEST_FINISHED;
+            default:
+                throw new IllegalArgumentException(event);
+        }
+    }
+
+    private TestElement readTestElement() throws IOException {
+        int ch = skipWhitespace();
+        if (ch == 'n') {
+            readLiteral("null");
+            return null;
+        }
+        expect(ch, '{');
+        TestElement e = new TestElement();
+        boolean hasException = false;
+        String expectedValue = null;
+        String actualValue = null;
+        if (!endOfObject()) {
+            do {
+                String key = readKey();
+                switch (key) {
+                    case "name":
+                        e.setQualifiedName(readString());
+                        break;
+                    case "variant":
+                        e.setVariant(readString());
+                        break;
+                    case "variantIndex":
+                        e.setVariantIndex(readLong());
+                        break;
+                    case "state":
+                        e.setState(parseState(readString()));
+                        break;
+                    case "children":
+                        List<TestElement> children = readTestElements();
+                        if (children != null) {
+                            e.setChildren(children);
+                        }
+                        break;
+                    case "elapsedTime":
+                        Long elapsedTime = readLong();
+                        if (elapsedTime != null) {
+                            e.setElapsedTimeInMilis(elapsedTime);
+                        }
+                        break;
+                    case "exception":
+                        hasException = true;
+                        e.setException(readString());
+                        break;
+                    case "expectedValue":
+                        expectedValue = readString();
+                        break;
+                    case "actualValue":
+                        actualValue = readString();
+                        break;
+                    default:
+                        skipValue();
+                        break;
+                }
+            } while (nextMember());
+        }
+        if (hasException) {
+            e.setExpectedValue(expectedValue);
+            e.setActualValue(actualValue);
+        }
+        return e;
+    }
+
+    private List<TestElement> readTestElements() throws IOException {
+        int ch = skipWhitespace();
+        if (ch == 'n') {
+            readLiteral("null");
+            return null;
+        }
+        expect(ch, '[');
+        List<TestElement> elements = new ArrayList<TestElement>();
+        if (skipWhitespace() == ']') {
+            return elements;
+        }
+        position--;
+        do {
+            elements.add(readTestElement());
+        } while (nextElement());
+        return elements;
+    }
+
+    private static TestElement.State parseState(String state) {
+        if (state == null) {
+            return null;
+        }
+        switch (state) {
+            case "running":
+                return RUNNING;
+            case "success":
+                return SUCCESS;
+            case "failure":
+                return FAILURE;
+            case "error":
+                return ERROR;
+            case "skipped":
+            case "aborted":
+                return SKIPPED_OR_ABORTED;
+            default:
+                return UNDEFINED;
+        }
+    }
+
+    private String readKey() throws IOException {
+        expect(skipWhitespace(), '"');
+        String key = readStringContent();
+        expect(skipWhitespace(), ':');
+        return key;
+    }
+
+    private boolean endOfObject() throws IOException {
+        if (skipWhitespace() == '}') {
+            return true;
+        }
+        position--;
+        return false;
+    }
+
+    private boolean nextMember() throws IOException {
+        int ch = skipWhitespace();
+        if (ch == '}') {
+            return false;
+        }
+        expect(ch, ',');
+        return true;
+    }
+
+    private boolean nextElement() throws IOException {
+        int ch = skipWhitespace();
+        if (ch == ']') {
+            return false;
+        }
+        expect(ch, ',');
+        return true;
+    }
+
+    private String readString() throws IOException {
+        int ch = skipWhitespace();
+        if (ch == 'n') {
+            readLiteral("null");
+            return null;
+        }
+        expect(ch, '"');
+        return readStringContent();
+    }
+
+    private String readStringContent() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int ch = read();
+            if (ch == '"') {
+                return text.toString();
+            }
+            if (ch == '\\') {
+                ch = read();
+                switch (ch) {
+                    case 'b': text.append('\b'); break;
+                    case 'f': text.append('\f'); break;
+                    case 'n': text.append('\n'); break;
+                    case 'r': text.append('\r'); break;
+                    case 't': text.append('\t'); break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) {
+                                throw new IOException("malformed unicode escape");
+                            }
+                            code = code * 16 + digit;
+                        }
+                        text.append((char) code);
+                        break;
+                    default:
+                        // quote, backslash, slash and EOT
+                        text.append((char) ch);
+                        break;
+                }
+            } else {
+                text.append((char) ch);
+            }
+        }
+    }
+
+    private Long readLong() throws IOException {
+        int ch = skipWhitespace();
+        if (ch == 'n') {
+            readLiteral("null");
+            return null;
+        }
+        text.setLength(0);
+        while (ch == '-' || ch == '+' || ch == '.' || ch == 'e' || ch == 'E'
+                || (ch >= '0' && ch <= '9')) {
+            text.append((char) ch);
+            ch = read();
+        }
+        position--;
+        String number = text.toString();
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            try {
+                return (long) Double.parseDouble(number);
+            } catch (NumberFormatException nfe) {
+                throw new IOException("malformed number: " + number);
+            }
+        }
+    }
+
+    private void readLiteral(String literal) throws IOException {
+        // the first character has already been read
+        for (int i = 1; i < literal.length(); i++) {
+            expect(read(), literal.charAt(i));
+        }
+    }
+
+    private void skipValue() throws IOException {
+        int ch = skipWhitespace();
+        switch (ch) {
+            case '"':
+                readStringContent();
+                break;
+            case '{':
+                if (!endOfObject()) {
+                    do {
+                        readKey();
+                        skipValue();
+                    } while (nextMember());
+                }
+                break;
+            case '[':
+                if (skipWhitespace() != ']') {
+                    position--;
+                    do {
+                        skipValue();
+                    } while (nextElement());
+                }
+                break;
+            case 't':
+                readLiteral("true");
+                break;
+            case 'f':
+                readLiteral("false");
+                break;
+            case 'n':
+                readLiteral("null");
+                break;
+            default:
+                position--;
+                readLong();
+                break;
+        }
+    }
+
+    private void expect(int ch, char expected) throws IOException {
+        if (ch != expected) {
+            throw new IOException("unexpected character in test event: "
+                    + (ch == -1 ? "end of stream" : "'" + (char) ch + "'")
+                    + ", expected '" + expected + "'");
+        }
+    }
+
+    private int skipSeparators() throws IOException {
+        while (true) {
+            int ch = peek();
+            if (ch == -1) {
+                return -1;
+            }
+            position++;
+            if (ch != EOT && !Character.isWhitespace(ch)) {
+                return ch;
+            }
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        int ch;
+        do {
+            ch = read();
+        } while (Character.isWhitespace(ch));
+        return ch;
+    }
+
+    private int read() throws IOException {
+        int ch = peek();
+        if (ch == -1) {
+            throw new EOFException();
+        }
+        position++;
+        return ch;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            // keep the last character, so that it can
+            // always be pushed back
+            int keep = 0;
+            if (limit > 0) {
+                buffer[0] = buffer[limit - 1];
+                keep = 1;
+            }
+            int count = reader.read(buffer, keep, buffer.length - keep);
+            if (count == -1) {
+                position = keep;
+                limit = keep;
+                return -1;
+            }
+            position = keep;
+            limit = keep + count;
+        }
+        return buffer[position];
+    }
+
+}
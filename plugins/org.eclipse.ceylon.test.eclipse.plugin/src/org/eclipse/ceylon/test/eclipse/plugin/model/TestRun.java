@@ -14,12 +14,18 @@ import static org.eclipse.ceylon.test.eclipse.plugin.CeylonTestPlugin.LAUNCH_CON
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.ILaunchConfiguration;
 
@@ -34,10 +40,16 @@ public class TestRun {
         return testRun != null ? testRun : NULL_LOCK;
     }
 
+    private static final long NOTIFICATION_INTERVAL = 100;
+
     private final Date startDate;
     private final ILaunch launch;
     private TestElement root;
-    private List<TestElement> atomicTests = new ArrayList<TestElement>();
+    private Set<TestElement> atomicTests = new LinkedHashSet<TestElement>();
+    private Map<TestElement, List<TestElement>> elementsIndex = new HashMap<TestElement, List<TestElement>>();
+    private Map<String, List<TestElement>> variantParentsIndex = new HashMap<String, List<TestElement>>();
+    private List<PendingNotification> pendingNotifications = new ArrayList<PendingNotification>();
+    private final Job notificationJob = new NotificationJob();
     private Map<String, List<TestElement>> testsByPackages = new LinkedHashMap<String, List<TestElement>>();
     private boolean isRunning = true;
     private boolean isFinished;
@@ -63,7 +75,11 @@ public class TestRun {
     }
     
     public List<TestElement> getAtomicTests() {
-        return atomicTests;
+        return new ArrayList<TestElement>(atomicTests);
+    }
+
+    public boolean isAtomicTest(TestElement testElement) {
+        return atomicTests.contains(testElement);
     }
     
     public Map<String, List<TestElement>> getTestsByPackages() {
@@ -233,6 +249,7 @@ public class TestRun {
             fireTestRunStarted();
             break;
         case TEST_RUN_FINISHED:
+            firePendingNotifications();
             isRunning = false;
             isFinished = true;
             isInterrupted = false;
@@ -241,18 +258,19 @@ public class TestRun {
         case TEST_STARTED:
             updateTestElement(eventType, element);
             updateCounters(eventType, element);
-            fireTestStarted(element);
+            queueNotification(eventType, element);
             break;
         case TEST_FINISHED:
             updateTestElement(eventType, element);
             updateCounters(eventType, element);
-            fireTestFinished(element);
+            queueNotification(eventType, element);
             break;
         }
     }
 
     public synchronized void processLaunchTerminatedEvent() {
         if( isRunning ) {
+            firePendingNotifications();
             new TestVisitor() {
                 @Override
                 public void visitElement(TestElement e) {
@@ -278,6 +296,7 @@ public class TestRun {
                 if (e != root && (e.getChildren() == null || e.getChildren().size() == 0)) {
                     atomicTests.add(e);
                 }
+                addToIndex(e);
             }
 
         }.visitElements(root);
@@ -295,30 +314,48 @@ public class TestRun {
         }
     }
 
+    private void addToIndex(TestElement e) {
+        List<TestElement> elements = elementsIndex.get(e);
+        if (elements == null) {
+            elements = new ArrayList<TestElement>(1);
+            elementsIndex.put(e, elements);
+        }
+        elements.add(e);
+        if (e.getVariant() == null && e.getVariantIndex() == null) {
+            List<TestElement> parents = variantParentsIndex.get(e.getQualifiedName());
+            if (parents == null) {
+                parents = new ArrayList<TestElement>(1);
+                variantParentsIndex.put(e.getQualifiedName(), parents);
+            }
+            parents.add(e);
+        }
+    }
+
     private void updateTestElement(final TestEventType eventType, final TestElement testElement) {
-        new TestVisitor() {
-            @Override
-            public void visitElement(TestElement e) {
-                if (e.equals(testElement)) {
-                    e.setState(testElement.getState());
-                    e.setException(testElement.getException());
-                    e.setExpectedValue(testElement.getExpectedValue());
-                    e.setActualValue(testElement.getActualValue());
-                    e.setElapsedTimeInMilis(testElement.getElapsedTimeInMilis());
-                }
-                else if (eventType == TestEventType.TEST_STARTED 
-                        && testElement.getVariant() != null
-                        && testElement.getVariantIndex() != null
-                        && Objects.equals(e.getQualifiedName(), testElement.getQualifiedName())
-                        && e.getVariant() == null 
-                        && e.getVariantIndex() == null
-                        && !e.getChildren().contains(testElement)) {
+        List<TestElement> elements = elementsIndex.get(testElement);
+        if (elements != null) {
+            for (TestElement e : elements) {
+                e.setState(testElement.getState());
+                e.setException(testElement.getException());
+                e.setExpectedValue(testElement.getExpectedValue());
+                e.setActualValue(testElement.getActualValue());
+                e.setElapsedTimeInMilis(testElement.getElapsedTimeInMilis());
+            }
+        }
+        else if (eventType == TestEventType.TEST_STARTED 
+                && testElement.getVariant() != null
+                && testElement.getVariantIndex() != null) {
+            // first run of a variant, add it to its test
+            List<TestElement> parents = variantParentsIndex.get(testElement.getQualifiedName());
+            if (parents != null) {
+                for (TestElement e : parents) {
                     e.addChild(testElement);
                     atomicTests.remove(e);
                     atomicTests.add(testElement);
                 }
+                addToIndex(testElement);
             }
-        }.visitElements(root);
+        }
     }
 
     private void updateCounters(TestEventType eventType, TestElement element) {
@@ -374,6 +411,27 @@ public class TestRun {
         }
     }
 
+    private void queueNotification(TestEventType eventType, TestElement testElement) {
+        if (pendingNotifications.isEmpty()) {
+            notificationJob.schedule(NOTIFICATION_INTERVAL);
+        }
+        pendingNotifications.add(new PendingNotification(eventType, testElement));
+    }
+
+    private synchronized void firePendingNotifications() {
+        if (!pendingNotifications.isEmpty()) {
+            List<PendingNotification> notifications = pendingNotifications;
+            pendingNotifications = new ArrayList<PendingNotification>();
+            for (PendingNotification notification : notifications) {
+                if (notification.eventType == TestEventType.TEST_STARTED) {
+                    fireTestStarted(notification.testElement);
+                } else {
+                    fireTestFinished(notification.testElement);
+                }
+            }
+        }
+    }
+
     private void fireTestStarted(TestElement testElement) {
         for (TestRunListener listener : getTestRunListeners()) {
             listener.testStarted(this, testElement);
@@ -386,6 +444,38 @@ public class TestRun {
         }
     }
 
+    private static class PendingNotification {
+
+        private final TestEventType eventType;
+        private final TestElement testElement;
+
+        public PendingNotification(TestEventType eventType, TestElement testElement) {
+            this.eventType = eventType;
+            this.testElement = testElement;
+        }
+
+    }
+
+    /**
+     * Delivers the test started and test finished
+     * notifications in batches, so that the listeners
+     * aren't flooded by large test suites.
+     */
+    private class NotificationJob extends Job {
+
+        public NotificationJob() {
+            super("NotificationJob");
+            setSystem(true);
+        }
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            firePendingNotifications();
+            return Status.OK_STATUS;
+        }
+
+    }
+
     public static abstract class TestVisitor {
 
         public final void visitElements(TestElement e) {
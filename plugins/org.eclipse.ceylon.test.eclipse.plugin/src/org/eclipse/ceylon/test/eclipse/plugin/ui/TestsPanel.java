@@ -296,7 +296,7 @@ public class TestsPanel extends Composite {
                 showTestsInHierarchyAction.isChecked() &&
                 !scrollLockAction.isChecked() ) {
             for (TestElement lastFinishedTestElement : lastFinishedTestElements) {
-                if (!currentTestRun.getAtomicTests().contains(lastFinishedTestElement)
+                if (!currentTestRun.isAtomicTest(lastFinishedTestElement)
                         && lastFinishedTestElement.getState() == State.SUCCESS) {
                     viewer.collapseToLevel(lastFinishedTestElement, TreeViewer.ALL_LEVELS);
                 }
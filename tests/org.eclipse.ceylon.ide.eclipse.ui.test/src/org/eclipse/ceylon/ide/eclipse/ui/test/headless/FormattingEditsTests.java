@@ -0,0 +1,152 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.ui.test.headless;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.junit.Test;
+
+import org.eclipse.ceylon.ide.eclipse.code.editor.FormattingEdits;
+
+public class FormattingEditsTests {
+
+    private static final String BEFORE = "//before\n";
+    private static final String AFTER = "\n//after";
+
+    @Test
+    public void testUnchanged() throws Exception {
+        String text = "shared void run() {\n    print(1);\n}\n";
+        MultiTextEdit edit =
+                FormattingEdits.createEdits(0, text, text);
+        assertFalse(edit.hasChildren());
+    }
+
+    @Test
+    public void testWhitespaceOnly() throws Exception {
+        MultiTextEdit edit =
+                checkEdits("class A{\n  void f(){}\n}",
+                        "class A {\n    void f() {}\n}",
+                        true);
+        assertEquals(3, edit.getChildrenSize());
+    }
+
+    @Test
+    public void testIndentation() throws Exception {
+        checkEdits("void f() {\nif (true) {\nprint(1);\n}\n}\n",
+                "void f() {\n    if (true) {\n        print(1);\n    }\n}\n",
+                true);
+    }
+
+    @Test
+    public void testNonWhitespace() throws Exception {
+        MultiTextEdit edit =
+                checkEdits("value x = 1;", "value x = 2;", false);
+        assertEquals(1, edit.getChildrenSize());
+        ReplaceEdit child = (ReplaceEdit) edit.getChildren()[0];
+        assertEquals(BEFORE.length() + "value x = ".length(),
+                child.getOffset());
+        assertEquals(1, child.getLength());
+        assertEquals("2", child.getText());
+    }
+
+    @Test
+    public void testWhitespaceAndNonWhitespace() throws Exception {
+        checkEdits("value  x=1;\nvalue y = x;",
+                "value x = 2;\nvalue y = x;",
+                false);
+        checkEdits("import a {b,c}\n\n\nvoid f() {}",
+                "import a {\n    c,\n    b\n}\n\nvoid f() {}",
+                false);
+    }
+
+    @Test
+    public void testInsertionAtStart() throws Exception {
+        MultiTextEdit edit =
+                checkEdits("shared void f() {}",
+                        "\nshared void f() {}",
+                        true);
+        ReplaceEdit child = (ReplaceEdit) edit.getChildren()[0];
+        assertEquals(BEFORE.length(), child.getOffset());
+        assertEquals(0, child.getLength());
+    }
+
+    @Test
+    public void testEditsAtStartAndEnd() throws Exception {
+        MultiTextEdit edit =
+                checkEdits("  value x = 1;  ",
+                        "value x = 1;\n",
+                        true);
+        TextEdit[] children = edit.getChildren();
+        assertEquals(BEFORE.length(), children[0].getOffset());
+        TextEdit last = children[children.length-1];
+        assertEquals(BEFORE.length() + "  value x = 1;  ".length(),
+                last.getOffset() + last.getLength());
+    }
+
+    @Test
+    public void testNonWhitespaceAtStartAndEnd() throws Exception {
+        checkEdits("value x = 1;", "variable value x = 1;", false);
+        checkEdits("value x = 1;", "value x = 1; //one", false);
+        checkEdits("a", "", false);
+        checkEdits("", "a", false);
+    }
+
+    /**
+     * Apply the edits computed for the given texts to a
+     * document containing the original text between other
+     * text, and check that it contains the formatted text,
+     * and that only whitespace was replaced, if expected.
+     * Returns the edits, as they were before they were
+     * applied, since applying them moves them.
+     */
+    private static MultiTextEdit checkEdits(String original,
+            String formatted, boolean whitespaceOnly)
+                    throws Exception {
+        Document document =
+                new Document(BEFORE + original + AFTER);
+        MultiTextEdit edit =
+                FormattingEdits.createEdits(BEFORE.length(),
+                        original, formatted);
+        assertTrue(edit.hasChildren());
+        if (whitespaceOnly) {
+            for (TextEdit child: edit.getChildren()) {
+                ReplaceEdit replace = (ReplaceEdit) child;
+                String replaced =
+                        document.get(replace.getOffset(),
+                                replace.getLength());
+                assertTrue("replaced '" + replaced + "'",
+                        isWhitespace(replaced));
+                assertTrue("inserted '" + replace.getText() + "'",
+                        isWhitespace(replace.getText()));
+            }
+        }
+        FormattingEdits.createEdits(BEFORE.length(),
+                original, formatted)
+            .apply(document);
+        assertEquals(BEFORE + formatted + AFTER, document.get());
+        return edit;
+    }
+
+    private static boolean isWhitespace(String text) {
+        for (int i=0; i<text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
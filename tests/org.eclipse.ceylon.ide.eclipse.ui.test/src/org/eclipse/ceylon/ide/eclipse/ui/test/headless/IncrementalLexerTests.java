@@ -0,0 +1,208 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.ui.test.headless;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.eclipse.ceylon.ide.eclipse.util.Nodes.getLexerType;
+
+import java.util.List;
+
+import org.antlr.runtime.CommonToken;
+import org.junit.Test;
+
+import org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer;
+import org.eclipse.ceylon.ide.eclipse.code.editor.IncrementalLexer;
+
+public class IncrementalLexerTests {
+
+    private static final String SOURCE =
+            "import ceylon.collection {\n" +
+            "    HashMap\n" +
+            "}\n" +
+            "import java.lang { JString=String }\n" +
+            "\n" +
+            "\"The hello program\"\n" +
+            "by (\"Gavin\")\n" +
+            "shared void hello() {\n" +
+            "    value map = HashMap<String,Integer>();\n" +
+            "    print(\"Hello ``map.size`` world\");\n" +
+            "}\n" +
+            "\n" +
+            "/* a comment */\n" +
+            "\"\"\"Verbatim doc\"\"\"\n" +
+            "shared class Greeter(String name) {\n" +
+            "    \"Greet\"\n" +
+            "    shared default void greet() => print(name);\n" +
+            "}\n";
+
+    @Test
+    public void testInsertInDocString() {
+        checkEdit(SOURCE, SOURCE.indexOf("hello program"), 0, "nice ");
+    }
+
+    @Test
+    public void testInsertAnnotation() {
+        checkEdit(SOURCE, SOURCE.indexOf("shared void"), 0, "deprecated ");
+    }
+
+    @Test
+    public void testRemoveAnnotation() {
+        checkEdit(SOURCE, SOURCE.indexOf("shared class"),
+                "shared ".length(), "");
+    }
+
+    @Test
+    public void testEditImport() {
+        checkEdit(SOURCE, SOURCE.indexOf("lang"), 0, "x");
+    }
+
+    @Test
+    public void testInsertLine() {
+        checkEdit(SOURCE, SOURCE.indexOf("    value map"), 0,
+                "    print(1);\n");
+    }
+
+    @Test
+    public void testEditInterpolation() {
+        checkEdit(SOURCE, SOURCE.indexOf("size``"), 0, "x");
+    }
+
+    //the following edits leave code which doesn't parse,
+    //where only the tokens themselves are compared, since
+    //the parser may recover differently from the errors
+
+    @Test
+    public void testOpenString() {
+        checkEdit(SOURCE, SOURCE.indexOf("print(name)"), 0, "\"",
+                false);
+    }
+
+    @Test
+    public void testRemoveBrace() {
+        checkEdit(SOURCE, SOURCE.indexOf("}\n\n/*"), 1, "",
+                false);
+    }
+
+    @Test
+    public void testEveryOffset() {
+        for (int offset=0; offset<=SOURCE.length(); offset++) {
+            checkEdit(SOURCE, offset, 0, " ", false);
+            if (offset<SOURCE.length()) {
+                checkEdit(SOURCE, offset, 1, "", false);
+            }
+        }
+    }
+
+    @Test
+    public void testRetyping() {
+        IncrementalLexer lexer = new IncrementalLexer();
+        lexer.update(SOURCE);
+        int offset = SOURCE.indexOf("shared void");
+        lexer.documentChanged(offset, 0, 1);
+        lexer.update(SOURCE.substring(0, offset) + " " +
+                SOURCE.substring(offset));
+        boolean annotation = false;
+        boolean pkg = false;
+        boolean doc = false;
+        for (CommonToken token: lexer.getTokens()) {
+            switch (token.getType()) {
+            case CeylonLexer.AIDENTIFIER:
+                annotation = true;
+                break;
+            case CeylonLexer.PIDENTIFIER:
+                pkg = true;
+                break;
+            case CeylonLexer.ASTRING_LITERAL:
+                doc = true;
+                break;
+            }
+        }
+        assertTrue(annotation);
+        assertTrue(pkg);
+        assertTrue(doc);
+    }
+
+    @Test
+    public void testUnreportedChange() {
+        //the same length, and no documentChanged()
+        IncrementalLexer lexer = new IncrementalLexer();
+        lexer.update(SOURCE);
+        String edited = SOURCE.replace("hello()", "hallo()");
+        lexer.update(edited);
+        assertTokens("set: ", edited, lexer, true);
+        edited = edited.replace("/* a comment */", "\"a long string\"");
+        lexer.update(edited);
+        assertTokens("set: ", edited, lexer, true);
+    }
+
+    @Test
+    public void testUnchanged() {
+        IncrementalLexer lexer = new IncrementalLexer();
+        lexer.update(SOURCE);
+        List<CommonToken> tokens = lexer.getTokens();
+        lexer.update(new String(SOURCE));
+        assertSame(tokens, lexer.getTokens());
+    }
+
+    private static void checkEdit(String source,
+            int offset, int length, String text) {
+        checkEdit(source, offset, length, text, true);
+    }
+
+    private static void checkEdit(String source,
+            int offset, int length, String text,
+            boolean compareParsedTypes) {
+        IncrementalLexer incremental = new IncrementalLexer();
+        incremental.update(source);
+        String edited =
+                source.substring(0, offset) + text +
+                source.substring(offset+length);
+        incremental.documentChanged(offset, length,
+                text.length());
+        incremental.update(edited);
+
+        assertTokens("edit at " + offset + ": ", edited,
+                incremental, compareParsedTypes);
+    }
+
+    private static void assertTokens(String where, String text,
+            IncrementalLexer incremental,
+            boolean compareParsedTypes) {
+        IncrementalLexer full = new IncrementalLexer();
+        full.update(text);
+
+        List<CommonToken> expected = full.getTokens();
+        List<CommonToken> actual = incremental.getTokens();
+        assertEquals(where + "token count",
+                expected.size(), actual.size());
+        for (int i=0; i<expected.size(); i++) {
+            CommonToken e = expected.get(i);
+            CommonToken a = actual.get(i);
+            String token = where + "token " + i + " " + e.getText();
+            if (compareParsedTypes) {
+                assertEquals(token, e.getType(), a.getType());
+            }
+            else {
+                assertEquals(token, getLexerType(e), getLexerType(a));
+            }
+            assertEquals(token, e.getChannel(), a.getChannel());
+            assertEquals(token, e.getStartIndex(), a.getStartIndex());
+            assertEquals(token, e.getStopIndex(), a.getStopIndex());
+            assertEquals(token, e.getLine(), a.getLine());
+            assertEquals(token, e.getCharPositionInLine(),
+                    a.getCharPositionInLine());
+            assertEquals(token, e.getTokenIndex(), a.getTokenIndex());
+            assertEquals(token, e.getText(), a.getText());
+        }
+    }
+
+}
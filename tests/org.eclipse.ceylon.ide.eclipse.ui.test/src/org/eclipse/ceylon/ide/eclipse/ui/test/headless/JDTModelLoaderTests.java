@@ -10,6 +10,8 @@
  ************************************************************************************/
 package org.eclipse.ceylon.ide.eclipse.ui.test.headless;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
@@ -27,6 +29,11 @@ import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.internal.compiler.lookup.ReferenceBinding;
 import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -39,9 +46,14 @@ import org.eclipse.ceylon.compiler.java.test.model.RunnableTest;
 import org.eclipse.ceylon.compiler.typechecker.context.PhasedUnit;
 import org.eclipse.ceylon.ide.eclipse.core.builder.CeylonBuilder;
 import org.eclipse.ceylon.ide.eclipse.core.model.JDTModelLoader;
+import org.eclipse.ceylon.ide.eclipse.core.model.LookupEnvironmentUtilities;
+import org.eclipse.ceylon.ide.eclipse.core.model.LookupEnvironmentUtilities.ActionOnResolvedType;
+import org.eclipse.ceylon.ide.eclipse.core.model.mirror.ClassFileAnnotations;
+import org.eclipse.ceylon.ide.eclipse.core.model.mirror.JDTUtils;
 import org.eclipse.ceylon.ide.eclipse.ui.test.Utils;
 import org.eclipse.ceylon.ide.eclipse.ui.test.Utils.CeylonBuildSummary;
 import org.eclipse.ceylon.model.loader.ModelLoader.DeclarationType;
+import org.eclipse.ceylon.model.loader.mirror.AnnotationMirror;
 import org.eclipse.ceylon.model.typechecker.model.Declaration;
 import org.eclipse.ceylon.model.typechecker.model.ModelUtil;
 import org.eclipse.ceylon.model.typechecker.model.Module;
@@ -238,4 +250,73 @@ public class JDTModelLoaderTests extends ModelLoaderTests {
     public void ceylonDeprecated(){
     }
 
+    @Test
+    public void classFileAnnotationsOfDeprecatedClass() throws JavaModelException {
+        if (compilationError != null) {
+            throw compilationError;
+        }
+        IType type = JavaCore.create(projectReferences)
+                .findType("java.io.StringBufferInputStream");
+        Map<String, AnnotationMirror> fromClassFile = 
+                getClassFileAnnotations(type);
+        assertNotNull("The annotations of a @Deprecated class should be read from the class file", 
+                fromClassFile);
+        assertTrue(fromClassFile.containsKey("java.lang.Deprecated"));
+        compareAnnotations(getBindingAnnotations(type), fromClassFile);
+    }
+
+    @Test
+    public void classFileAnnotationsOfAnnotationType() throws JavaModelException {
+        if (compilationError != null) {
+            throw compilationError;
+        }
+        IJavaProject javaProject = JavaCore.create(projectReferences);
+        for (String name: new String[] { 
+                "java.lang.annotation.Documented", 
+                "java.lang.annotation.Target" }) {
+            IType type = javaProject.findType(name);
+            Map<String, AnnotationMirror> fromBinding = 
+                    getBindingAnnotations(type);
+            assertTrue(fromBinding.containsKey("java.lang.annotation.Target"));
+            Map<String, AnnotationMirror> fromClassFile = 
+                    getClassFileAnnotations(type);
+            //the class file can't always tell, in which case
+            //the binding is used, but it never disagrees
+            if (fromClassFile != null) {
+                compareAnnotations(fromBinding, fromClassFile);
+            }
+        }
+    }
+
+    private static Map<String, AnnotationMirror> getClassFileAnnotations(IType type) {
+        assertNotNull(type);
+        ClassFileAnnotations classFile = ClassFileAnnotations.read(type);
+        assertNotNull("The class file of " + type.getFullyQualifiedName() + " should be readable", 
+                classFile);
+        return classFile.getAnnotations();
+    }
+
+    private static Map<String, AnnotationMirror> getBindingAnnotations(IType type) {
+        assertNotNull(type);
+        final Map<String, Map<String, AnnotationMirror>> result = 
+                new HashMap<String, Map<String, AnnotationMirror>>();
+        LookupEnvironmentUtilities.doWithResolvedType(type, new ActionOnResolvedType() {
+            @Override
+            public void doWithBinding(ReferenceBinding referenceBinding) {
+                result.put("", JDTUtils.getAnnotations(referenceBinding.getAnnotations()));
+            }
+        });
+        return result.get("");
+    }
+
+    private static void compareAnnotations(Map<String, AnnotationMirror> expected, 
+            Map<String, AnnotationMirror> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Entry<String, AnnotationMirror> entry: expected.entrySet()) {
+            assertEquals(entry.getKey(), 
+                    String.valueOf(entry.getValue().getValue()), 
+                    String.valueOf(actual.get(entry.getKey()).getValue()));
+        }
+    }
+
 }
@@ -0,0 +1,136 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.ui.test.headless;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import org.eclipse.ceylon.ide.eclipse.core.builder.MarkerSnapshot;
+
+public class MarkerSnapshotTests {
+
+    private final Map<String, String> saved =
+            new HashMap<String, String>();
+    private final Map<String, String> current =
+            new HashMap<String, String>();
+    private final Map<String, List<String>> dependents =
+            new HashMap<String, List<String>>();
+
+    private void file(String path, String hash) {
+        saved.put(path, hash);
+        current.put(path, hash);
+    }
+
+    private void dependents(String path, String... paths) {
+        dependents.put(path, asList(paths));
+    }
+
+    private Set<String> stale() {
+        return MarkerSnapshot.getStalePaths(saved, current,
+                dependents);
+    }
+
+    private static Set<String> set(String... paths) {
+        return new HashSet<String>(asList(paths));
+    }
+
+    @Test
+    public void testUnchanged() {
+        file("a", "1");
+        file("b", "2");
+        dependents("a", "b");
+        assertTrue(stale().isEmpty());
+    }
+
+    @Test
+    public void testChain() {
+        file("a", "1");
+        file("b", "2");
+        file("c", "3");
+        file("d", "4");
+        dependents("a", "b");
+        dependents("b", "c");
+        current.put("a", "changed");
+        assertEquals(set("a", "b", "c"), stale());
+    }
+
+    @Test
+    public void testOnlyDependentsGoStale() {
+        file("a", "1");
+        file("b", "2");
+        file("c", "3");
+        dependents("a", "b");
+        dependents("b", "c");
+        current.put("b", "changed");
+        assertEquals(set("b", "c"), stale());
+    }
+
+    @Test
+    public void testCycle() {
+        file("a", "1");
+        file("b", "2");
+        file("c", "3");
+        file("d", "4");
+        dependents("a", "b");
+        dependents("b", "c");
+        dependents("c", "a", "d");
+        current.put("b", "changed");
+        assertEquals(set("a", "b", "c", "d"), stale());
+    }
+
+    @Test
+    public void testDiamond() {
+        file("a", "1");
+        file("b", "2");
+        file("c", "3");
+        file("d", "4");
+        file("e", "5");
+        dependents("a", "b", "c");
+        dependents("b", "d");
+        dependents("c", "d");
+        current.put("a", "changed");
+        assertEquals(set("a", "b", "c", "d"), stale());
+    }
+
+    @Test
+    public void testMissingFile() {
+        //an external file which no longer exists,
+        //or can't be read
+        file("a", "1");
+        file("lib", "2");
+        dependents("lib", "a");
+        current.put("lib", null);
+        assertEquals(set("lib", "a"), stale());
+        current.remove("lib");
+        assertEquals(set("lib", "a"), stale());
+    }
+
+    @Test
+    public void testUnknownDependents() {
+        //dependents which aren't source files of the
+        //project are still reported, and ignored by the
+        //builder
+        file("a", "1");
+        dependents("a", "gone");
+        dependents("gone", "b");
+        current.put("a", "changed");
+        assertEquals(set("a", "gone", "b"), stale());
+    }
+
+}
@@ -0,0 +1,238 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.ui.test.headless;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.eclipse.ceylon.test.eclipse.plugin.model.TestElement;
+import org.eclipse.ceylon.test.eclipse.plugin.model.TestEventDecoder;
+import org.eclipse.ceylon.test.eclipse.plugin.model.TestEventType;
+
+public class TestEventDecoderTests {
+
+    private static final char EOT = '\u0004';
+
+    private static final String RUN_STARTED =
+            "{\"event\":\"testRunStarted\",\"element\":" +
+            "{\"name\":\"com.acme::tests\",\"state\":\"running\"," +
+            "\"children\":[{\"name\":\"com.acme::testA\"}," +
+            "{\"name\":\"com.acme::testB\",\"children\":[]}]}}";
+
+    private static final String TEST_FINISHED =
+            "{ \"event\" : \"testFinished\" , \"extra\" : " +
+            "{\"list\":[1, -2.5e3, true, false, null, \"x\"]}, " +
+            "\"element\" : {\"name\":\"com.acme::testA\"," +
+            "\"state\":\"success\",\"elapsedTime\":1234} }";
+
+    private static final String TEST_ERROR =
+            "{\"event\":\"testError\",\"element\":" +
+            "{\"name\":\"com.acme::testB\",\"state\":\"failure\"," +
+            "\"exception\":\"expected \\\"a\\\"\\nbut was \\\\b\\\\\"," +
+            "\"expectedValue\":\"a\",\"actualValue\":\"\\\\b\\\\\"}}";
+
+    private static final String RUN_FINISHED =
+            "{\"event\":\"testRunFinished\",\"element\":null}";
+
+    @Test
+    public void testEotTerminated() throws IOException {
+        checkEvents(join(EOT));
+    }
+
+    @Test
+    public void testNewlineTerminated() throws IOException {
+        checkEvents(join('\n'));
+    }
+
+    @Test
+    public void testMixedTerminators() throws IOException {
+        checkEvents(RUN_STARTED + EOT + "\n" +
+                TEST_FINISHED + "\r\n" +
+                TEST_ERROR + "\n\n" +
+                RUN_FINISHED);
+    }
+
+    @Test
+    public void testSplitAcrossReads() throws IOException {
+        for (char terminator: new char[] { EOT, '\n' }) {
+            String stream = join(terminator);
+            for (int chunk=1; chunk<=stream.length(); chunk++) {
+                checkEvents(new ChunkedReader(stream, chunk));
+            }
+        }
+    }
+
+    @Test
+    public void testLongEvents() throws IOException {
+        //longer than the buffer of the decoder
+        StringBuilder name = new StringBuilder();
+        while (name.length()<20000) {
+            name.append("com.acme::test").append(name.length());
+        }
+        String event =
+                "{\"event\":\"testStarted\",\"element\":" +
+                "{\"name\":\"" + name + "\"}}";
+        for (int chunk: new int[] { 1, 7, 4096, 8192, 100000 }) {
+            TestEventDecoder decoder =
+                    new TestEventDecoder(
+                            new ChunkedReader(event + EOT + event,
+                                    chunk));
+            for (int i=0; i<2; i++) {
+                assertTrue(decoder.next());
+                assertEquals(TestEventType.TEST_STARTED,
+                        decoder.getEventType());
+                assertEquals(name.toString(),
+                        decoder.getElement().getQualifiedName());
+            }
+            assertFalse(decoder.next());
+        }
+    }
+
+    @Test
+    public void testEscapedStrings() throws IOException {
+        String event =
+                "{\"event\":\"testError\",\"element\":" +
+                "{\"name\":\"com.acme::testC\"," +
+                "\"exception\":\"quote \\\" backslash \\\\ " +
+                "slash \\/ tab \\t return \\r " +
+                "unicode \\u00e9\\u0041 " +
+                "eot \\" + EOT + " end\"}}";
+        for (char terminator: new char[] { EOT, '\n' }) {
+            for (int chunk: new int[] { 1, 2, 3, 1000 }) {
+                TestEventDecoder decoder =
+                        new TestEventDecoder(
+                                new ChunkedReader(event + terminator,
+                                        chunk));
+                assertTrue(decoder.next());
+                assertEquals("quote \" backslash \\ " +
+                        "slash / tab \t return \r " +
+                        "unicode \u00e9A " +
+                        "eot " + EOT + " end",
+                        decoder.getElement().getException());
+                assertFalse(decoder.next());
+            }
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void testTruncatedEvent() throws IOException {
+        TestEventDecoder decoder =
+                new TestEventDecoder(new StringReader(
+                        RUN_STARTED.substring(0,
+                                RUN_STARTED.length()/2)));
+        decoder.next();
+    }
+
+    @Test
+    public void testEmptyStream() throws IOException {
+        TestEventDecoder decoder =
+                new TestEventDecoder(
+                        new StringReader("\n" + EOT + " \n"));
+        assertFalse(decoder.next());
+    }
+
+    private static String join(char terminator) {
+        return RUN_STARTED + terminator +
+                TEST_FINISHED + terminator +
+                TEST_ERROR + terminator +
+                RUN_FINISHED + terminator;
+    }
+
+    private static void checkEvents(String stream)
+            throws IOException {
+        checkEvents(new StringReader(stream));
+    }
+
+    private static void checkEvents(Reader reader)
+            throws IOException {
+        TestEventDecoder decoder = new TestEventDecoder(reader);
+
+        assertTrue(decoder.next());
+        assertEquals(TestEventType.TEST_RUN_STARTED,
+                decoder.getEventType());
+        TestElement root = decoder.getElement();
+        assertEquals("com.acme::tests", root.getQualifiedName());
+        assertEquals(TestElement.State.RUNNING, root.getState());
+        List<TestElement> children = root.getChildren();
+        assertEquals(2, children.size());
+        assertEquals("com.acme::testA",
+                children.get(0).getQualifiedName());
+        assertEquals("com.acme::testB",
+                children.get(1).getQualifiedName());
+
+        assertTrue(decoder.next());
+        assertEquals(TestEventType.TEST_FINISHED,
+                decoder.getEventType());
+        TestElement finished = decoder.getElement();
+        assertEquals("com.acme::testA", finished.getQualifiedName());
+        assertEquals(TestElement.State.SUCCESS, finished.getState());
+        assertEquals(1234, finished.getElapsedTimeInMilis());
+        assertNull(finished.getException());
+
+        assertTrue(decoder.next());
+        assertEquals(TestEventType.TEST_FINISHED,
+                decoder.getEventType());
+        TestElement error = decoder.getElement();
+        assertEquals(TestElement.State.FAILURE, error.getState());
+        assertEquals("expected \"a\"\nbut was \\b\\",
+                error.getException());
+        assertEquals("a", error.getExpectedValue());
+        assertEquals("\\b\\", error.getActualValue());
+
+        assertTrue(decoder.next());
+        assertEquals(TestEventType.TEST_RUN_FINISHED,
+                decoder.getEventType());
+        assertNull(decoder.getElement());
+
+        assertFalse(decoder.next());
+    }
+
+    /**
+     * A reader which returns at most the given number of
+     * characters from each read, like a socket stream on
+     * which the events arrive in pieces.
+     */
+    private static class ChunkedReader extends Reader {
+        private final String text;
+        private final int chunk;
+        private int position;
+
+        ChunkedReader(String text, int chunk) {
+            this.text = text;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position==text.length()) {
+                return -1;
+            }
+            int count = Math.min(length,
+                    Math.min(chunk, text.length()-position));
+            text.getChars(position, position+count,
+                    buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {}
+    }
+
+}
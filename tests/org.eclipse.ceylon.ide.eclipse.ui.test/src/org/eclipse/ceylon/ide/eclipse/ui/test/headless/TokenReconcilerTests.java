@@ -0,0 +1,288 @@
+/********************************************************************************
+ * Copyright (c) 2011-2017 Red Hat Inc. and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 1.0 which is available at
+ * http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * SPDX-License-Identifier: EPL-1.0
+ ********************************************************************************/
+package org.eclipse.ceylon.ide.eclipse.ui.test.headless;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.eclipse.ceylon.ide.eclipse.util.Nodes.getLexerType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.Token;
+import org.junit.Test;
+
+import org.eclipse.ceylon.compiler.typechecker.parser.CeylonInterpolatingLexer;
+import org.eclipse.ceylon.compiler.typechecker.parser.CeylonLexer;
+import org.eclipse.ceylon.compiler.typechecker.parser.CeylonParser;
+import org.eclipse.ceylon.compiler.typechecker.util.NewlineFixingStringStream;
+import org.eclipse.ceylon.ide.eclipse.code.parse.TokenReconciler;
+
+public class TokenReconcilerTests {
+
+    private static final String SOURCE =
+            "import ceylon.collection {\n" +
+            "    HashMap\n" +
+            "}\n" +
+            "\n" +
+            "\"The hello program\"\n" +
+            "by (\"Gavin\")\n" +
+            "shared void hello() {\n" +
+            "    //a line comment\n" +
+            "    value map = HashMap<String,Integer>();\n" +
+            "    print(\"Hello ``map.size`` world\");\n" +
+            "}\n" +
+            "\n" +
+            "/* a comment */\n" +
+            "shared class Greeter(String name) {\n" +
+            "    shared default void greet() => print(name);\n" +
+            "}\n";
+
+    @Test
+    public void testInsertSpace() {
+        checkReconciled(SOURCE.indexOf("= HashMap"), 0, " ");
+    }
+
+    @Test
+    public void testInsertLine() {
+        checkReconciled(SOURCE.indexOf("    value map"), 0, "\n");
+    }
+
+    @Test
+    public void testRemoveLine() {
+        checkReconciled(SOURCE.indexOf("\n/* a comment"), 1, "");
+    }
+
+    @Test
+    public void testIndent() {
+        checkReconciled(SOURCE.indexOf("shared default"), 0,
+                "    ");
+    }
+
+    @Test
+    public void testEditLineComment() {
+        checkReconciled(SOURCE.indexOf("line comment"), 0,
+                "longer ");
+    }
+
+    @Test
+    public void testEditBlockComment() {
+        checkReconciled(SOURCE.indexOf("comment */"),
+                "comment".length(), "multi\nline\ncomment");
+    }
+
+    @Test
+    public void testAddComment() {
+        checkReconciled(SOURCE.indexOf("shared class"), 0,
+                "//new comment\n");
+        checkReconciled(SOURCE.indexOf("(String name)"), 0,
+                "/*params*/");
+    }
+
+    @Test
+    public void testEditAtEnd() {
+        checkReconciled(SOURCE.length(), 0, "\n\n//the end");
+    }
+
+    @Test
+    public void testRenameFallsBack() {
+        checkFallback(SOURCE.indexOf("map ="), "map".length(),
+                "table");
+    }
+
+    @Test
+    public void testEditStringFallsBack() {
+        checkFallback(SOURCE.indexOf("hello program"), 0, " ");
+        checkFallback(SOURCE.indexOf(" world"), 0, " ");
+    }
+
+    @Test
+    public void testSplitTokenFallsBack() {
+        checkFallback(SOURCE.indexOf("ello()"), 0, " ");
+    }
+
+    @Test
+    public void testUncommentFallsBack() {
+        checkFallback(SOURCE.indexOf("//a line"), 2, "");
+    }
+
+    @Test
+    public void testOpenCommentFallsBack() {
+        checkFallback(SOURCE.indexOf("shared class"), 0, "/*");
+    }
+
+    @Test
+    public void testEveryOffset() {
+        for (int offset=0; offset<=SOURCE.length(); offset++) {
+            checkEdit(offset, 0, " ");
+            checkEdit(offset, 0, "\n");
+            if (offset<SOURCE.length()) {
+                checkEdit(offset, 1, "");
+            }
+        }
+    }
+
+    /**
+     * Check that the given edit to whitespace or comments
+     * is reconciled.
+     */
+    private static void checkReconciled(int offset,
+            int length, String text) {
+        assertNotNull("edit at " + offset + " not reconciled",
+                checkEdit(offset, length, text));
+    }
+
+    /**
+     * Check that the given edit is not reconciled, and
+     * leaves the tokens as they were.
+     */
+    private static void checkFallback(int offset,
+            int length, String text) {
+        List<CommonToken> tokens = lex(SOURCE);
+        List<CommonToken> copies = copy(tokens);
+        assertNull("edit at " + offset + " reconciled",
+                TokenReconciler.reconcile(tokens, SOURCE,
+                        edit(offset, length, text)));
+        assertTokens("edit at " + offset + ": ",
+                copies, tokens, true);
+    }
+
+    /**
+     * Reconcile the given edit, and if it can be
+     * reconciled, check that the new tokens match the
+     * tokens of the new text, that the default channel
+     * tokens are the old token objects, and that the old
+     * token list was not touched. Returns the new tokens,
+     * or null if the edit was not reconciled.
+     */
+    private static List<CommonToken> checkEdit(int offset,
+            int length, String text) {
+        String where = "edit at " + offset + ": ";
+        String edited = edit(offset, length, text);
+        List<CommonToken> tokens = lex(SOURCE);
+        List<CommonToken> oldList =
+                new ArrayList<CommonToken>(tokens);
+        List<CommonToken> copies = copy(tokens);
+
+        TokenReconciler reconciler =
+                TokenReconciler.reconcile(tokens, SOURCE,
+                        edited);
+        if (reconciler==null) {
+            assertTokens(where, copies, tokens, true);
+            return null;
+        }
+        //nothing moves until the reconciliation is applied
+        assertTokens(where, copies, tokens, true);
+
+        List<CommonToken> reconciled = reconciler.apply();
+        assertTokens(where, lex(edited), reconciled, true);
+
+        //the old list still has the same token objects
+        assertEquals(where + "token count",
+                oldList.size(), tokens.size());
+        for (int i=0; i<oldList.size(); i++) {
+            assertSame(where + "token " + i,
+                    oldList.get(i), tokens.get(i));
+        }
+        //and the AST's tokens were moved, not replaced
+        List<CommonToken> oldSignificant = significant(oldList);
+        List<CommonToken> newSignificant = significant(reconciled);
+        assertEquals(where + "significant token count",
+                oldSignificant.size(), newSignificant.size());
+        for (int i=0; i<oldSignificant.size(); i++) {
+            assertSame(where + "token " + i,
+                    oldSignificant.get(i), newSignificant.get(i));
+        }
+        return reconciled;
+    }
+
+    private static void assertTokens(String where,
+            List<CommonToken> expected, List<CommonToken> actual,
+            boolean compareParsedTypes) {
+        assertEquals(where + "token count",
+                expected.size(), actual.size());
+        for (int i=0; i<expected.size(); i++) {
+            CommonToken e = expected.get(i);
+            CommonToken a = actual.get(i);
+            String token = where + "token " + i + " " + e.getText();
+            if (compareParsedTypes) {
+                assertEquals(token, e.getType(), a.getType());
+            }
+            else {
+                assertEquals(token, getLexerType(e), getLexerType(a));
+            }
+            assertEquals(token, e.getChannel(), a.getChannel());
+            assertEquals(token, e.getStartIndex(), a.getStartIndex());
+            assertEquals(token, e.getStopIndex(), a.getStopIndex());
+            assertEquals(token, e.getLine(), a.getLine());
+            assertEquals(token, e.getCharPositionInLine(),
+                    a.getCharPositionInLine());
+            assertEquals(token, e.getTokenIndex(), a.getTokenIndex());
+            assertEquals(token, e.getText(), a.getText());
+        }
+    }
+
+    private static String edit(int offset, int length,
+            String text) {
+        return SOURCE.substring(0, offset) + text +
+                SOURCE.substring(offset+length);
+    }
+
+    /**
+     * Lex and parse the given text, as the parse
+     * controller does.
+     */
+    private static List<CommonToken> lex(String text) {
+        CommonTokenStream stream =
+                new CommonTokenStream(
+                        new CeylonInterpolatingLexer(
+                                new CeylonLexer(
+                                        new NewlineFixingStringStream(
+                                                text))));
+        stream.fill();
+        try {
+            new CeylonParser(stream).compilationUnit();
+        }
+        catch (RecognitionException e) {
+            throw new RuntimeException(e);
+        }
+        List<CommonToken> result = new ArrayList<CommonToken>();
+        for (Object token: stream.getTokens()) {
+            result.add((CommonToken) token);
+        }
+        return result;
+    }
+
+    private static List<CommonToken> copy(List<CommonToken> tokens) {
+        List<CommonToken> result =
+                new ArrayList<CommonToken>(tokens.size());
+        for (CommonToken token: tokens) {
+            result.add(new CommonToken(token));
+        }
+        return result;
+    }
+
+    private static List<CommonToken> significant(
+            List<CommonToken> tokens) {
+        List<CommonToken> result = new ArrayList<CommonToken>();
+        for (CommonToken token: tokens) {
+            if (token.getChannel()==Token.DEFAULT_CHANNEL) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+}